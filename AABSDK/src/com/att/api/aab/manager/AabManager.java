@@ -30,15 +30,38 @@ public class AabManager {
 	//private AABService aabService = null; // Just storing the token now.
 	private static String aabSdkVersion = "att.aab.android.1.1";
 	private AttSdkListener aabListener = null;
-	private static AttSdkTokenUpdater tokenListener = null;
-	private static OAuthService osrvc = null;
-	private static OAuthToken currentToken = null;
+	private static volatile AttSdkTokenUpdater tokenListener = null;
+	private static volatile OAuthService osrvc = null;
 	private static String apiFqdn = "https://api.att.com";
 	// if lowerTokenExpiryTimeTo >= 0, over rides token expiry to this value
-	private static long lowerTokenExpiryTimeTo = -1; 
+	private static volatile long lowerTokenExpiryTimeTo = -1; 
+	private static final TokenManager tokenManager = new TokenManager(new TokenManager.Refresher() {
+		@Override
+		public OAuthToken refresh(String refreshToken) throws RESTException {
+			if (osrvc == null) throw new RESTException("Failed during token refresh. osrvc not initiazed.");
+			OAuthToken authToken = osrvc.refreshToken(refreshToken);
+			if (authToken != null && lowerTokenExpiryTimeTo >= 0) {
+				authToken = new OAuthToken(authToken.getAccessToken(), lowerTokenExpiryTimeTo,
+						authToken.getRefreshToken(), (System.currentTimeMillis() / 1000));
+			}
+			return authToken;
+		}
+	});
 	
-	//private final static CountDownLatch checkTokenExpirySignal = new CountDownLatch(1);
-	private final static Object lockRefreshToken = new Object();
+	static {
+		tokenManager.setListener(new TokenManager.Listener() {
+			@Override
+			public void onTokenUpdate(OAuthToken token) {
+				Log.i("getRefreshTokenListener",
+						"onSuccess Message : " + 
+						TokenUpdatedListener.tokenDisplayString(token.getAccessToken()));
+				AttSdkTokenUpdater listener = tokenListener;
+				if (listener != null) {
+					listener.onTokenUpdate(token);
+				}
+			}
+		});
+	}
 	
 	/**
 	 * This AabManager method creates an AabManager object.
@@ -55,10 +78,10 @@ public class AabManager {
 	 */	
 	public AabManager(OAuthToken token, final AttSdkListener listener) {
 		if (token != null) {
-			currentToken = token;
+			SetCurrentToken(token);
 		}
 	
-		assert (currentToken != null); 
+		assert (tokenManager.getToken() != null); 
 		//aabService = new AABService(apiFqdn, currentToken, "att.aab.android.1.1");
 		aabListener = listener;
 	}
@@ -78,7 +101,16 @@ public class AabManager {
 	 * @param token - Overrides the default OAuth token used for authorization.
 	 */	
 	public static void SetCurrentToken(OAuthToken token) {
-		currentToken = token;
+		tokenManager.setToken(token);
+	}
+	
+	/**
+	 * The SetTokenRefreshSkew method sets how long before its expiry the access token is refreshed.
+	 * The token is refreshed in the background, so API calls made meanwhile are not delayed.
+	 * @param seconds - Refresh skew in seconds. The default is 5 minutes.
+	 */	
+	public static void SetTokenRefreshSkew(long seconds) {
+		tokenManager.setRefreshSkew(seconds);
 	}
 	
 	/**
@@ -116,61 +148,61 @@ public class AabManager {
 	 * The isCurrentTokenExpired method checks if the current access token is expired.
 	 */	
 	public static Boolean isCurrentTokenExpired() {
-		return (currentToken.getAccessTokenExpiry() < (System.currentTimeMillis() / 1000));		
+		OAuthToken token = tokenManager.getToken();
+		return (token == null || token.getAccessTokenExpiry() < (System.currentTimeMillis() / 1000));		
 	}
 	
 	/**
 	 * The CheckAndRefreshExpiredTokenAsync method automatically updates the current token using the RefreshToken.
 	 */	
-	public Boolean CheckAndRefreshExpiredTokenAsync() {			    
+	public Boolean CheckAndRefreshExpiredTokenAsync() {
 		try {
-			OAuthToken authToken = null;
-			OAuthToken adjustedAuthToken = null;
-			synchronized (lockRefreshToken) {
-				if (isCurrentTokenExpired()) {
-					String refreshTokenValue = currentToken.getRefreshToken();
-					currentToken = null;
-					AttSdkError errorObj = new AttSdkError();
-					try {
-						if (osrvc == null) throw new Exception("Failed during token refresh. osrvc not initiazed.");
-						authToken = osrvc.refreshToken(refreshTokenValue);
-						if (authToken != null) {
-							if (lowerTokenExpiryTimeTo >= 0) {
-								adjustedAuthToken = new OAuthToken(authToken.getAccessToken(), lowerTokenExpiryTimeTo,
-										authToken.getRefreshToken(), (System.currentTimeMillis() / 1000));
-							} else {
-								adjustedAuthToken = authToken;
-							}
-							currentToken = adjustedAuthToken;
-							Log.i("getRefreshTokenListener",
-									"onSuccess Message : " + 
-									TokenUpdatedListener.tokenDisplayString(adjustedAuthToken.getAccessToken()));
-							if (tokenListener != null) {
-								tokenListener.onTokenUpdate(adjustedAuthToken);
-							}
-						} else {
-							throw new Exception("Failed during token refresh.");
-						}
-					} catch (RESTException e) {
-						Log.i("getRefreshTokenListener", "REST Error:" + e.getMessage());
-						errorObj = Utils.CreateErrorObjectFromException( e );
-					} catch (Exception e) {
-						Log.i("getRefreshTokenListener", "Error:" + e.getMessage());
-					}
-					if (currentToken == null) {
-						if (aabListener != null) {
-							aabListener.onError(errorObj);
-						}						
-						if (tokenListener != null) {
-							tokenListener.onTokenDelete();
-						}			
-					}
-				}
+			return (tokenManager.getValidToken() != null);
+		} catch (RESTException e) {
+			Log.i("getRefreshTokenListener", "REST Error:" + e.getMessage());
+			onTokenRefreshFailed(e);
+			return false;
+		}
+	}
+	
+	/*
+	 * A call made through callService, given the service to use.
+	 */
+	interface ServiceCall<T> {
+		T call(AABService aabService) throws RESTException;
+	}
+	
+	/*
+	 * Makes the call with the current token, refreshing the token first if it has expired.
+	 * If the server rejects the token anyway, the token is refreshed and the call is retried
+	 * once.
+	 */
+	<T> T callService(ServiceCall<T> call) throws RESTException {
+		final OAuthToken token = tokenManager.getToken();
+		try {
+			return call.call(new AABService(apiFqdn, token, aabSdkVersion));
+		} catch (RESTException e) {
+			if (e.getStatusCode() != 401) throw e;
+			final OAuthToken refreshed;
+			try {
+				refreshed = tokenManager.refreshAfterUnauthorized(token);
+			} catch (RESTException refreshError) {
+				Log.i("getRefreshTokenListener", "REST Error:" + refreshError.getMessage());
+				throw e;
 			}
-		} catch (Exception /*InterruptedException*/ e) {
-			currentToken = null;
-		}	
-		return (currentToken != null);
+			return call.call(new AABService(apiFqdn, refreshed, aabSdkVersion));
+		}
+	}
+	
+	private void onTokenRefreshFailed(RESTException e) {
+		AttSdkError errorObj = Utils.CreateErrorObjectFromException( e );
+		if (aabListener != null) {
+			aabListener.onError(errorObj);
+		}
+		AttSdkTokenUpdater listener = tokenListener;
+		if (listener != null) {
+			listener.onTokenDelete();
+		}
 	}
 	
 	/**
@@ -202,9 +234,9 @@ public class AabManager {
     public void RevokeToken(String hint) {
 		RevokeTokenTask task = new RevokeTokenTask();
 		if (hint.equalsIgnoreCase("access_token")) {
-			task.execute(currentToken.getAccessToken(), hint);
+			task.execute(tokenManager.getToken().getAccessToken(), hint);
 		} else if (hint.equalsIgnoreCase("refresh_token")) {
-			task.execute(currentToken.getRefreshToken(), hint);			
+			task.execute(tokenManager.getToken().getRefreshToken(), hint);			
 		} else {
 			if (null != aabListener) {
 				aabListener.onError(new AttSdkError("Invalid token hint passed to the RevokeToken method."));
@@ -490,16 +522,20 @@ public class AabManager {
 	
 	public class  CreateContactTask extends AsyncTask<Contact, Void, String> {
 		@Override
-		protected String doInBackground(Contact... params) {
+		protected String doInBackground(final Contact... params) {
 			String result = null;
 			AttSdkError errorObj = new AttSdkError();
 
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				result = aabService.createContact(
-								params[0] //contact
-							    );
+				result = callService(new ServiceCall<String>() {
+					@Override
+					public String call(AABService aabService) throws RESTException {
+						return aabService.createContact(
+										params[0] //contact
+									    );
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -523,18 +559,22 @@ public class AabManager {
 	
 	public class  GetContactsTask extends AsyncTask<GetContactParams, Void, ContactResultSet> {
 		@Override
-		protected ContactResultSet doInBackground(GetContactParams... params) {
+		protected ContactResultSet doInBackground(final GetContactParams... params) {
 			ContactResultSet contactResultSet = null;
 			AttSdkError errorObj = new AttSdkError();
 
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				contactResultSet = aabService.getContacts(
-								params[0].getxFields(), //xFields
-							    params[0].getPageParams(), //PageParams
-							    params[0].getSearchParams() //SearchParams 
-							    );
+				contactResultSet = callService(new ServiceCall<ContactResultSet>() {
+					@Override
+					public ContactResultSet call(AABService aabService) throws RESTException {
+						return aabService.getContacts(
+										params[0].getxFields(), //xFields
+									    params[0].getPageParams(), //PageParams
+									    params[0].getSearchParams() //SearchParams 
+									    );
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -558,17 +598,21 @@ public class AabManager {
 	
 	public class  GetContactTask extends AsyncTask<String, Void, ContactWrapper> {
 		@Override
-		protected ContactWrapper doInBackground(String... params) {
+		protected ContactWrapper doInBackground(final String... params) {
 			ContactWrapper result = null;
 			AttSdkError errorObj = new AttSdkError();
 
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				result = aabService.getContact(
-								params[0], //contactId
-							    params[1] //xFields 
-							    );
+				result = callService(new ServiceCall<ContactWrapper>() {
+					@Override
+					public ContactWrapper call(AABService aabService) throws RESTException {
+						return aabService.getContact(
+										params[0], //contactId
+									    params[1] //xFields 
+									    );
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -592,18 +636,22 @@ public class AabManager {
 	
 	public class  GetContactGroupsTask extends AsyncTask<String, Void, GroupResultSet> {
 		@Override
-		protected GroupResultSet doInBackground(String... params) {
+		protected GroupResultSet doInBackground(final String... params) {
 			GroupResultSet result = null;
 			AttSdkError errorObj = new AttSdkError();
 
 			try {
-				PageParams pageParams = new PageParams(params[1], params[2], params[3], params[4]);
+				final PageParams pageParams = new PageParams(params[1], params[2], params[3], params[4]);
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				result = aabService.getContactGroups(
-								params[0], //contactId
-								pageParams //pageParams 
-							    );
+				result = callService(new ServiceCall<GroupResultSet>() {
+					@Override
+					public GroupResultSet call(AABService aabService) throws RESTException {
+						return aabService.getContactGroups(
+										params[0], //contactId
+										pageParams //pageParams 
+									    );
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -627,17 +675,22 @@ public class AabManager {
 	
 	public class  UpdateContactTask extends AsyncTask<Contact, Void, String> {
 		@Override
-		protected String doInBackground(Contact... params) {
+		protected String doInBackground(final Contact... params) {
 			AttSdkError errorObj = new AttSdkError();
 			String result = "success";
 
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				aabService.updateContact(
-								params[0], //contact
-								params[0].getContactId() //contactId
-							    );
+				callService(new ServiceCall<Void>() {
+					@Override
+					public Void call(AABService aabService) throws RESTException {
+						aabService.updateContact(
+										params[0], //contact
+										params[0].getContactId() //contactId
+									    );
+						return null;
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -661,16 +714,21 @@ public class AabManager {
 	
 	public class  DeleteContactTask extends AsyncTask<String, Void, String> {
 		@Override
-		protected String doInBackground(String... params) {
+		protected String doInBackground(final String... params) {
 			AttSdkError errorObj = new AttSdkError();
 			String result = "success";
 
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				aabService.deleteContact(
-								params[0] //contactId
-							    );
+				callService(new ServiceCall<Void>() {
+					@Override
+					public Void call(AABService aabService) throws RESTException {
+						aabService.deleteContact(
+										params[0] //contactId
+									    );
+						return null;
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -694,16 +752,20 @@ public class AabManager {
 	
 	public class  CreateGroupTask extends AsyncTask<Group, Void, String> {
 		@Override
-		protected String doInBackground(Group... params) {
+		protected String doInBackground(final Group... params) {
 			String result = null;
 			AttSdkError errorObj = new AttSdkError();
 	
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				result = aabService.createGroup(
-								params[0] //group
-							    );
+				result = callService(new ServiceCall<String>() {
+					@Override
+					public String call(AABService aabService) throws RESTException {
+						return aabService.createGroup(
+										params[0] //group
+									    );
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -727,18 +789,22 @@ public class AabManager {
 	
 	public class  GetGroupsTask extends AsyncTask<String, Void, GroupResultSet> {
 		@Override
-		protected GroupResultSet doInBackground(String... params) {
+		protected GroupResultSet doInBackground(final String... params) {
 			GroupResultSet result = null;
 			AttSdkError errorObj = new AttSdkError();
 
 			try {
-				PageParams pageParams = new PageParams(params[1], params[2], params[3], params[4]);
+				final PageParams pageParams = new PageParams(params[1], params[2], params[3], params[4]);
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				result = aabService.getGroups(
-								pageParams, //pageParams 
-								params[0] //groupName
-							    );
+				result = callService(new ServiceCall<GroupResultSet>() {
+					@Override
+					public GroupResultSet call(AABService aabService) throws RESTException {
+						return aabService.getGroups(
+										pageParams, //pageParams 
+										params[0] //groupName
+									    );
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -762,16 +828,21 @@ public class AabManager {
 	
 	public class  DeleteGroupTask extends AsyncTask<String, Void, String> {
 		@Override
-		protected String doInBackground(String... params) {
+		protected String doInBackground(final String... params) {
 			AttSdkError errorObj = new AttSdkError();
 			String result = "success";
 
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				aabService.deleteGroup(
-								params[0] //groupId
-							    );
+				callService(new ServiceCall<Void>() {
+					@Override
+					public Void call(AABService aabService) throws RESTException {
+						aabService.deleteGroup(
+										params[0] //groupId
+									    );
+						return null;
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -795,17 +866,22 @@ public class AabManager {
 	
 	public class  UpdateGroupTask extends AsyncTask<Group, Void, String> {
 		@Override
-		protected String doInBackground(Group... params) {
+		protected String doInBackground(final Group... params) {
 			String result = "success";
 			AttSdkError errorObj = new AttSdkError();
 	
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				aabService.updateGroup(
-								params[0], //group
-								params[0].getGroupId() //groupId
-							    );
+				callService(new ServiceCall<Void>() {
+					@Override
+					public Void call(AABService aabService) throws RESTException {
+						aabService.updateGroup(
+										params[0], //group
+										params[0].getGroupId() //groupId
+									    );
+						return null;
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -829,17 +905,22 @@ public class AabManager {
 	
 	public class  AddContactsToGroupTask extends AsyncTask<String, Void, String> {
 		@Override
-		protected String doInBackground(String... params) {
+		protected String doInBackground(final String... params) {
 			AttSdkError errorObj = new AttSdkError();
 			String result = "success";
 
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				aabService.addContactsToGroup(
-								params[0], //groupId
-								params[1]  //contactIds
-							    );
+				callService(new ServiceCall<Void>() {
+					@Override
+					public Void call(AABService aabService) throws RESTException {
+						aabService.addContactsToGroup(
+										params[0], //groupId
+										params[1]  //contactIds
+									    );
+						return null;
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -863,17 +944,22 @@ public class AabManager {
 	
 	public class  RemoveContactsFromGroupTask extends AsyncTask<String, Void, String> {
 		@Override
-		protected String doInBackground(String... params) {
+		protected String doInBackground(final String... params) {
 			AttSdkError errorObj = new AttSdkError();
 			String result = "success";
 
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				aabService.removeContactsFromGroup(
-								params[0], //groupId
-								params[1]  //contactIds
-							    );
+				callService(new ServiceCall<Void>() {
+					@Override
+					public Void call(AABService aabService) throws RESTException {
+						aabService.removeContactsFromGroup(
+										params[0], //groupId
+										params[1]  //contactIds
+									    );
+						return null;
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -897,18 +983,22 @@ public class AabManager {
 	
 	public class  GetGroupContactsTask extends AsyncTask<String, Void, String[]> {
 		@Override
-		protected String[] doInBackground(String... params) {
+		protected String[] doInBackground(final String... params) {
 			String[] result = null;
 			AttSdkError errorObj = new AttSdkError();
 
 			try {
-				PageParams pageParams = new PageParams(params[1], params[2], params[3], params[4]);
+				final PageParams pageParams = new PageParams(params[1], params[2], params[3], params[4]);
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				result = aabService.getGroupContacts(
-								params[0], //groupId
-								pageParams //pageParams 
-							    );
+				result = callService(new ServiceCall<String[]>() {
+					@Override
+					public String[] call(AABService aabService) throws RESTException {
+						return aabService.getGroupContacts(
+										params[0], //groupId
+										pageParams //pageParams 
+									    );
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -938,8 +1028,12 @@ public class AabManager {
 
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				result = aabService.getMyInfo();
+				result = callService(new ServiceCall<Contact>() {
+					@Override
+					public Contact call(AABService aabService) throws RESTException {
+						return aabService.getMyInfo();
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
@@ -963,16 +1057,21 @@ public class AabManager {
 	
 	public class  UpdateMyInfoTask extends AsyncTask<Contact, Void, String> {
 		@Override
-		protected String doInBackground(Contact... params) {
+		protected String doInBackground(final Contact... params) {
 			AttSdkError errorObj = new AttSdkError();
 			String result = "success";
 
 			try {
 				if (!CheckAndRefreshExpiredTokenAsync()) return null;
-				AABService aabService = new AABService(apiFqdn, currentToken, aabSdkVersion);
-				aabService.updateMyInfo(
-								params[0] //contact
-							    );
+				callService(new ServiceCall<Void>() {
+					@Override
+					public Void call(AABService aabService) throws RESTException {
+						aabService.updateMyInfo(
+										params[0] //contact
+									    );
+						return null;
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				if (null != aabListener) {
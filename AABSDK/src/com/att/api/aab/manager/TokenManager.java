@@ -0,0 +1,291 @@
+package com.att.api.aab.manager;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.att.api.oauth.OAuthToken;
+import com.att.api.rest.RESTException;
+
+/**
+ * Holds the current OAuth token and refreshes it ahead of its expiry.
+ *
+ * <p>
+ * Reading the token never takes a lock. The token is refreshed in the
+ * background once it is within the refresh skew of expiring, so requests
+ * keep using the current token meanwhile; only a request that finds the
+ * token already expired waits for the refresh. However many threads need a
+ * refresh at the same time, only one refresh request is made.
+ * </p>
+ *
+ * <p>
+ * The codekit jar provides the OAuth classes for this SDK, so this is the
+ * AddressBook counterpart of the IAM SDK's com.att.api.oauth.TokenManager.
+ * </p>
+ *
+ * @author ps350r
+ */
+public class TokenManager {
+
+	/** Default time, in seconds, before expiry at which a token is refreshed. */
+	public static final long DEFAULT_REFRESH_SKEW = 5 * 60;
+
+	/* Delay, in seconds, before retrying a failed background refresh. */
+	private static final long RETRY_DELAY = 30;
+
+	/**
+	 * Obtains a new token using a refresh token.
+	 */
+	public interface Refresher {
+		/**
+		 * @param refreshToken refresh token of the token being replaced
+		 * @return the new token, or null if none was issued
+		 */
+		OAuthToken refresh(String refreshToken) throws RESTException;
+	}
+
+	/**
+	 * Notified when the token is refreshed. Called on the thread that did
+	 * the refresh.
+	 */
+	public interface Listener {
+		void onTokenUpdate(OAuthToken token);
+	}
+
+	/* One daemon thread schedules and runs background refreshes for all managers. */
+	private static final ScheduledExecutorService SCHEDULER =
+		Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "TokenManager");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+	private final Refresher refresher;
+
+	private volatile OAuthToken token;
+	private volatile long refreshSkew = DEFAULT_REFRESH_SKEW;
+	private volatile Listener listener;
+
+	/* The refresh in progress, if any. */
+	private final AtomicReference<RefreshTask> refreshing = new AtomicReference<RefreshTask>();
+
+	/* Guarded by this. */
+	private ScheduledFuture<?> scheduledRefresh;
+
+	/**
+	 * Creates a TokenManager that uses the specified refresher.
+	 *
+	 * @param refresher used to obtain new tokens
+	 */
+	public TokenManager(Refresher refresher) {
+		this.refresher = refresher;
+	}
+
+	/**
+	 * Gets the current token without checking its expiry.
+	 *
+	 * @return current token, or null if there is none
+	 */
+	public OAuthToken getToken() {
+		return token;
+	}
+
+	/**
+	 * Replaces the current token, e.g. with one obtained through an
+	 * authorization code, and schedules its refresh.
+	 *
+	 * @param token new token, or null to clear it
+	 */
+	public void setToken(OAuthToken token) {
+		this.token = token;
+		scheduleRefresh(token, 0);
+	}
+
+	/**
+	 * Sets how long before expiry a token is refreshed.
+	 *
+	 * @param seconds refresh skew in seconds
+	 */
+	public void setRefreshSkew(long seconds) {
+		this.refreshSkew = seconds;
+		scheduleRefresh(token, 0);
+	}
+
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Gets a token that has not expired.
+	 *
+	 * <p>
+	 * If the current token is within the refresh skew of expiring, it is
+	 * returned as is and a background refresh is started. If it has already
+	 * expired, waits for a refresh.
+	 * </p>
+	 *
+	 * @return a valid token, or null if there is no token
+	 * @throws RESTException if the token had expired and could not be
+	 *         refreshed
+	 */
+	public OAuthToken getValidToken() throws RESTException {
+		final OAuthToken current = token;
+		if (current == null) {
+			return null;
+		}
+		if (!expiresWithin(current, 0)) {
+			if (expiresWithin(current, refreshSkew)) {
+				refreshInBackground(current);
+			}
+			return current;
+		}
+		return refresh(current);
+	}
+
+	/**
+	 * Replaces a token that the server rejected. If the token has already
+	 * been replaced, returns the replacement without another refresh.
+	 *
+	 * @param rejected token the server responded 401 to
+	 * @return the new token
+	 * @throws RESTException if the token could not be refreshed
+	 */
+	public OAuthToken refreshAfterUnauthorized(OAuthToken rejected) throws RESTException {
+		return refresh(rejected);
+	}
+
+	private OAuthToken refresh(OAuthToken stale) throws RESTException {
+		final RefreshTask task = startRefresh(stale);
+		if (task == null) {
+			return token;
+		}
+		// does nothing if the task is already running elsewhere
+		task.run();
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RESTException(e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RESTException) {
+				throw (RESTException) cause;
+			}
+			throw new RESTException(cause);
+		}
+	}
+
+	private void refreshInBackground(OAuthToken stale) {
+		final RefreshTask task = startRefresh(stale);
+		if (task != null) {
+			SCHEDULER.execute(task);
+		}
+	}
+
+	/*
+	 * Returns the refresh in progress, starting a new one if the stale token
+	 * is still current. Returns null if the stale token was already replaced.
+	 */
+	private RefreshTask startRefresh(OAuthToken stale) {
+		while (true) {
+			final RefreshTask current = refreshing.get();
+			if (current != null) {
+				return current;
+			}
+			if (token != stale) {
+				return null;
+			}
+			final RefreshTask task = new RefreshTask(stale);
+			if (refreshing.compareAndSet(null, task)) {
+				return task;
+			}
+		}
+	}
+
+	private OAuthToken doRefresh(OAuthToken stale) throws Exception {
+		// a refresh that completed just before this one started already replaced it
+		final OAuthToken current = token;
+		if (current != stale) {
+			return current;
+		}
+
+		final OAuthToken fresh;
+		try {
+			fresh = refresher.refresh(stale.getRefreshToken());
+			if (fresh == null) {
+				throw new RESTException("Failed during token refresh.");
+			}
+		} catch (Exception e) {
+			// try again later while the old token is still usable
+			if (!expiresWithin(stale, 0)) {
+				scheduleRefresh(stale, RETRY_DELAY);
+			}
+			throw e;
+		}
+
+		token = fresh;
+		scheduleRefresh(fresh, 0);
+		final Listener l = listener;
+		if (l != null) {
+			l.onTokenUpdate(fresh);
+		}
+		return fresh;
+	}
+
+	/*
+	 * Schedules a background refresh of the token at expiry minus skew, or
+	 * after minDelay seconds if that is later.
+	 */
+	private synchronized void scheduleRefresh(final OAuthToken scheduled, long minDelay) {
+		if (scheduledRefresh != null) {
+			scheduledRefresh.cancel(false);
+			scheduledRefresh = null;
+		}
+		if (scheduled == null || scheduled.getAccessTokenExpiry() == OAuthToken.NO_EXPIRATION
+				|| scheduled.getRefreshToken() == null) {
+			return;
+		}
+		final long delay = Math.max(minDelay,
+				scheduled.getAccessTokenExpiry() - refreshSkew - now());
+		scheduledRefresh = SCHEDULER.schedule(new Runnable() {
+			@Override
+			public void run() {
+				refreshInBackground(scheduled);
+			}
+		}, delay, TimeUnit.SECONDS);
+	}
+
+	private static boolean expiresWithin(OAuthToken t, long seconds) {
+		return t.getAccessTokenExpiry() != OAuthToken.NO_EXPIRATION
+			&& now() + seconds >= t.getAccessTokenExpiry();
+	}
+
+	private static long now() {
+		return System.currentTimeMillis() / 1000;
+	}
+
+	private final class RefreshTask extends FutureTask<OAuthToken> {
+		RefreshTask(final OAuthToken stale) {
+			super(new Callable<OAuthToken>() {
+				@Override
+				public OAuthToken call() throws Exception {
+					return doRefresh(stale);
+				}
+			});
+		}
+
+		@Override
+		protected void done() {
+			refreshing.compareAndSet(this, null);
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package com.att.api.aab.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.att.api.oauth.OAuthToken;
+
+/**
+ * Keeps the saved OAuth token of the application in a properties file.
+ *
+ * <p>
+ * There is one TokenStore per file in the process, shared by every SDK that
+ * saves its token there. Reads are served from memory; the file is read again
+ * only if its modification time or size shows that another process changed it.
+ * Writes return at once and are done in the background by writing a temporary
+ * file and renaming it over the saved one, so a reader never sees a partly
+ * written token. When the token changes several times in a row, only the
+ * latest one is written.
+ * </p>
+ *
+ * <p>
+ * The IAM SDK has its own copy, com.att.api.util.TokenStore, which uses the
+ * same file.
+ * </p>
+ *
+ * @author ps350r
+ */
+public final class TokenStore {
+
+	private static final String TAG = "TokenStore";
+	private static final String FILE_NAME = "att_api_token.properties";
+
+	private static final String ACCESS_TOKEN = "accessToken";
+	private static final String ACCESS_TOKEN_EXPIRY = "accessTokenExpiry";
+	private static final String REFRESH_TOKEN = "refreshToken";
+
+	private static final HashMap<String, TokenStore> stores = new HashMap<String, TokenStore>();
+
+	// one thread writes the files of all stores, in order
+	private static final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, TAG);
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	private final File file;
+	private final File tempFile;
+
+	// guarded by this
+	private OAuthToken token = null;
+	private boolean loaded = false;
+	private long loadedModified = 0;
+	private long loadedLength = 0;
+	// incremented by each change; the file is current when both are equal
+	private long version = 0;
+	private long writtenVersion = 0;
+
+	private TokenStore(File file) {
+		this.file = file;
+		this.tempFile = new File(file.getPath() + ".tmp");
+	}
+
+	/**
+	 * Gets the store for the application's default token file.
+	 * @param context any context of the application
+	 * @return the store
+	 */
+	public static TokenStore getInstance(Context context) {
+		return forFile(new File(context.getFilesDir(), FILE_NAME));
+	}
+
+	/**
+	 * Gets the store for the specified file.
+	 * @param file file the token is saved in
+	 * @return the store
+	 */
+	public static TokenStore forFile(File file) {
+		String path = file.getAbsolutePath();
+		synchronized (stores) {
+			TokenStore store = stores.get(path);
+			if (store == null) {
+				store = new TokenStore(file.getAbsoluteFile());
+				stores.put(path, store);
+			}
+			return store;
+		}
+	}
+
+	/**
+	 * Gets the saved token.
+	 * @return the saved token, or null if there is none
+	 */
+	public synchronized OAuthToken getToken() {
+		// until our own change is written, the file is older than the token in memory
+		if (writtenVersion != version) {
+			return token;
+		}
+		final long modified = file.lastModified();
+		final long length = file.length();
+		if (loaded && modified == loadedModified && length == loadedLength) {
+			return token;
+		}
+		try {
+			token = read();
+		} catch (IOException e) {
+			Log.e(TAG, "Failed to read saved token: " + e.getMessage());
+			token = null;
+		}
+		loaded = true;
+		loadedModified = modified;
+		loadedLength = length;
+		return token;
+	}
+
+	/**
+	 * Saves the token. Returns before the token is written to the file.
+	 * @param newToken token to save, or null to delete the saved token
+	 */
+	public void setToken(OAuthToken newToken) {
+		synchronized (this) {
+			token = newToken;
+			loaded = true;
+			++version;
+		}
+		writer.execute(new Runnable() {
+			@Override
+			public void run() {
+				writePending();
+			}
+		});
+	}
+
+	/**
+	 * Deletes the saved token. Returns before the file is deleted.
+	 */
+	public void clear() {
+		setToken(null);
+	}
+
+	/**
+	 * Waits until every change made so far is written to the file.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void flush() throws InterruptedException {
+		try {
+			writer.submit(new Runnable() {
+				@Override
+				public void run() {
+					// the writer runs in order, so earlier writes are done by now
+				}
+			}).get();
+		} catch (ExecutionException e) {
+			// the task does nothing, so it cannot fail
+		}
+	}
+
+	private void writePending() {
+		final OAuthToken pending;
+		final long pendingVersion;
+		synchronized (this) {
+			if (writtenVersion == version) {
+				// a later change was already written
+				return;
+			}
+			pending = token;
+			pendingVersion = version;
+		}
+
+		try {
+			if (pending == null) {
+				if (file.exists() && !file.delete()) {
+					throw new IOException("Unable to delete " + file);
+				}
+			} else {
+				write(pending);
+			}
+		} catch (IOException e) {
+			// the token stays in memory; it is written again with the next change
+			Log.e(TAG, "Failed to save token: " + e.getMessage());
+		}
+
+		synchronized (this) {
+			writtenVersion = pendingVersion;
+			loadedModified = file.lastModified();
+			loadedLength = file.length();
+		}
+	}
+
+	private void write(OAuthToken t) throws IOException {
+		Properties props = new Properties();
+		props.setProperty(ACCESS_TOKEN, t.getAccessToken());
+		props.setProperty(ACCESS_TOKEN_EXPIRY, String.valueOf(t.getAccessTokenExpiry()));
+		props.setProperty(REFRESH_TOKEN, t.getRefreshToken() == null ? "" : t.getRefreshToken());
+
+		FileOutputStream out = new FileOutputStream(tempFile);
+		try {
+			props.store(out, "Token Information");
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		if (!tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException("Unable to replace " + file);
+		}
+	}
+
+	private OAuthToken read() throws IOException {
+		if (!file.exists()) {
+			return null;
+		}
+		Properties props = new Properties();
+		FileInputStream in = new FileInputStream(file);
+		try {
+			props.load(in);
+		} finally {
+			in.close();
+		}
+
+		String accessToken = props.getProperty(ACCESS_TOKEN);
+		if (accessToken == null || accessToken.length() == 0) {
+			return null;
+		}
+		long expiry;
+		try {
+			expiry = Long.parseLong(props.getProperty(ACCESS_TOKEN_EXPIRY, "0"));
+		} catch (NumberFormatException e) {
+			expiry = 0;
+		}
+		String refreshToken = props.getProperty(REFRESH_TOKEN);
+		if (refreshToken != null && refreshToken.length() == 0) {
+			refreshToken = null;
+		}
+		// the expiry is saved as a Unix timestamp, so it is an offset from time 0
+		return new OAuthToken(accessToken, expiry, refreshToken, 0);
+	}
+}
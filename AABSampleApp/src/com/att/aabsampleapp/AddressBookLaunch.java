@@ -50,22 +50,13 @@ public class AddressBookLaunch extends Activity {
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		OAuthToken savedToken = null;
-		String strStoredToken = null;
 
 		super.onCreate(savedInstanceState);
 				
 		showProgressDialog("Opening  AddressBook .. ");
 		setContentView(R.layout.activity_address_book_launch);
 		
-		Preferences prefs = new Preferences(getApplicationContext());
-		if (prefs != null) {
-			strStoredToken = prefs.getString(TokenUpdatedListener.accessTokenSettingName, "");
-			if (strStoredToken.length() > 0) {
-				savedToken = new OAuthToken(strStoredToken, 
-						prefs.getLong(TokenUpdatedListener.tokenExpirySettingName, 0), 
-						prefs.getString(TokenUpdatedListener.refreshTokenSettingName, ""), 0);
-			}
-		}
+		savedToken = TokenUpdatedListener.LoadSavedToken(getApplicationContext());
 		
 		// Initialize the AabManager also:
 		AabManager.SetApiFqdn(Config.fqdn);
@@ -2,6 +2,7 @@ package com.att.aabsampleapp;
 import java.util.Date;
 
 import com.att.api.aab.manager.AabManager;
+import com.att.api.aab.util.TokenStore;
 import com.att.api.oauth.OAuthToken;
 import com.att.api.util.Preferences;
 import com.att.api.util.TokenUpdatedListener;
@@ -40,12 +41,16 @@ public class DebugSettingsPage extends Activity {
 		m_revokeAccessTokenCheckBox = (CheckBox) findViewById(R.id.revokeAccessTokenCheckBox);
 		m_revokeRefreshTokenCheckBox = (CheckBox) findViewById(R.id.revokeRefreshTokenCheckBox);
 
+		OAuthToken savedToken = TokenUpdatedListener.LoadSavedToken(getApplicationContext());
+		if (savedToken != null) {
+			m_accessToken.setText(savedToken.getAccessToken());
+			m_refreshToken.setText(savedToken.getRefreshToken());
+			m_tokenExpiresIn.setText(String.valueOf(savedToken.getAccessTokenExpiry() - 
+					(System.currentTimeMillis() / 1000)));
+		}
+
 		Preferences prefs = new Preferences(getApplicationContext());		
 		if (prefs != null) {
-			m_accessToken.setText(prefs.getString(TokenUpdatedListener.accessTokenSettingName, ""));
-			m_refreshToken.setText(prefs.getString(TokenUpdatedListener.refreshTokenSettingName, ""));
-			m_tokenExpiresIn.setText(String.valueOf(prefs.getLong(TokenUpdatedListener.tokenExpirySettingName, 0) - 
-					(System.currentTimeMillis() / 1000)));
 
 			String savedCustomParam = prefs.getString(TokenUpdatedListener.customParamSettingName, "");
 			m_forceOffNetCheckBox.setChecked(savedCustomParam.contains("bypass_onnetwork_auth"));
@@ -82,9 +87,7 @@ public class DebugSettingsPage extends Activity {
 						newExpiresInValue, 
 						m_refreshToken.getText().toString().trim(), (System.currentTimeMillis() / 1000));
 				if (token != null) {
-					prefs.setString(TokenUpdatedListener.accessTokenSettingName, token.getAccessToken());
-					prefs.setString(TokenUpdatedListener.refreshTokenSettingName, token.getRefreshToken());
-					prefs.setLong(TokenUpdatedListener.tokenExpirySettingName, token.getAccessTokenExpiry());
+					TokenStore.getInstance(getApplicationContext()).setToken(token);
 
 					Log.i("updateSavedToken", "Saved Token: " + TokenUpdatedListener.tokenDisplayString(token.getAccessToken()));
 					Log.i("tokenExpiryTime", new Date(token.getAccessTokenExpiry()*1000).toString());
@@ -92,9 +95,7 @@ public class DebugSettingsPage extends Activity {
 					AabManager.SetCurrentToken(token);
 				}	
 				if (m_clearPreferencesCheckBox.isChecked()){
-					prefs.setString(TokenUpdatedListener.accessTokenSettingName, "");
-					prefs.setString(TokenUpdatedListener.refreshTokenSettingName, "");
-					prefs.setLong(TokenUpdatedListener.tokenExpirySettingName, 0);
+					TokenStore.getInstance(getApplicationContext()).clear();
 					prefs.setString(TokenUpdatedListener.customParamSettingName, "");
 				}
 				if (m_clearCookiesCheckBox.isChecked()){
@@ -1,5 +1,6 @@
 package com.att.aabsampleapp;
 
+import com.att.api.aab.util.TokenStore;
 import com.att.api.util.Preferences;
 import com.att.api.util.TokenUpdatedListener;
 
@@ -75,9 +76,8 @@ public class SampleAppLauncher extends TabActivity {
 
 		case R.id.action_logout:
 			AddressBookLaunch.RevokeToken("refresh_token");					
-			Preferences prefs = new Preferences(getApplicationContext());		
-			prefs.setString(TokenUpdatedListener.accessTokenSettingName,"");  
-			prefs.setString(TokenUpdatedListener.refreshTokenSettingName,"");  
+			TokenStore.getInstance(getApplicationContext()).clear();
+			new Preferences(getApplicationContext()).flush();
 			finish();
 			return true;
 
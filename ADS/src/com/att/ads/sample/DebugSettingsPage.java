@@ -1,8 +1,7 @@
 package com.att.ads.sample;
 
 import com.att.ads.AuthService;
-import com.att.ads.util.EncryptDecrypt;
-import com.att.ads.util.Preferences;
+import com.att.ads.util.TokenBroker;
 
 import android.app.Activity;
 import android.os.Bundle;
@@ -34,25 +33,14 @@ public class DebugSettingsPage extends Activity {
 		m_clearPreferencesCheckBox = (CheckBox) findViewById(R.id.clearPreferencesCheckBox);
 		m_revokeRefreshTokenCheckBox = (CheckBox) findViewById(R.id.revokeRefreshTokenCheckBox);
 
-		Preferences prefs = new Preferences(getApplicationContext());		
-		if (prefs != null) {
-			String accessTokenEnc = prefs.getString("access_token", null);
-			String refreshTokenEnc = prefs.getString("refresh_token", null);
-			try {
-				accessToken = EncryptDecrypt.getDecryptedValue(accessTokenEnc,
-						EncryptDecrypt.getSecretKeySpec("access_token"));
-				refreshToken = EncryptDecrypt.getDecryptedValue(
-						refreshTokenEnc,
-						EncryptDecrypt.getSecretKeySpec("refresh_token"));
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-			
-			long expiresInd = Long.valueOf(prefs.getString("expires_in", "-1"));
-
+		// the token the Ads SDK holds, without a request
+		TokenBroker.Token token = new AuthService(getApplicationContext()).peekToken();
+		if (token != null) {
+			accessToken = token.getAccessToken();
+			refreshToken = token.getRefreshToken();
 			m_accessToken.setText(accessToken);
 			m_refreshToken.setText(refreshToken);
-			m_tokenExpiresIn.setText(String.valueOf(expiresInd));
+			m_tokenExpiresIn.setText(String.valueOf(token.getAccessTokenExpiry()));
 		}		
 	}
 
@@ -72,27 +60,21 @@ public class DebugSettingsPage extends Activity {
 		Button applyButton = (Button) findViewById(R.id.applyButton);
 		applyButton.setOnClickListener(new Button.OnClickListener() {
 			public void onClick(View v) {
-				Preferences prefs = new Preferences(getApplicationContext());		
-				try {
-					prefs.setString("access_token", EncryptDecrypt
-							.getEncryptedValue(m_accessToken.getText().toString().trim(), EncryptDecrypt
-									.getSecretKeySpec("access_token")));
-					
-					prefs.setString("refresh_token", EncryptDecrypt
-							.getEncryptedValue(m_refreshToken.getText().toString().trim(), EncryptDecrypt
-									.getSecretKeySpec("refresh_token")));
-					
-					String expiresIn = m_tokenExpiresIn.getText().toString().trim();
-					if (expiresIn.length() <= 0) expiresIn = "-1";
-					prefs.setString("expires_in", expiresIn);
-					
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
+				AuthService authService = new AuthService(getApplicationContext());
 				if (m_clearPreferencesCheckBox.isChecked()){
-					prefs.setString("access_token", "");
-					prefs.setString("refresh_token", "");
-					prefs.setString("expires_in", "-1");
+					authService.replaceToken(new TokenBroker.Token("", null, 0));
+				} else if (accessToken.length() > 0) {
+					String refresh = m_refreshToken.getText().toString().trim();
+					String expiresIn = m_tokenExpiresIn.getText().toString().trim();
+					try {
+						// a Unix time in seconds, or -1 for no expiry
+						long expiry = expiresIn.length() <= 0
+								? TokenBroker.Token.NO_EXPIRATION : Long.parseLong(expiresIn);
+						authService.replaceToken(new TokenBroker.Token(accessToken,
+								refresh.length() == 0 ? null : refresh, expiry));
+					} catch (NumberFormatException e) {
+						e.printStackTrace();
+					}
 				}
 				if (m_clearCookiesCheckBox.isChecked()){
 					CookieSyncManager.createInstance(getApplicationContext());
@@ -0,0 +1,74 @@
+package com.att.ads.sample;
+
+import java.util.Locale;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import android.util.Log;
+
+import com.att.ads.util.EncryptDecrypt;
+
+/**
+ * Measures the throughput of {@link EncryptDecrypt}, for comparing the
+ * current encrypt/decrypt path of the Ads SDK with the per-call key
+ * derivation of earlier versions, which {@link AdsEncryptDecrypt} still
+ * uses. Run it from a debug build, e.g.
+ * <code>Log.i(TAG, EncryptDecryptBenchmark.run(1000));</code>, off the UI
+ * thread.
+ *
+ * @author ATT
+ */
+public final class EncryptDecryptBenchmark {
+
+	private static final String TAG = "API_ED";
+
+	private static final String VALUE = "9b1f8c4d2e7a4f0c8e3b5d6a1c2f3e4d";
+
+	private EncryptDecryptBenchmark() {
+	}
+
+	/**
+	 * Runs each case the given number of times.
+	 *
+	 * @param iterations
+	 *            number of values encrypted and decrypted per case
+	 * @return one line per case with the operations per second
+	 * @throws Exception
+	 *             if the platform lacks the ciphers used
+	 */
+	public static String run(int iterations) throws Exception {
+		StringBuilder report = new StringBuilder();
+
+		// earlier versions: a SHA1PRNG key and a new Cipher for every value
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			SecretKeySpec key = AdsEncryptDecrypt.getSecretKeySpec("benchmark");
+			AdsEncryptDecrypt.getDecryptedValue(
+					AdsEncryptDecrypt.getEncryptedValue(VALUE, key), key);
+		}
+		append(report, "derive key per value", iterations, System.nanoTime() - start);
+
+		// values stored by earlier versions, read with the cached key
+		String legacy = EncryptDecrypt.getEncryptedValue(VALUE,
+				EncryptDecrypt.getSecretKeySpec("benchmark"));
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			EncryptDecrypt.decrypt(legacy, "benchmark");
+		}
+		append(report, "decrypt legacy value", iterations, System.nanoTime() - start);
+
+		start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			EncryptDecrypt.decrypt(EncryptDecrypt.encrypt(VALUE, "benchmark"), "benchmark");
+		}
+		append(report, "encrypt and decrypt", iterations, System.nanoTime() - start);
+
+		Log.d(TAG, report.toString());
+		return report.toString();
+	}
+
+	private static void append(StringBuilder report, String name, int iterations, long nanos) {
+		report.append(String.format(Locale.US, "%s: %d in %.1f ms, %.0f ops/s%n", name,
+				iterations, nanos / 1e6, iterations * 1e9 / Math.max(nanos, 1)));
+	}
+}
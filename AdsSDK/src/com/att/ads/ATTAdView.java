@@ -1,37 +1,43 @@
 package com.att.ads;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ScheduledFuture;
 
 import org.json.JSONException;
-import org.json.JSONObject;
 
-import android.annotation.SuppressLint;
 import android.app.Dialog;
 import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.pm.PackageManager.NameNotFoundException;
+import android.graphics.Bitmap;
 import android.net.Uri;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 import android.widget.Button;
+import android.widget.FrameLayout;
 import android.widget.RelativeLayout;
 
 import com.att.ads.controllers.NetworkController;
+import com.att.ads.controllers.RefreshPolicy;
 import com.att.ads.listeners.ATTAdViewListener;
+import com.att.ads.model.AdServiceResponse;
 import com.att.ads.model.AdServiceRequest;
+import com.att.ads.util.AdExecutors;
+import com.att.ads.util.AdImageCache;
 import com.att.ads.util.EncryptDecrypt;
+import com.att.ads.util.HttpClientFactory;
 import com.att.ads.util.Preferences;
 import com.att.ads.util.Utils;
 
 /**
- * <p>Use the ATTAdView class to embed advertisement content in your application.  It is extending & customizing 
- * a standard web view control. To do so, you simply create an instance of the ATTAdView object and add it to 
+ * <p>Use the ATTAdView class to embed advertisement content in your application.  It is a container view: 
+ * text and image ads are shown with native views, and a web view is borrowed only for third party ads, whose 
+ * content is HTML. To do so, you simply create an instance of the ATTAdView object and add it to 
  * a layout. The application key and secret must be configured. An instance of ATTAdView is the means for 
  * displaying advertisements from the ad publisher's site.
  *  
@@ -84,24 +90,37 @@ import com.att.ads.util.Utils;
  * @author ATT
  *
  */
-@SuppressLint("SetJavaScriptEnabled")
-public class ATTAdView extends WebView {
+public class ATTAdView extends FrameLayout {
 
 	private static final String TAG = "ATTAdView";
 	private AdServiceRequest adSvcReq = null;
 	private AdLog adLog = new AdLog(this);
 	private Preferences pref = null;
-	protected RefreshTask refreshTask;
-	private Timer refreshTimer;
+	// the scheduled refresh and prefetch of this view; guarded by timerLock
+	private ScheduledFuture<?> refreshTask;
+	private ScheduledFuture<?> prefetchTask;
+	private final Object timerLock = new Object();
+	private final AdPrefetcher prefetcher = new AdPrefetcher();
 	private boolean isProd;
 	public boolean isManualCall;
-	private String htmlAdSvcResponse;
+	// the ad shown, whose page is built when it is opened full screen
+	private volatile AdServiceResponse shownResponse;
 	private String udid;
 	private ATTAdViewListener adViewListener;
 	protected Handler handler = new Handler();
 	private NetworkController networkController = null;
+	private RefreshPolicy refreshPolicy = null;
+	// when the current ad was shown, by SystemClock.elapsedRealtime; 0 before the first ad
+	private volatile long lastLoadTime = 0;
 	private int adReloadPeriod = 0;
 	private boolean showFullScreenAd = false;
+	private NativeAdRenderer nativeRenderer = null;
+	private MyWebViewClient webViewClient = null;
+	// shows a third party ad; borrowed from WebViewPool while such an ad is shown
+	private WebView adWebView = null;
+	// whether web views are kept ready in WebViewPool for this view's full screen ad
+	private boolean isPoolRegistered = false;
+	private boolean isAttached = false;
 	private String userAgent ;
 
 	/**
@@ -124,6 +143,7 @@ public class ATTAdView extends WebView {
 		
 		String getPrefAppKey = "";
 		String getPrefSecret = "";
+		boolean isStored = false;
 		setId(1);
 		adSvcReq = new AdServiceRequest(adLog);
 		pref = new Preferences(context);
@@ -133,44 +153,44 @@ public class ATTAdView extends WebView {
 		
 		try {
 			if (null != appKeyEnc && null != secretEnc){
-				getPrefAppKey = EncryptDecrypt.getDecryptedValue(appKeyEnc,
-						EncryptDecrypt.getSecretKeySpec("app_key"));
-				getPrefSecret = EncryptDecrypt.getDecryptedValue(secretEnc, 
-						EncryptDecrypt.getSecretKeySpec("app_secret"));
+				getPrefAppKey = EncryptDecrypt.decrypt(appKeyEnc, "app_key");
+				getPrefSecret = EncryptDecrypt.decrypt(secretEnc, "app_secret");
 				if(false == (getPrefAppKey.equals(appKey) && (getPrefSecret.equals(secret))))
 					clearCache();
+				else
+					// rewritten once in the current format, then left as is
+					isStored = !EncryptDecrypt.isLegacyValue(appKeyEnc)
+							&& !EncryptDecrypt.isLegacyValue(secretEnc);
 			}
 		} catch (Exception e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
 		}
 		
-		userAgent = getSettings().getUserAgentString();
+		userAgent = WebViewPool.getDefaultUserAgent(context);
 		setUserAgent(userAgent);
-		setAppKey(appKey);
-		setSecret(secret);
+		if (!isStored) {
+			setAppKey(appKey);
+			setSecret(secret);
+		}
+		AuthService.setCredentials(appKey, secret);
 		this.udid = udid;
 		setCategory(category);
-		this.setWebViewClient(new MyWebViewClient());
+		webViewClient = new MyWebViewClient();
+		nativeRenderer = new NativeAdRenderer(this);
 		networkController = new NetworkController(this, context);
+		refreshPolicy = new RefreshPolicy(this, context);
 	}
 	
 	private class MyWebViewClient extends WebViewClient {
 	    @Override
 	    public boolean shouldOverrideUrlLoading(WebView view, String url) {
     	Log.i(TAG, "shouldOverrideUrlLoading() in the MyWebViewClient - view.getHeight()"+view.getHeight());
-	    	if(showFullScreenAd) {	    		
-	    		//It is a smaller preview, so need to open bigger preview on tap.
-	    		openFullScreenAd(view);
-	    	} else {
-		        // Already its a bigger preview, so launch Activity that handles URLs
-		        Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
-		        view.getContext().startActivity(intent);
-	    	}
+	    	onAdClick(url);
 	        return true;
 	    }
 	    
-		private void openFullScreenAd(WebView view) {
+		private void openFullScreenAd(View view) {
 			
 			//ImageButton closeButton = null;
 			Button closeButton = null;
@@ -187,12 +207,12 @@ public class ATTAdView extends WebView {
 					ViewGroup.LayoutParams.FILL_PARENT, ViewGroup.LayoutParams.FILL_PARENT);
 			adLayoutParams.addRule(RelativeLayout.CENTER_HORIZONTAL, RelativeLayout.TRUE);
 			adLayoutParams.addRule(RelativeLayout.CENTER_VERTICAL, RelativeLayout.TRUE);
-			final WebView tempView = new WebView(view.getContext());
+			// a web view kept ready by the pool, with JavaScript enabled
+			final WebView tempView = WebViewPool.obtain(view.getContext());
 			tempView.setLayoutParams(adLayoutParams);
 			//XSS stands for cross-site scripting which is a form of hacking and by enabling JavaScript in your WebView you are opening up your application to such attacks.
 			//If you are sure that cross-site scripting is not possible (e.g. your webview generates its own content via an internal resource and does not actually access pages on the WWW then simply suppress the warning by adding the Android annotation SuppressLint above the activity declaration, @SuppressLint("SetJavaScriptEnabled")
 			//Since the webview content is generated internally by adservice provider enabling the javascript.
-			tempView.getSettings().setJavaScriptEnabled(true);
 			tempView.setWebViewClient(new WebViewClient() {
 			    public boolean shouldOverrideUrlLoading(WebView view, String url) {
 			        Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
@@ -201,13 +221,21 @@ public class ATTAdView extends WebView {
 			    }
 			});
 			
-			handler.post(new Runnable() {
+			final AdServiceResponse response = shownResponse;
+			AdExecutors.execute(new Runnable() {
 				@Override
 				public void run() {
-					tempView.loadDataWithBaseURL(null, htmlAdSvcResponse, "text/html",
-							"UTF-8", null);
+					// the page of an image ad reads the cached image
+					final String html = null != response ? toHTML(response) : null;
+					handler.post(new Runnable() {
+						@Override
+						public void run() {
+							tempView.loadDataWithBaseURL(null, html, "text/html",
+									"UTF-8", null);
+						}
+					});
 				}
-			});			
+			});
 
 			mainLayout.addView(tempView);
 			
@@ -246,6 +274,7 @@ public class ATTAdView extends WebView {
 				@Override
 				public void onDismiss(DialogInterface dialog) {
 					mainLayout.removeAllViews();
+					WebViewPool.recycle(tempView);
 				}
 			});		
 
@@ -253,12 +282,39 @@ public class ATTAdView extends WebView {
 		}
 	}
 
+	/*
+	 * Opens the ad's click URL, or the full screen ad if it is enabled. Called
+	 * for a click on the web content or on the native ad.
+	 */
+	void onAdClick(String url) {
+		AdEventTracker.getInstance(getContext()).record(AdEventTracker.EVENT_CLICK,
+				getCategory(), url);
+		if(showFullScreenAd) {
+			//It is a smaller preview, so need to open bigger preview on tap.
+			webViewClient.openFullScreenAd(this);
+		} else {
+			// Already its a bigger preview, so launch Activity that handles URLs
+			Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(url));
+			getContext().startActivity(intent);
+		}
+	}
+
+	// Keeps a web view ready for the full screen ad while it is enabled and the view is attached.
+	private void updatePoolRegistration() {
+		boolean register = isAttached && showFullScreenAd;
+		if (register && !isPoolRegistered) {
+			WebViewPool.register(getContext());
+		} else if (!register && isPoolRegistered) {
+			WebViewPool.unregister(getContext());
+		}
+		isPoolRegistered = register;
+	}
+
 	private void setAppKey(String appKey) {
 		try {
 			pref.setString(
 					"app_key",
-					EncryptDecrypt.getEncryptedValue(appKey,
-							EncryptDecrypt.getSecretKeySpec("app_key")));
+					EncryptDecrypt.encrypt(appKey, "app_key"));
 		} catch (Exception e) {
 			e.printStackTrace();			
 		}
@@ -268,8 +324,7 @@ public class ATTAdView extends WebView {
 		try {
 			pref.setString(
 					"app_secret",
-					EncryptDecrypt.getEncryptedValue(secret,
-							EncryptDecrypt.getSecretKeySpec("app_secret")));
+					EncryptDecrypt.encrypt(secret, "app_secret"));
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -277,10 +332,14 @@ public class ATTAdView extends WebView {
 	}
 
 	protected void clearCache(){
+		AuthService.invalidateToken();
 		try{
-			pref.setString("access_token", "");
-			pref.setString("refresh_token", "");
-			pref.setString("expires_in", "-1");
+			pref.edit()
+				.putString("access_token", "")
+				.putString("refresh_token", "")
+				.putString("expires_in", "-1")
+				.apply();
+			pref.flush();
 		}catch(Exception e){
 			Log.e(TAG, e.toString());
 			e.printStackTrace();
@@ -292,7 +351,37 @@ public class ATTAdView extends WebView {
 	protected void onAttachedToWindow() {		
 		super.onAttachedToWindow();
 		//startTimer(getContext());
+		// open the connection the first ad request will use while the view is laid out
+		HttpClientFactory.prewarm(Constants.ADS_URL);
 		networkController.startNetworkListener();
+		refreshPolicy.startListening();
+		isAttached = true;
+		updatePoolRegistration();
+	}
+
+	@Override
+	protected void onWindowVisibilityChanged(int visibility) {
+		super.onWindowVisibilityChanged(visibility);
+		onShownChanged();
+	}
+
+	@Override
+	protected void onVisibilityChanged(View changedView, int visibility) {
+		super.onVisibilityChanged(changedView, visibility);
+		onShownChanged();
+	}
+
+	// Pauses the refresh while the view is hidden, and resumes it when shown.
+	private void onShownChanged() {
+		if (null == refreshPolicy) {
+			// called while the view is constructed
+			return;
+		}
+		if (isShown()) {
+			resumeTimer();
+		} else {
+			stopTimer(true);
+		}
 	}
 
 	/**
@@ -302,34 +391,61 @@ public class ATTAdView extends WebView {
 	 *            - The reference to the context of Activity.
 	 */
 	public void startTimer(Context context) {
-		try {
-			if (refreshTimer == null) {
-				refreshTimer = new Timer();
-			}
+		scheduleRefresh(context, 0);
+	}
 
-			if (refreshTask != null) {
-				refreshTask.cancel();
-				refreshTask = null;
+	/**
+	 * Starts the timer again after a pause, counting the time the current ad
+	 * was shown before the pause. Does nothing before the first ad is shown, if
+	 * the refresh is already scheduled, or if the network is not available.
+	 */
+	public void resumeTimer() {
+		long shownSince = lastLoadTime;
+		if (0 == shownSince || isManualCall || !networkController.isOnline()) {
+			return;
+		}
+		synchronized (timerLock) {
+			if (null != refreshTask) {
+				return;
 			}
+			scheduleRefresh(getContext(), SystemClock.elapsedRealtime() - shownSince);
+		}
+	}
 
-			if(isShown()) {
-				RefreshTask newRefreshTask = new RefreshTask(context, this);
-				
-				long reloadPeriodInMS = Constants.AD_RELOAD_PERIOD;
+	private void scheduleRefresh(Context context, long elapsedInMS) {
+		synchronized (timerLock) {
+			try {
+				cancelTasks();
 
-				if(adReloadPeriod>0){
-					//adReloadPeriod is in seconds and reloadPeriodInMS is in milliseconds 
-					reloadPeriodInMS = adReloadPeriod*1000; 
+				if(isShown()) {
+					RefreshTask newRefreshTask = new RefreshTask(context, this);
+				
+					long reloadPeriodInMS = Constants.AD_RELOAD_PERIOD;
+
+					if(adReloadPeriod>0){
+						//adReloadPeriod is in seconds and reloadPeriodInMS is in milliseconds 
+						reloadPeriodInMS = adReloadPeriod*1000; 
+					}
+					// stretched by the network, battery and failed loads, or paused
+					reloadPeriodInMS = refreshPolicy.getRefreshDelay(reloadPeriodInMS);
+					if (reloadPeriodInMS < 0) {
+						adLog.log(AdLog.LOG_LEVEL_3, AdLog.LOG_TYPE_INFO, "StartTimer",
+								"refresh paused");
+						return;
+					}
+					reloadPeriodInMS = Math.max(0, reloadPeriodInMS - elapsedInMS);
+					refreshTask = AdExecutors.schedule(newRefreshTask, reloadPeriodInMS);
+					// fetch the next ad ahead of the refresh, so the refresh only swaps it in
+					prefetchTask = AdExecutors.schedule(new PrefetchTask(context),
+							Math.max(0, reloadPeriodInMS - Constants.AD_PREFETCH_LEAD));
+					adLog.log(AdLog.LOG_LEVEL_3, AdLog.LOG_TYPE_ERROR, "StartTimer",
+							"timer started");
 				}
-				refreshTimer.schedule(newRefreshTask, reloadPeriodInMS);
-				refreshTask = newRefreshTask;
-				adLog.log(AdLog.LOG_LEVEL_3, AdLog.LOG_TYPE_ERROR, "StartTimer",
-						"timer started");
-			}
 
-		} catch (Exception e) {
-			adLog.log(AdLog.LOG_LEVEL_1, AdLog.LOG_TYPE_ERROR, "StartTimer",
-					e.getMessage());
+			} catch (Exception e) {
+				adLog.log(AdLog.LOG_LEVEL_1, AdLog.LOG_TYPE_ERROR, "StartTimer",
+						e.getMessage());
+			}
 		}
 
 	}
@@ -339,6 +455,9 @@ public class ATTAdView extends WebView {
 		super.onDetachedFromWindow();
 		stopTimer(true);
 		networkController.stopNetworkListener();
+		refreshPolicy.stopListening();
+		isAttached = false;
+		updatePoolRegistration();
 	}
 
 	/**
@@ -346,26 +465,36 @@ public class ATTAdView extends WebView {
 	 * network is not available.
 	 * 
 	 * @param remove
-	 *            - tells to nullify the timer.
+	 *            - kept for compatibility; the view has no timer thread of
+	 *            its own to release.
 	 */
 	// stopTimer will be invoked at network not available and app goes to next
 	// page...
 	public void stopTimer(boolean remove) {
-		if (refreshTimer != null) {
-			try {
-				refreshTimer.cancel();
-				if (remove) {
-					refreshTimer = null;
-				}
+		synchronized (timerLock) {
+			if (cancelTasks()) {
 				adLog.log(AdLog.LOG_LEVEL_3, AdLog.LOG_TYPE_INFO, "stopTimer",
 						"timer stopped");
-			} catch (Exception e) {
-				adLog.log(AdLog.LOG_LEVEL_1, AdLog.LOG_TYPE_ERROR, "stopTimer",
-						e.getMessage());
 			}
 		}
 	}
 
+	// Cancels the scheduled refresh and prefetch; returns whether there were any.
+	private boolean cancelTasks() {
+		boolean wasScheduled = false;
+		if (refreshTask != null) {
+			refreshTask.cancel(false);
+			refreshTask = null;
+			wasScheduled = true;
+		}
+		if (prefetchTask != null) {
+			prefetchTask.cancel(false);
+			prefetchTask = null;
+			wasScheduled = true;
+		}
+		return wasScheduled;
+	}
+
 	/**
 	 * Immediately initialize or refresh the process of ad view content.
 	 */
@@ -380,6 +509,7 @@ public class ATTAdView extends WebView {
 	public void stopRefresh() {
 		stopTimer(true);
 		networkController.stopNetworkListener();		
+		refreshPolicy.stopListening();
 	}
 	
 	/**
@@ -387,128 +517,237 @@ public class ATTAdView extends WebView {
 	 */
 	public void startRefresh() {
 		networkController.startNetworkListener();		
+		refreshPolicy.startListening();
 	}
 	
 
-	private class RefreshTask extends TimerTask {
+	private class RefreshTask implements Runnable {
 		private Context context;
-		private WebView view;
+		private View view;
 
-		public RefreshTask(Context context, WebView view) {
+		public RefreshTask(Context context, View view) {
 			this.context = context;
 			this.view = view;
 		}
 
 		@Override
 		public void run() {
+			if (!view.isShown() || !refreshPolicy.isScreenOn()) {
+				// resumed by onShownChanged or the screen receiver
+				stopTimer(true);
+				return;
+			}
 			StartLoadData(context, (ATTAdView) view);
 		}
 	}
 
+	private class PrefetchTask implements Runnable {
+		private Context context;
+
+		public PrefetchTask(Context context) {
+			this.context = context;
+		}
+
+		@Override
+		public void run() {
+			DataManager.getInstance(context).startPrefetch(ATTAdView.this,
+					adSvcReq.createURL());
+		}
+	}
+
 	private void StartLoadData(Context context, ATTAdView attAdView) {
 		stopTimer(true);
-		DataManager.getInstance(context).startLoadData(this,
-				adSvcReq.createURL());
+		String url = adSvcReq.createURL();
+		final AdServiceResponse readyAd = prefetcher.take(url);
+		if (null != readyAd) {
+			adLog.log(AdLog.LOG_LEVEL_3, AdLog.LOG_TYPE_INFO, "StartLoadData",
+					"showing prefetched ad");
+			isManualCall = false;
+			// the image of the ad may be read from the disk
+			AdExecutors.execute(new Runnable() {
+				@Override
+				public void run() {
+					setResult(readyAd, null);
+				}
+			});
+			if (isShown()) {
+				startTimer(context);
+			}
+			return;
+		}
+		// a recent ad is shown at once while the first ad loads
+		DataManager.getInstance(context).startLoadData(this, url, 0 == lastLoadTime);
 	}
 
-	protected void setResult(String data, ATTAdViewError error) {
+	AdPrefetcher getPrefetcher() {
+		return prefetcher;
+	}
+
+	/**
+	 * Shows the ad of a parsed response, or reports the error. Reads the
+	 * image cache, so it must not be called on the UI thread.
+	 * 
+	 * @param response
+	 * @param error
+	 */
+	protected void setResult(AdServiceResponse response, ATTAdViewError error) {
 		
 		if (null != error) {
 			sendErrorEvent(error);			
 			return;
 		}
 		
-		processLoadData(data);
+		processLoadData(response);
 	}
 
-	private void processLoadData(String data) {
-
-		String type = null;
-		String clickUrl = null;
-		String imageUrl = null;
-		String text = null;
-		String content = null;
-		String formattedJSONRes = null;
-		
+	/**
+	 * Shows the ad of a response body, or reports the error. Reads the image
+	 * cache, so it must not be called on the UI thread.
+	 * 
+	 * @param data
+	 *            the JSON body of the ad service response
+	 * @param error
+	 * @deprecated the SDK passes the parsed response to
+	 *             {@link #setResult(AdServiceResponse, ATTAdViewError)}
+	 */
+	@Deprecated
+	protected void setResult(String data, ATTAdViewError error) {
+		if (null != error) {
+			setResult((AdServiceResponse) null, error);
+			return;
+		}
+		if (null == data || data.length() == 0) {
+			sendErrorEvent(
+					new ATTAdViewError(
+							ATTAdViewError.ERROR_ADSERVER_ERROR, 
+							Constants.STR_EMPTY_SERVER_RESPONSE));
+			return;
+		}
 		try {
-			JSONObject adsResponseObj = (JSONObject) new org.json.JSONTokener(
-					data).nextValue();			
-			JSONObject adResponseObj = adsResponseObj.getJSONObject(
-					"AdsResponse").getJSONObject("Ads");
-
-			formattedJSONRes = Utils.formattJSON(data);
-			if (null == adResponseObj) {
-				sendErrorEvent(
-						new ATTAdViewError(
-								ATTAdViewError.ERROR_ADSERVER_ERROR, 
-								Constants.STR_EMPTY_SERVER_RESPONSE));
-				return;
-			}
-
-			type = adResponseObj.getString("Type");
-			clickUrl = adResponseObj.getString("ClickUrl");
-			
-			if(null == type){
-				sendErrorEvent(
-						new ATTAdViewError(
-								ATTAdViewError.ERROR_ADSERVER_ERROR, 
-								formattedJSONRes));
-				return;
-			}
-			
-			if (type.equals(Constants.ADS_THIRDPARTY_TYPE)) {
-				content = adResponseObj.getString("Content");	
-			} else if (type.equals(Constants.ADS_IMAGE_TYPE)) {
-				imageUrl = adResponseObj.getJSONObject("ImageUrl").getString(
-						"Image");
-			} else if (type.equals(Constants.ADS_TEXT_TYPE)) {
-				text = adResponseObj.getString("Text");
-			} else {
-				//Type undefined
-				content = adResponseObj.getString("Content");
-			}
+			setResult(AdServiceResponse.parse(data), null);
 		} catch (JSONException e) {
-			Log.e(TAG, "Exception in JSON parsing:" + e.toString(), e);
 			sendErrorEvent(
 					new ATTAdViewError(
 							ATTAdViewError.ERROR_ADSERVER_ERROR, 
-							formattedJSONRes, e));
-			return;
+							Utils.formattJSON(data), e));
+		}
+	}
+
+	private void processLoadData(AdServiceResponse response) {
+
+		String type = response.getType();
+		String clickUrl = response.getClickUrl();
+		String text = response.getText();
+		String content = response.getContent();
+
+		Bitmap image = null;
+		String html = null;
+		try {
+			if (type.equals(Constants.ADS_THIRDPARTY_TYPE)) {
+				if(null != content && content.length() != 0) {
+					html = Utils.toHTML(content);
+				}else {
+					//error handling
+					sendErrorEvent(
+							new ATTAdViewError(
+									ATTAdViewError.ERROR_ADSERVER_ERROR, 
+									Utils.formattJSON(response.getRawResponse())));
+					return;
+				}
+			} else {
+				if (type.equals(Constants.ADS_IMAGE_TYPE)) {
+					image = AdImageCache.getInstance(getContext()).prefetch(
+							response.getImageUrl().getImage());
+				}
+				// the page is only needed if the ad cannot be shown natively
+				if (!NativeAdRenderer.canShow(type, image, text)) {
+					html = toHTML(response);
+				}
+			}
 		} catch (Exception e) {
 			Log.e(TAG, "ads Service Exception:" + e.toString(), e);
 			sendErrorEvent(
 					new ATTAdViewError(
 							ATTAdViewError.ERROR_ADSERVER_ERROR, 
-							formattedJSONRes, e));
+							Utils.formattJSON(response.getRawResponse()), e));
 			return;
-		} 
-		
-		if (type.equals(Constants.ADS_THIRDPARTY_TYPE)) {
-			if(null != content && content.length() != 0) {
-				htmlAdSvcResponse = Utils.toHTML(content);
-			}else {
-				//error handling
-				sendErrorEvent(
-						new ATTAdViewError(
-								ATTAdViewError.ERROR_ADSERVER_ERROR, 
-								formattedJSONRes));
-				return;
-			}
-		} else {
-			htmlAdSvcResponse = Utils.toHTML(type, clickUrl, imageUrl, text);
 		}
 
+		final String adType = type;
+		final String adClickUrl = clickUrl;
+		final Bitmap adImage = image;
+		final String adText = text;
+		final String adHtml = html;
+		shownResponse = response;
 		handler.post(new Runnable() {
 			@Override
 			public void run() {
-				loadDataWithBaseURL(null, htmlAdSvcResponse, "text/html",
-						"UTF-8", null);
+				// text and image ads are shown natively, third party ads as a page
+				if (nativeRenderer.show(adType, adClickUrl, adImage, adText)) {
+					releaseWebView();
+				} else {
+					nativeRenderer.hide();
+					showPage(adHtml);
+				}
 			}
 		});
-		sendSuccessEvent(formattedJSONRes);
+		AdEventTracker.getInstance(getContext()).record(AdEventTracker.EVENT_IMPRESSION,
+				getCategory(), type);
+		// the raw JSON is only formatted for a listener to receive it
+		sendSuccessEvent(null != adViewListener ? Utils.formattJSON(response.getRawResponse()) : null);
+	}
+
+	/*
+	 * Shows the page of a third party ad, in a web view borrowed from
+	 * WebViewPool when the previous ad was shown natively. Called on the UI
+	 * thread.
+	 */
+	private void showPage(String html) {
+		if (null == adWebView) {
+			adWebView = WebViewPool.obtain(getContext());
+			// the page runs without JavaScript, as in earlier versions
+			adWebView.getSettings().setJavaScriptEnabled(false);
+			adWebView.setWebViewClient(webViewClient);
+			addView(adWebView, new FrameLayout.LayoutParams(
+					ViewGroup.LayoutParams.FILL_PARENT, ViewGroup.LayoutParams.FILL_PARENT));
+		}
+		adWebView.loadDataWithBaseURL(null, html, "text/html", "UTF-8", null);
+	}
+
+	// Gives the web view back to the pool once a native ad replaces the page.
+	private void releaseWebView() {
+		if (null != adWebView) {
+			WebViewPool.recycle(adWebView);
+			adWebView = null;
+		}
+	}
+
+	/*
+	 * Builds the page of the ad. The image of an image ad is a data URI from
+	 * the image cache, so the web view shows it without a request, or the
+	 * URL itself if it is not cached. Reads the cached image, so it must not
+	 * be called on the UI thread.
+	 */
+	private String toHTML(AdServiceResponse response) {
+		String type = response.getType();
+		if (type.equals(Constants.ADS_THIRDPARTY_TYPE)) {
+			return Utils.toHTML(response.getContent());
+		}
+		String imageUrl = null;
+		if (type.equals(Constants.ADS_IMAGE_TYPE)) {
+			imageUrl = response.getImageUrl().getImage();
+			String dataUri = AdImageCache.getInstance(getContext()).getDataUri(imageUrl);
+			if (null != dataUri) {
+				imageUrl = dataUri;
+			}
+		}
+		return Utils.toHTML(type, response.getClickUrl(), imageUrl, response.getText());
 	}
 
 	public void sendErrorEvent(final ATTAdViewError error) {
+		refreshPolicy.onFailure();
+		AdEventTracker.getInstance(getContext()).record(AdEventTracker.EVENT_ERROR,
+				getCategory(), error.getMessage());
 		handler.post(new Runnable() {
 			@Override
 			public void run() {
@@ -520,6 +759,8 @@ public class ATTAdView extends WebView {
 	}
 
 	public void sendSuccessEvent(final String adViewResponse) {
+		refreshPolicy.onSuccess();
+		lastLoadTime = SystemClock.elapsedRealtime();
 		handler.post(new Runnable() {
 			@Override
 			public void run() {
@@ -935,6 +1176,19 @@ public class ATTAdView extends WebView {
 		this.userAgent = userAgent;
 	}
 	
+	/**
+	 * Optional. Sets the URL the SDK posts its impression, click and error
+	 * events to, in gzip compressed JSON batches. Until it is set, no events
+	 * are recorded. Events waiting for an upload are kept on the device, the
+	 * oldest being dropped when the buffer is full.
+	 * 
+	 * @param url
+	 *            the URL, or null to stop recording and uploading
+	 */
+	public void setEventUploadUrl(String url) {
+		AdEventTracker.getInstance(getContext()).setUploadUrl(url);
+	}
+
 	/*
 	 * Optional. Display the Ad in Full Screen after clicking the Ad. Default is false.
 	 * @param showFullScreenAd
@@ -942,5 +1196,6 @@ public class ATTAdView extends WebView {
 	 */
 	public void showInterstialViewOnBannerAdClick(boolean showFullScreenAd) {
 		this.showFullScreenAd = showFullScreenAd;
+		updatePoolRegistration();
 	}
 }
@@ -0,0 +1,257 @@
+package com.att.ads;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.att.ads.util.AdExecutors;
+import com.att.ads.util.EventRingBuffer;
+import com.att.ads.util.HttpClientFactory;
+
+/**
+ * Records ad impressions, clicks and errors, and uploads them in batches.
+ * <p>
+ * Events are written to an {@link EventRingBuffer} in the files directory, so
+ * they survive the process; when it is full the oldest events are dropped.
+ * They are uploaded only after the SDK has made an ad request, when the radio
+ * is already awake, as gzip compressed JSON, {@link #BATCH_SIZE} at a time.
+ * Uploaded events are removed only when the server accepts them, so an event
+ * may be sent twice but is not lost; a failed upload is retried after a wait
+ * that doubles with each failure. Until an upload URL is set with
+ * {@link #setUploadUrl(String)}, events are not recorded, so apps that do not
+ * collect them pay no disk writes.
+ * 
+ * @author ATT
+ */
+class AdEventTracker {
+	private static final String TAG = "AdEventTracker";
+	private static AdEventTracker instance;
+
+	static final String EVENT_IMPRESSION = "impression";
+	static final String EVENT_CLICK = "click";
+	static final String EVENT_ERROR = "error";
+
+	// events kept on disk
+	private static final int CAPACITY = 500;
+	// events sent per request
+	static final int BATCH_SIZE = 50;
+	// least wait between uploads unless a full batch is ready, in milliseconds
+	private static final long MIN_UPLOAD_INTERVAL = 5 * 60 * 1000;
+	// wait after the first failed upload; doubled for each further failure
+	private static final long MIN_BACKOFF = 60 * 1000;
+	private static final long MAX_BACKOFF = 6 * 60 * 60 * 1000;
+	// longest text kept in an event, so that it fits a slot of the buffer
+	private static final int MAX_TEXT_LENGTH = 150;
+
+	private final EventRingBuffer buffer;
+	private volatile String uploadUrl = null;
+
+	// guarded by this
+	private boolean isUploading = false;
+	private long nextUploadAt = 0;
+	private long backoff = 0;
+
+	/**
+	 * Returns the event tracker of the application.
+	 * @param context
+	 * @return AdEventTracker
+	 */
+	static synchronized AdEventTracker getInstance(Context context) {
+		if (instance == null)
+			instance = new AdEventTracker(new File(context.getFilesDir(), "att_ads_events"));
+
+		return instance;
+	}
+
+	private AdEventTracker(File file) {
+		buffer = new EventRingBuffer(file, CAPACITY);
+	}
+
+	/**
+	 * Sets the URL the events are posted to.
+	 * @param url
+	 *            the URL, or null to stop recording; events already recorded
+	 *            stay on the device until a URL is set again
+	 */
+	void setUploadUrl(String url) {
+		uploadUrl = url;
+	}
+
+	/**
+	 * Records an event, if an upload URL is set. Returns at once; the event
+	 * is written by a worker.
+	 * 
+	 * @param event
+	 *            one of the EVENT_ constants
+	 * @param category
+	 *            category of the ad view
+	 * @param detail
+	 *            the ad type, click URL or error message
+	 */
+	void record(String event, String category, String detail) {
+		if (null == uploadUrl) {
+			return;
+		}
+		final JSONObject json = new JSONObject();
+		try {
+			json.put("event", event);
+			json.put("time", System.currentTimeMillis());
+			json.put("category", shorten(category));
+			json.put("detail", shorten(detail));
+		} catch (JSONException e) {
+			Log.e(TAG, "Unable to record event: " + e.getMessage());
+			return;
+		}
+		AdExecutors.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					String event = json.toString();
+					if (event.getBytes("UTF-8").length > EventRingBuffer.SLOT_SIZE - 2) {
+						// long non-ASCII text; a cut event would not be valid JSON
+						json.remove("detail");
+						event = json.toString();
+					}
+					buffer.add(event);
+				} catch (IOException e) {
+					Log.e(TAG, "Unable to record event: " + e.getMessage());
+				}
+			}
+		});
+	}
+
+	/**
+	 * Tells the tracker that the SDK has just used the network, so an upload
+	 * costs no extra radio wake-up. Uploads on a worker if events are waiting
+	 * and no upload is due to wait.
+	 */
+	void onNetworkUsed() {
+		if (null == uploadUrl) {
+			return;
+		}
+		synchronized (this) {
+			if (isUploading || SystemClock.elapsedRealtime() < nextUploadAt) {
+				return;
+			}
+			isUploading = true;
+		}
+		AdExecutors.execute(new Runnable() {
+			@Override
+			public void run() {
+				boolean isDone = false;
+				try {
+					isDone = upload();
+				} finally {
+					synchronized (AdEventTracker.this) {
+						isUploading = false;
+						if (isDone) {
+							backoff = 0;
+						} else {
+							backoff = Math.min(MAX_BACKOFF, Math.max(MIN_BACKOFF, backoff * 2));
+							Log.i(TAG, "Event upload failed, retry in " + backoff + " ms");
+							nextUploadAt = SystemClock.elapsedRealtime() + backoff;
+						}
+					}
+				}
+			}
+		});
+	}
+
+	/*
+	 * Uploads the waiting events, a batch at a time; returns false if a batch
+	 * was not accepted.
+	 */
+	private boolean upload() {
+		String url = uploadUrl;
+		try {
+			EventRingBuffer.Batch batch = buffer.peek(BATCH_SIZE);
+			while (null != url && !batch.items.isEmpty()) {
+				if (!post(url, batch)) {
+					return false;
+				}
+				buffer.remove(batch);
+				if (batch.items.size() < BATCH_SIZE) {
+					break;
+				}
+				batch = buffer.peek(BATCH_SIZE);
+			}
+			synchronized (this) {
+				// a partial batch waits; a full one goes with the next request
+				nextUploadAt = buffer.size() >= BATCH_SIZE ? 0
+						: SystemClock.elapsedRealtime() + MIN_UPLOAD_INTERVAL;
+			}
+			return true;
+		} catch (IOException e) {
+			Log.e(TAG, "Unable to upload events: " + e.getMessage());
+			return false;
+		}
+	}
+
+	private boolean post(String url, EventRingBuffer.Batch batch) throws IOException {
+		StringBuilder body = new StringBuilder("[");
+		boolean isFirst = true;
+		for (String item : batch.items) {
+			try {
+				new JSONObject(item);
+			} catch (JSONException e) {
+				// a damaged slot; sending it would fail the batch every time
+				Log.e(TAG, "Dropping unreadable event");
+				continue;
+			}
+			if (!isFirst) {
+				body.append(',');
+			}
+			body.append(item);
+			isFirst = false;
+		}
+		body.append(']');
+
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+		try {
+			gzip.write(body.toString().getBytes("UTF-8"));
+		} finally {
+			gzip.close();
+		}
+
+		HttpPost post = new HttpPost(url);
+		post.addHeader("Content-Type", "application/json");
+		post.addHeader("Content-Encoding", "gzip");
+		post.addHeader(Constants.XARG, "ClientSdk=att.ads.android." + Constants.SDK_VERSION);
+		post.setEntity(new ByteArrayEntity(compressed.toByteArray()));
+		HttpEntity entity = null;
+		try {
+			HttpResponse response = HttpClientFactory.getThreadSafeClient().execute(post);
+			entity = response.getEntity();
+			int status = response.getStatusLine().getStatusCode();
+			Log.i(TAG, "Uploaded " + batch.items.size() + " events: " + status);
+			return status >= 200 && status < 300;
+		} catch (IOException e) {
+			post.abort();
+			throw e;
+		} finally {
+			if (null != entity) {
+				entity.consumeContent();
+			}
+		}
+	}
+
+	private static String shorten(String text) {
+		if (null == text || text.length() <= MAX_TEXT_LENGTH) {
+			return text;
+		}
+		return text.substring(0, MAX_TEXT_LENGTH);
+	}
+}
@@ -2,6 +2,8 @@ package com.att.ads;
 
 import android.util.Log;
 
+import com.att.ads.util.SdkLog;
+
 /**
  * Customized Logger to enable and disable the logger as user required.
  * And also a single place to control all the logging options.
@@ -73,6 +75,17 @@ public class AdLog {
 		setLogLevel(DefaultLevel);
 	}
 	
+	/**
+	 * Checks whether messages of the level are logged, so that a caller can
+	 * skip building a message that would be dropped.
+	 * @param Level Int logging level, from 1 (errors) to 3 (server traffic)
+	 * @return true if the message would be logged
+	 */
+	public boolean isLoggable(int Level)
+	{
+		return Level<=CurrentLogLevel;
+	}
+
 	/**
 	 * Log a message
 	 * @param Level Int logging level, from 0 (none) to 3 (errors, warnings and server traffic)
@@ -82,19 +95,17 @@ public class AdLog {
 	 */
 	public void log(int Level, int Type, String tag, String msg)
 	{		
+		if(Level>CurrentLogLevel)
+			return;
+
+		// the tag is built only for messages that are logged
 		String resultTag = "["+Integer.toHexString(adView.hashCode())+"]"+ tag;
-		
-		if(Level<=CurrentLogLevel)
+		switch(Type)
 		{
-			switch(Type)
-			{
-			case LOG_TYPE_ERROR: Log.e(resultTag, msg+' '); break;
-			case LOG_TYPE_WARNING: Log.w(resultTag, msg+' ');break;
-			default:
-				Log.i(resultTag, msg+' ');
-			}
-			
-			//logInternal(resultTag + msg);
+		case LOG_TYPE_ERROR: SdkLog.println(Log.ERROR, resultTag, msg); break;
+		case LOG_TYPE_WARNING: SdkLog.println(Log.WARN, resultTag, msg);break;
+		default:
+			SdkLog.println(Log.INFO, resultTag, msg);
 		}
 	}
 
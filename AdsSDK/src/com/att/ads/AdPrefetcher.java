@@ -0,0 +1,135 @@
+package com.att.ads;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import android.os.SystemClock;
+
+import com.att.ads.model.AdServiceResponse;
+import com.att.ads.util.SdkLog;
+
+/**
+ * Holds ad responses fetched ahead of the refresh of an {@link ATTAdView}, so
+ * that a refresh swaps in the next ad at once instead of waiting for the ad
+ * server. An ad is kept for the request URL it was fetched with, and is dropped
+ * when it expires or when the request parameters of the view change.
+ * 
+ * @author ATT
+ */
+class AdPrefetcher {
+	private static final String TAG = "AdPrefetcher";
+
+	// the most ads held ready for one view
+	static final int MAX_READY_ADS = 2;
+
+	private static class ReadyAd {
+		final String url;
+		final AdServiceResponse response;
+		final long expiresAt;
+
+		ReadyAd(String url, AdServiceResponse response, long expiresAt) {
+			this.url = url;
+			this.response = response;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private final LinkedList<ReadyAd> readyAds = new LinkedList<ReadyAd>();
+	private boolean isFetching = false;
+
+	/**
+	 * Returns whether another ad should be fetched for the URL, and if so
+	 * marks a fetch as started; {@link #finishFetch(String, AdServiceResponse)}
+	 * must follow.
+	 * 
+	 * @param url
+	 * @return true if the caller should fetch an ad
+	 */
+	synchronized boolean startFetch(String url) {
+		removeStale(url);
+		if (isFetching || readyAds.size() >= MAX_READY_ADS) {
+			return false;
+		}
+		isFetching = true;
+		return true;
+	}
+
+	/**
+	 * Ends a fetch started by {@link #startFetch(String)}, keeping the ad if
+	 * it is valid.
+	 * 
+	 * @param url
+	 * @param response
+	 *            the ad response, or null if the fetch failed
+	 */
+	synchronized void finishFetch(String url, AdServiceResponse response) {
+		isFetching = false;
+		if (null == response) {
+			return;
+		}
+		if (!isValid(response)) {
+			SdkLog.d(TAG, "Prefetched ad discarded: " + SdkLog.redact(response.getRawResponse()));
+			return;
+		}
+		readyAds.add(new ReadyAd(url, response,
+				SystemClock.elapsedRealtime() + Constants.AD_PREFETCH_EXPIRY));
+	}
+
+	/**
+	 * Takes the oldest ready ad for the URL.
+	 * 
+	 * @param url
+	 * @return the ad response, or null if no ad is ready
+	 */
+	synchronized AdServiceResponse take(String url) {
+		removeStale(url);
+		ReadyAd ad = readyAds.poll();
+		return null == ad ? null : ad.response;
+	}
+
+	synchronized void clear() {
+		readyAds.clear();
+	}
+
+	private void removeStale(String url) {
+		long now = SystemClock.elapsedRealtime();
+		for (Iterator<ReadyAd> it = readyAds.iterator(); it.hasNext();) {
+			ReadyAd ad = it.next();
+			if (ad.expiresAt <= now || !ad.url.equals(url)) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Gets the image URL of an image ad response.
+	 * 
+	 * @param response
+	 * @return the URL, or null if the response is not an image ad
+	 */
+	static String imageUrlOf(AdServiceResponse response) {
+		if (Constants.ADS_IMAGE_TYPE.equals(response.getType())
+				&& null != response.getImageUrl()) {
+			return response.getImageUrl().getImage();
+		}
+		return null;
+	}
+
+	/**
+	 * Checks that the response holds an ad the view can show.
+	 * 
+	 * @param response
+	 * @return true if the ad has a type and the content for it
+	 */
+	static boolean isValid(AdServiceResponse response) {
+		String value;
+		if (Constants.ADS_IMAGE_TYPE.equals(response.getType())) {
+			value = imageUrlOf(response);
+		} else if (Constants.ADS_TEXT_TYPE.equals(response.getType())) {
+			value = response.getText();
+		} else {
+			value = response.getContent();
+		}
+		return null != value && value.length() > 0;
+	}
+}
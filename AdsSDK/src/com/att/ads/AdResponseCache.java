@@ -0,0 +1,225 @@
+package com.att.ads;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.att.ads.model.AdServiceResponse;
+import com.att.ads.util.AdExecutors;
+import com.att.ads.util.Utils;
+
+/**
+ * Keeps the recent valid ad responses of each ad request on disk, so that an
+ * ad view can show an ad at once when it first appears, or when the network
+ * is not available, while a fresh ad is loaded.
+ * <p>
+ * Responses are kept per request URL, which holds the category and the
+ * targeting parameters of the view. A response is shown for at most
+ * {@link Constants#AD_CACHE_TTL} after it was received, and at most
+ * {@link #MAX_SHOWS} times. The responses of a URL are read from disk on
+ * first use; changes are written by the SDK workers.
+ * 
+ * @author ATT
+ */
+class AdResponseCache {
+	private static final String TAG = "AdResponseCache";
+	private static AdResponseCache instance;
+
+	// responses kept per request URL
+	static final int MAX_ENTRIES = 3;
+	// times a cached response may be shown
+	static final int MAX_SHOWS = 3;
+
+	private static class Entry {
+		final AdServiceResponse response;
+		final long storedAt;
+		int shows;
+
+		Entry(AdServiceResponse response, long storedAt, int shows) {
+			this.response = response;
+			this.storedAt = storedAt;
+			this.shows = shows;
+		}
+	}
+
+	private final File directory;
+	// guarded by this; the responses of each file name, newest first
+	private final HashMap<String, LinkedList<Entry>> entries = new HashMap<String, LinkedList<Entry>>();
+	// held while a file is written, so the last write has the latest entries
+	private final Object writeLock = new Object();
+
+	/**
+	 * Returns the response cache of the application.
+	 * @param context
+	 * @return AdResponseCache
+	 */
+	static synchronized AdResponseCache getInstance(Context context) {
+		if (instance == null)
+			instance = new AdResponseCache(new File(context.getCacheDir(), "att_ads_responses"));
+
+		return instance;
+	}
+
+	private AdResponseCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Keeps a response received for the URL, if it holds an ad.
+	 * 
+	 * @param url
+	 *            the request URL
+	 * @param response
+	 */
+	void put(String url, AdServiceResponse response) {
+		if (!AdPrefetcher.isValid(response)) {
+			return;
+		}
+		String name = Utils.md5(url);
+		synchronized (this) {
+			LinkedList<Entry> list = load(name);
+			list.addFirst(new Entry(response, System.currentTimeMillis(), 0));
+			while (list.size() > MAX_ENTRIES) {
+				list.removeLast();
+			}
+		}
+		save(name);
+	}
+
+	/**
+	 * Takes the newest response for the URL that is not expired and not shown
+	 * {@link #MAX_SHOWS} times, and counts it as shown.
+	 * 
+	 * @param url
+	 *            the request URL
+	 * @return the response, or null if there is none
+	 */
+	AdServiceResponse take(String url) {
+		String name = Utils.md5(url);
+		AdServiceResponse response = null;
+		boolean isChanged = false;
+		synchronized (this) {
+			LinkedList<Entry> list = load(name);
+			long now = System.currentTimeMillis();
+			for (Iterator<Entry> it = list.iterator(); it.hasNext();) {
+				Entry entry = it.next();
+				// stored in the future means the clock was changed
+				if (now < entry.storedAt || now - entry.storedAt >= Constants.AD_CACHE_TTL
+						|| entry.shows >= MAX_SHOWS) {
+					it.remove();
+					isChanged = true;
+				} else if (null == response) {
+					++entry.shows;
+					response = entry.response;
+					isChanged = true;
+				}
+			}
+		}
+		if (isChanged) {
+			save(name);
+		}
+		return response;
+	}
+
+	// guarded by this
+	private LinkedList<Entry> load(String name) {
+		LinkedList<Entry> list = entries.get(name);
+		if (null != list) {
+			return list;
+		}
+		list = new LinkedList<Entry>();
+		entries.put(name, list);
+		File file = new File(directory, name + ".json");
+		if (!file.exists()) {
+			return list;
+		}
+		try {
+			FileInputStream in = new FileInputStream(file);
+			byte[] data;
+			try {
+				data = new byte[(int) file.length()];
+				int offset = 0;
+				for (int n; offset < data.length
+						&& (n = in.read(data, offset, data.length - offset)) != -1;) {
+					offset += n;
+				}
+			} finally {
+				in.close();
+			}
+			JSONArray stored = new JSONObject(new String(data, "UTF-8")).getJSONArray("entries");
+			for (int i = 0; i < stored.length(); i++) {
+				JSONObject entry = stored.getJSONObject(i);
+				list.add(new Entry(AdServiceResponse.parse(entry.getString("response")),
+						entry.getLong("storedAt"), entry.getInt("shows")));
+			}
+		} catch (IOException e) {
+			Log.e(TAG, "Unable to read cached ads: " + e.getMessage());
+		} catch (JSONException e) {
+			Log.e(TAG, "Discarding unreadable cached ads: " + e.getMessage());
+			list.clear();
+		}
+		return list;
+	}
+
+	private void save(final String name) {
+		AdExecutors.execute(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (writeLock) {
+					write(name);
+				}
+			}
+		});
+	}
+
+	private void write(String name) {
+		File file = new File(directory, name + ".json");
+		File tempFile = new File(directory, name + ".tmp");
+		try {
+			JSONArray stored = new JSONArray();
+			synchronized (this) {
+				LinkedList<Entry> list = entries.get(name);
+				if (null == list || list.isEmpty()) {
+					file.delete();
+					return;
+				}
+				for (Entry entry : list) {
+					JSONObject json = new JSONObject();
+					json.put("response", entry.response.getRawResponse());
+					json.put("storedAt", entry.storedAt);
+					json.put("shows", entry.shows);
+					stored.put(json);
+				}
+			}
+			JSONObject root = new JSONObject();
+			root.put("entries", stored);
+
+			directory.mkdirs();
+			FileOutputStream out = new FileOutputStream(tempFile);
+			try {
+				out.write(root.toString().getBytes("UTF-8"));
+			} finally {
+				out.close();
+			}
+			if (!tempFile.renameTo(file)) {
+				tempFile.delete();
+				throw new IOException("Unable to replace " + file);
+			}
+		} catch (IOException e) {
+			Log.e(TAG, "Unable to save cached ads: " + e.getMessage());
+		} catch (JSONException e) {
+			Log.e(TAG, "Unable to save cached ads: " + e.getMessage());
+		}
+	}
+}
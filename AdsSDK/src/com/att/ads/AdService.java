@@ -1,21 +1,24 @@
 package com.att.ads;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
+import org.json.JSONException;
+
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.util.ByteArrayBuffer;
 import org.apache.http.util.EntityUtils;
 
 import android.util.Log;
 
+import com.att.ads.model.AdServiceResponse;
 import com.att.ads.util.HttpClientFactory;
+import com.att.ads.util.SdkLog;
 
 /**
  * Class to perform retrieve advertisement operation from server and assigned it
@@ -27,6 +30,13 @@ public class AdService {
 	private static final String TAG = "AdService";
 	private String accessToken = null;
 
+	/**
+	 * Receives the ad response, or the error, of a request.
+	 */
+	interface ResultHandler {
+		void onResult(AdServiceResponse response, ATTAdViewError error);
+	}
+
 	/**
 	 * Constructor set the access Token.
 	 * 
@@ -43,30 +53,48 @@ public class AdService {
 	 * @param adView
 	 * @param isCanceled
 	 */
-	public void getAd(String url, ATTAdView adView, boolean isCanceled) {
+	public void getAd(String url, final ATTAdView adView, boolean isCanceled) {
+		getAd(url, adView, isCanceled, new ResultHandler() {
+			@Override
+			public void onResult(AdServiceResponse response, ATTAdViewError error) {
+				adView.setResult(response, error);
+			}
+		});
+	}
+
+	/**
+	 * Returns an ad response from server to the handler. The ad view supplies
+	 * the request headers, and its token is cleared if the server rejects it.
+	 * The response body is read once and parsed once, into the
+	 * {@link AdServiceResponse} passed to the handler.
+	 * 
+	 * @param url
+	 * @param adView
+	 * @param isCanceled
+	 * @param handler
+	 */
+	void getAd(String url, ATTAdView adView, boolean isCanceled, ResultHandler handler) {
 		String responseValue = null;
-		BufferedInputStream bufferedInputStream = null;
 		InputStream inputStream = null;
 		HttpGet get = null;
 		HttpClient client = null;
+		HttpEntity entity = null;
 		try {
-			System.setProperty("http.keepAlive", "false");
 			client = HttpClientFactory.getThreadSafeClient();
 			get = new HttpGet(url);
-			Log.i(TAG, "accessToken :" + accessToken);
 			get.addHeader(Constants.AUTHORIZATION, "BEARER " + accessToken);
 			get.addHeader(Constants.XARG, "ClientSdk=att.ads.android." + Constants.SDK_VERSION);
 
 			String udid = adView.getUdid();
 			String category = adView.getCategory();
 			if (null == udid) {
-				adView.setResult(null, new ATTAdViewError(
+				handler.onResult(null, new ATTAdViewError(
 						ATTAdViewError.ERROR_PARAMETER_ERROR,
 						Constants.STR_UDID_PROBLEM));
 				return;
 			}
 			if (null == category) {
-				adView.setResult(null, new ATTAdViewError(
+				handler.onResult(null, new ATTAdViewError(
 						ATTAdViewError.ERROR_PARAMETER_ERROR,
 						Constants.STR_CATEGORY_PROBLEM));
 				return;
@@ -75,25 +103,38 @@ public class AdService {
 			get.addHeader(Constants.UDID, udid);
 			String ua = adView.getUserAgent();
 			get.addHeader("User-Agent", ua);
-			Log.i(TAG, "user agent :" + ua);
-			Log.i(TAG, "ads Service Request :" + url);
-			Header[] harray = get.getAllHeaders();
-			Log.i(TAG, "get.getAllHeaders() :");
-			for (int i = 0; i < harray.length; i++) {
-				Log.i(TAG, "Name: " + harray[i].getName() + " value:"
-						+ harray[i].getValue());
-			}
+			final HttpGet request = get;
+			SdkLog.d(TAG, new SdkLog.Supplier() {
+				@Override
+				public String get() {
+					StringBuilder msg = new StringBuilder("ads Service Request :");
+					msg.append(SdkLog.redactUrl(request.getURI().toString()));
+					for (Header header : request.getAllHeaders()) {
+						// the token and the device id are not logged in full
+						boolean isSecret = header.getName().equals(Constants.AUTHORIZATION)
+								|| header.getName().equals(Constants.UDID);
+						msg.append("\n").append(header.getName()).append(": ").append(
+								isSecret ? SdkLog.redact(header.getValue()) : header.getValue());
+					}
+					return msg.toString();
+				}
+			});
 
 			HttpResponse response = client.execute(get);
-			Log.i(TAG, "Response recieved " + response);
+			if (null != response) {
+				entity = response.getEntity();
+			}
 
 			if (null == response) {
 				Log.e(TAG, Constants.STR_NULL_SERVER_RESPONSE);
-				adView.setResult(null, new ATTAdViewError(
+				handler.onResult(null, new ATTAdViewError(
 						ATTAdViewError.ERROR_ADSERVER_ERROR,
 						Constants.STR_NULL_SERVER_RESPONSE));
 				return;
 			}
+			if (SdkLog.isLoggable(Log.DEBUG)) {
+				SdkLog.d(TAG, "Response recieved " + response.getStatusLine());
+			}
 
 			if (response.getStatusLine().getStatusCode() != 200) {
 
@@ -112,7 +153,7 @@ public class AdService {
 				Log.i(TAG, "Error Code : "
 						+ response.getStatusLine().getStatusCode());
 				Log.e(TAG, erMessage);
-				adView.setResult(null, new ATTAdViewError(
+				handler.onResult(null, new ATTAdViewError(
 						ATTAdViewError.ERROR_ADSERVER_ERROR, erMessage));
 
 				// Clear access token in prefs for an unauthorized request
@@ -125,56 +166,67 @@ public class AdService {
 				return;
 			}
 
-			inputStream = response.getEntity().getContent();
-			bufferedInputStream = new BufferedInputStream(inputStream, 1024);
+			inputStream = entity.getContent();
 
 			if (!isCanceled) {
-				responseValue = readInputStream(bufferedInputStream, isCanceled);
+				responseValue = readInputStream(inputStream, entity.getContentLength(),
+						EntityUtils.getContentCharSet(entity), isCanceled);
 			}
 
-			Log.i(TAG, "ads Service Response :" + responseValue);
+			if (SdkLog.isLoggable(Log.DEBUG)) {
+				SdkLog.d(TAG, "ads Service Response :" + SdkLog.redact(responseValue));
+			}
 
 			if (null == responseValue || responseValue.length() == 0) {
-				adView.setResult(null, new ATTAdViewError(
+				handler.onResult(null, new ATTAdViewError(
 						ATTAdViewError.ERROR_ADSERVER_ERROR,
 						Constants.STR_EMPTY_SERVER_RESPONSE));
 				return;
 			}
 
-			if (!responseValue.contains("AdsResponse")) {
-				adView.setResult(null, new ATTAdViewError(
-						ATTAdViewError.ERROR_ADSERVER_ERROR, responseValue));
+			AdServiceResponse adSvcResponse;
+			try {
+				adSvcResponse = AdServiceResponse.parse(responseValue);
+			} catch (JSONException e) {
+				Log.e(TAG, "Exception in JSON parsing:" + e.toString());
+				handler.onResult(null, new ATTAdViewError(
+						ATTAdViewError.ERROR_ADSERVER_ERROR, responseValue, e));
 				return;
 			}
 
 			if (adView != null) {
-				adView.setResult(responseValue, null);
+				// kept for the next cold start, or for when the network is down
+				AdResponseCache.getInstance(adView.getContext()).put(url, adSvcResponse);
+				handler.onResult(adSvcResponse, null);
 			}
 		} catch (ClientProtocolException e) {
+			abort(get);
 			if (adView != null)
-				adView.setResult(null, new ATTAdViewError(
+				handler.onResult(null, new ATTAdViewError(
 						ATTAdViewError.ERROR_OAUTH_ERROR, e.toString() + ": "
 								+ e.getMessage(), e));
 		} catch (IOException e) {
+			abort(get);
 			if (adView != null)
-				adView.setResult(null, new ATTAdViewError(
+				handler.onResult(null, new ATTAdViewError(
 						ATTAdViewError.ERROR_OAUTH_ERROR, e.toString() + ": "
 								+ e.getMessage(), e));
 		} finally {
-			// In order to shut down the underlying
-			// connection and release it back to the connection manager.
-			get.abort();
+			// Read what is left of the response, so that the connection is
+			// released back to the connection manager and kept alive.
+			release(entity);
+			// the radio is awake now, so waiting events go at little cost
+			if (null != adView) {
+				AdEventTracker.getInstance(adView.getContext()).onNetworkUsed();
+			}
 			try {
 				if (inputStream != null) {
 					inputStream.close();
 				}
-				if (bufferedInputStream != null) {
-					bufferedInputStream.close();
-				}
 			} catch (IOException e) {
 				Log.e(TAG, e.getMessage() + e.fillInStackTrace());
 				if (adView != null)
-					adView.setResult(null, new ATTAdViewError(
+					handler.onResult(null, new ATTAdViewError(
 							ATTAdViewError.ERROR_ADSERVER_ERROR, e.toString()
 									+ ": " + e.getMessage(), e));
 			}
@@ -183,22 +235,55 @@ public class AdService {
 	}
 
 	/**
-	 * Converts an input stream sequence of the byte array to a string.
+	 * Shuts down the connection of a failed request; it is not reused.
+	 * 
+	 * @param get
+	 */
+	private void abort(HttpGet get) {
+		if (null != get) {
+			get.abort();
+		}
+	}
+
+	/**
+	 * Consumes the rest of the response entity, which releases its connection
+	 * to the connection manager for the next request.
+	 * 
+	 * @param entity
+	 */
+	private void release(HttpEntity entity) {
+		if (null != entity) {
+			try {
+				entity.consumeContent();
+			} catch (IOException e) {
+				Log.e(TAG, "Unable to release connection: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Converts an input stream sequence of the byte array to a string. The
+	 * buffer is sized by the content length, when the server sends it.
 	 * 
 	 * @param in
+	 * @param contentLength
+	 *            length of the body, or a negative value if unknown
+	 * @param charset
+	 *            charset of the body, or null for UTF-8
 	 * @param isCanceled
 	 * @return String
 	 * @throws IOException
 	 */
-	private String readInputStream(BufferedInputStream in, boolean isCanceled)
-			throws IOException {
-		byte[] buffer = new byte[1024];
-		ByteArrayBuffer byteBuffer = new ByteArrayBuffer(1);
+	private String readInputStream(InputStream in, long contentLength, String charset,
+			boolean isCanceled) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(
+				contentLength > 0 && contentLength < Integer.MAX_VALUE ? (int) contentLength : 4096);
+		byte[] buffer = new byte[4096];
 		for (int n; (n = in.read(buffer)) != -1;) {
 			if (isCanceled)
 				return "";
-			byteBuffer.append(buffer, 0, n);
+			body.write(buffer, 0, n);
 		}
-		return new String(byteBuffer.buffer(), 0, byteBuffer.length());
+		return body.toString(null == charset ? "UTF-8" : charset);
 	}
 }
@@ -10,20 +10,21 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import android.content.Context;
 import android.util.Log;
 
+import com.att.ads.model.AdServiceResponse;
+import com.att.ads.util.AdExecutors;
 import com.att.ads.util.EncryptDecrypt;
 import com.att.ads.util.HttpClientFactory;
 import com.att.ads.util.Preferences;
-import com.att.ads.util.Utils;
+import com.att.ads.util.SdkLog;
+import com.att.ads.util.TokenBroker;
 
 /**
- * Authorization operation performed and access tokens are stored in shared
- * preferences.
+ * Authorization operation performed and access tokens are stored in the
+ * application's files by the {@link TokenBroker}.
  * 
  * @author ATT
  */
@@ -40,6 +41,7 @@ public class AuthService {
 	 */
 	public AuthService(Context context) {
 		this.context = context;
+		TokenBroker.init(context);
 	}
 
 	/**
@@ -60,12 +62,52 @@ public class AuthService {
 		this.isAuthSuccess = isAuthSuccess;
 	}
 
+	/*
+	 * The decrypted app key and secret, kept for the life of the process so
+	 * that loading an ad neither reads preferences nor decrypts them.
+	 */
+	private static final class Credentials {
+		final String appKey;
+		final String secret;
+
+		Credentials(String appKey, String secret) {
+			this.appKey = appKey;
+			this.secret = secret;
+		}
+	}
+
+	private static volatile Credentials credentials = null;
+
+	/**
+	 * Sets the app key and secret used to obtain access tokens. Called by
+	 * {@link ATTAdView} after it stores them in preferences, so the cached
+	 * values always match the stored ones.
+	 * 
+	 * @param appKey
+	 * @param secret
+	 */
+	static synchronized void setCredentials(String appKey, String secret) {
+		credentials = new Credentials(appKey, secret);
+	}
+
+	/**
+	 * Forgets the access token of the current app key, in memory and on
+	 * disk, so the next ad request obtains a new one.
+	 */
+	static void invalidateToken() {
+		Credentials creds = credentials;
+		if (creds != null) {
+			TokenBroker.getInstance().invalidate(creds.appKey, Constants.SCOPE);
+		}
+	}
+
 	/**
 	 * Returns Access token which is calculated from App Key and secret key.
-	 * These App key and secret key retrieved from preferences, and passed to
-	 * the oauthService method which returns the JSON response and it parse JSON
-	 * response and store access token, Refresh token and expires_in values in
-	 * shared preference in encrypted format.
+	 * These App key and secret key are read from preferences once per process,
+	 * and passed to the {@link TokenBroker}, which returns the token it already
+	 * holds for them or requests a new one. The token is saved in the
+	 * application's files, where other AT&amp;T SDKs find it too. While the
+	 * token is valid, no preferences are read and nothing is decrypted.
 	 * 
 	 * @param adView
 	 *            reference of the ATTAdView object
@@ -73,241 +115,127 @@ public class AuthService {
 	 * @return accessToken
 	 */
 	public String getAccessToken(ATTAdView adView) {
+		Credentials creds = credentials;
+		if (creds == null) {
+			creds = loadCredentials(adView);
+			if (creds == null) {
+				return null;
+			}
+		}
+
+		try {
+			TokenBroker.Token token = TokenBroker.getInstance().getToken(
+					Constants.OAUTH_URL, creds.appKey, creds.secret, Constants.SCOPE);
+			setAuthSuccess(true);
+			return token.getAccessToken();
+		} catch (IOException e) {
+			Log.e(TAG, "OAUTH service unsuccessful: " + e.getMessage());
+			if (adView != null) {
+				adView.clearCache();
+				adView.setResult((AdServiceResponse) null, new ATTAdViewError(
+						ATTAdViewError.ERROR_OAUTH_ERROR, e.toString()
+								+ ": " + e.getMessage(), e));
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Reads and decrypts the app key and secret from preferences, and caches
+	 * them unless {@link #setCredentials(String, String)} was called meanwhile.
+	 * 
+	 * @return the credentials, or null if they are not stored
+	 */
+	private Credentials loadCredentials(ATTAdView adView) {
 		String appKey = null;
 		String secret = null;
-		StringBuffer oath_url = null;
 		Preferences pref = new Preferences(context);
-		String accessToken = null;
-		String refreshToken = null;
-		long expiresInd = Long.valueOf(pref.getString("expires_in", "-1"));
 
-		//
-		if (expiresInd != -1 && !Utils.isExpires(expiresInd)) {
-			String accessTokenEnc = pref.getString("access_token", null);
-			try {
-				accessToken = EncryptDecrypt.getDecryptedValue(accessTokenEnc,
-						EncryptDecrypt.getSecretKeySpec("access_token"));
-			} catch (Exception e) {
-				e.printStackTrace();
+		try {
+			String appKeyEnc = pref.getString("app_key", null);
+			if (null != appKeyEnc) {
+				appKey = EncryptDecrypt.decrypt(appKeyEnc, "app_key");
+			} else {
+				Log.e(TAG, "Unable to get the app_key info from preferences");
 				if (adView != null)
-					adView.setResult(null, new ATTAdViewError(
-							ATTAdViewError.ERROR_OAUTH_ERROR, e.toString()
-									+ ": " + e.getMessage(), e));
+					adView.setResult((AdServiceResponse) null, new ATTAdViewError(
+							ATTAdViewError.ERROR_PARAMETER_ERROR,  Constants.STR_APP_KEY_PROBLEM));
 				return null;
 			}
 
-		} else {
-			try {
-				String appKeyEnc = pref.getString("app_key", null);
-				if (null != appKeyEnc) {
-					appKey = EncryptDecrypt.getDecryptedValue(appKeyEnc,
-							EncryptDecrypt.getSecretKeySpec("app_key"));
-				} else {
-					Log.e(TAG, "Unable to get the app_key info from preferences");
-					if (adView != null)
-						adView.setResult(null, new ATTAdViewError(
-								ATTAdViewError.ERROR_PARAMETER_ERROR,  Constants.STR_APP_KEY_PROBLEM));
-					return null;
-				}
-
-				String secretEnc = pref.getString("app_secret", null);
-				if (null != secretEnc) {
-					secret = EncryptDecrypt.getDecryptedValue(secretEnc,
-							EncryptDecrypt.getSecretKeySpec("app_secret"));
-				} else {
-					Log.e(TAG, "Unable to get the secret info from preferences");
-					if (adView != null)
-						adView.setResult(null, new ATTAdViewError(
-								ATTAdViewError.ERROR_PARAMETER_ERROR,  Constants.STR_SECRET_PROBLEM));
-					return null;
-				}
-
-				oath_url = new StringBuffer(Constants.OAUTH_URL)
-						.append("?scope=").append(Constants.SCOPE)
-						.append("&client_id=").append(appKey)
-						.append("&client_secret=").append(secret);
-			} catch (Exception e) {
-				Log.e(TAG, "Exception in decrypt keys :" + e.getStackTrace());
+			String secretEnc = pref.getString("app_secret", null);
+			if (null != secretEnc) {
+				secret = EncryptDecrypt.decrypt(secretEnc, "app_secret");
+			} else {
+				Log.e(TAG, "Unable to get the secret info from preferences");
 				if (adView != null)
-					adView.setResult(null, new ATTAdViewError(
-							ATTAdViewError.ERROR_OAUTH_ERROR, e.toString()
-									+ ": " + e.getMessage(), e));
+					adView.setResult((AdServiceResponse) null, new ATTAdViewError(
+							ATTAdViewError.ERROR_PARAMETER_ERROR,  Constants.STR_SECRET_PROBLEM));
 				return null;
 			}
-			if (expiresInd == -1) {
-				// First time
-				oath_url.append("&grant_type=").append(Constants.GRANT_TYPE);
-			} else if (Utils.isExpires(expiresInd)) {
-				// Token Expires
-				oath_url.append("&grant_type=").append(Constants.REFRESH_TOKEN);
-				String refreshTokenEnc = pref.getString("refresh_token", null);
-				try {
-					refreshToken = EncryptDecrypt.getDecryptedValue(
-							refreshTokenEnc,
-							EncryptDecrypt.getSecretKeySpec("refresh_token"));
-					oath_url.append("&refresh_token=").append(refreshToken);
-				} catch (Exception e) {
-					e.printStackTrace();
-					if (adView != null)
-						adView.setResult(null, new ATTAdViewError(
-								ATTAdViewError.ERROR_OAUTH_ERROR, e.toString()
-										+ ": " + e.getMessage(), e));
-					return null;
-				}
-			}
-
-			//
-			JSONObject object = oauthService(oath_url.toString(), adView);
-			if (null != object) {
-				try {
-					accessToken = object.getString("access_token");
-					refreshToken = object.getString("refresh_token");
-					// get expires_in in seconds.
-					int expiresIn = object.getInt("expires_in");
-					long expiresInSeconds = 0;
-					expiresInSeconds = Utils.getExpiresTimeInSeconds(expiresIn);
-					// Stores in milliseconds of respective time
-					pref.setString("expires_in", String.valueOf(expiresInSeconds));
-				} catch (JSONException e) {
-					e.printStackTrace();
-					if (adView != null)
-						adView.setResult(null, new ATTAdViewError(
-								ATTAdViewError.ERROR_OAUTH_ERROR, e.toString()
-										+ ": " + e.getMessage(), e));
-				}
-
-				if (accessToken != null && accessToken.length() > 0
-						&& refreshToken != null && refreshToken.length() > 0) {
-					try {
-						pref.setString("access_token", EncryptDecrypt
-								.getEncryptedValue(accessToken, EncryptDecrypt
-										.getSecretKeySpec("access_token")));
+		} catch (Exception e) {
+			Log.e(TAG, "Exception in decrypt keys :" + e.getStackTrace());
+			if (adView != null)
+				adView.setResult((AdServiceResponse) null, new ATTAdViewError(
+						ATTAdViewError.ERROR_OAUTH_ERROR, e.toString()
+								+ ": " + e.getMessage(), e));
+			return null;
+		}
 
-						pref.setString("refresh_token", EncryptDecrypt
-								.getEncryptedValue(refreshToken, EncryptDecrypt
-										.getSecretKeySpec("refresh_token")));
-					} catch (Exception e) {
-						e.printStackTrace();
-						if (adView != null)
-							adView.setResult(
-									null,
-									new ATTAdViewError(
-											ATTAdViewError.ERROR_OAUTH_ERROR, e
-													.toString()
-													+ ": "
-													+ e.getMessage(), e));
-					}
-				}
+		synchronized (AuthService.class) {
+			if (credentials == null) {
+				credentials = new Credentials(appKey, secret);
 			}
+			return credentials;
 		}
-
-		return accessToken;
 	}
 
 	/**
-	 * Returns {@link JSONObject} for provided authentication URL. This
-	 * operation is handled in thread-safe client to server communication.
+	 * Returns the token held for the app key, in memory or on disk, without
+	 * a request. For debugging.
 	 * 
-	 * @param oath_url
-	 * @param adView
-	 * @return JSONObject
+	 * @return the token, or null if there is none
 	 */
-	public JSONObject oauthService(String oath_url, ATTAdView adView) {
-		HttpPost post = null;
-		HttpResponse response = null;
-		HttpEntity httpEntity = null;
-		InputStream instream = null;
-		BufferedReader reader = null;
-		HttpClient client = HttpClientFactory.getThreadSafeClient();
-		JSONObject object = null;
-
-		try {
-			Log.d(TAG, "OATH Service Reuest: " + oath_url);
-			post = new HttpPost(oath_url);
-			post.setHeader("Content-Type", "application/x-www-form-urlencoded");
-			response = client.execute(post);
-			httpEntity = response.getEntity();
-			StringBuffer tempBuffer = new StringBuffer();
-			if (httpEntity != null) {
-				instream = httpEntity.getContent();
-				reader = new BufferedReader(new InputStreamReader(instream));
-				String str = null;
-				while ((str = reader.readLine()) != null) {
-					tempBuffer.append(str);
-				}
-				if (response.getStatusLine().getStatusCode() == 200) {
-					setAuthSuccess(true);
-					Log.d(TAG, "OAUTH status :success");
-
-					object = (JSONObject) new org.json.JSONTokener(
-							tempBuffer.toString()).nextValue();
-					Log.d(TAG, "OATH Service Response:" + object.toString());
-				} else {
-					StringBuffer errInfo = new StringBuffer(
-							"OAUTH service unsuccessful due to the code :"
-									+ response.getStatusLine().getStatusCode());
-					errInfo.append(" and response: " + tempBuffer.toString());
-					Log.e(TAG, errInfo.toString());
-					if (adView != null)
-						adView.clearCache();
-						adView.setResult(null,
-								new ATTAdViewError(
-										ATTAdViewError.ERROR_OAUTH_ERROR,
-										errInfo.toString()));
-				}
-
-			} else {
-				if (adView != null)
-					adView.clearCache();
-					adView.setResult(null, new ATTAdViewError(
-							ATTAdViewError.ERROR_OAUTH_ERROR,
-							Constants.STR_EMPTY_SERVER_RESPONSE));
+	public TokenBroker.Token peekToken() {
+		Credentials creds = credentials;
+		if (creds == null) {
+			creds = loadCredentials(null);
+			if (creds == null) {
+				return null;
 			}
+		}
+		return TokenBroker.getInstance().peekToken(creds.appKey, Constants.SCOPE);
+	}
 
-		} catch (Exception e) {
-			Log.e(TAG, "Exception status :" + e.fillInStackTrace());
-			if (adView != null){
-			
-				adView.clearCache();
-				adView.setResult(null, new ATTAdViewError(
-						ATTAdViewError.ERROR_OAUTH_ERROR, e.toString() + ": "
-								+ e.getMessage(), e));
-			}
-		} finally {
-			post.abort();
-			try {
-				if (instream != null) {
-					instream.close();
-				}
-				if (reader != null) {
-					reader.close();
-				}
-			} catch (IOException e) {
-				Log.e(TAG, e.getMessage() + e.fillInStackTrace());
-				if (adView != null)
-					adView.setResult(null, new ATTAdViewError(
-							ATTAdViewError.ERROR_OAUTH_ERROR, e.toString()
-									+ ": " + e.getMessage(), e));
+	/**
+	 * Replaces the token held for the app key, e.g. to test how an expired
+	 * token is renewed. For debugging.
+	 * 
+	 * @param token
+	 */
+	public void replaceToken(TokenBroker.Token token) {
+		Credentials creds = credentials;
+		if (creds == null) {
+			creds = loadCredentials(null);
+			if (creds == null) {
+				return;
 			}
-			//client = null;
 		}
-
-		return object;
+		TokenBroker.getInstance().putToken(creds.appKey, Constants.SCOPE, token);
 	}
+
 	/**
-	 * Revokes the current access token and refresh token stored in preferences.
-	 * The app key, secret key and refresh token are retrieved from preferences, and 
-	 * passed to the oauthService method which makes the revoke refresh token call.
-	 * The access token, refresh token and expires_in values are cleaned from the
-	 * shared preference.
+	 * Revokes the current refresh token. The app key and secret key are
+	 * retrieved from preferences, and the refresh token from the
+	 * {@link TokenBroker}, which forgets the token once it is revoked.
 	 * 
 	 * @param none
 	 * 
 	 * @return true or false
 	 */
 	public void revokeToken() {
-		// Invoke network operation is a separate thread
-		Thread threadRevoke = new Thread(new Runnable(){
+		// Invoke network operation on an SDK worker thread
+		AdExecutors.execute(new Runnable(){
 		    @Override
 		    public void run() {
 		        try {
@@ -317,8 +245,6 @@ public class AuthService {
 		        }
 		    }
 		});
-
-		threadRevoke.start();		
 	}
 	private boolean revokeTokenOperation() {
 		String appKey = null;
@@ -336,8 +262,7 @@ public class AuthService {
 		try {
 			String appKeyEnc = pref.getString("app_key", null);
 			if (null != appKeyEnc) {
-				appKey = EncryptDecrypt.getDecryptedValue(appKeyEnc,
-						EncryptDecrypt.getSecretKeySpec("app_key"));
+				appKey = EncryptDecrypt.decrypt(appKeyEnc, "app_key");
 			} else {
 				Log.e(TAG, "Unable to get the app_key info from preferences");
 				return false;
@@ -345,8 +270,7 @@ public class AuthService {
 
 			String secretEnc = pref.getString("app_secret", null);
 			if (null != secretEnc) {
-				secret = EncryptDecrypt.getDecryptedValue(secretEnc,
-						EncryptDecrypt.getSecretKeySpec("app_secret"));
+				secret = EncryptDecrypt.decrypt(secretEnc, "app_secret");
 			} else {
 				Log.e(TAG, "Unable to get the secret info from preferences");
 				return false;
@@ -359,20 +283,19 @@ public class AuthService {
 			return false;
 		}
 		
-		String refreshTokenEnc = pref.getString("refresh_token", null);
-		try {
-			refreshToken = EncryptDecrypt.getDecryptedValue(
-					refreshTokenEnc,
-					EncryptDecrypt.getSecretKeySpec("refresh_token"));
-			revokeBody.append("&token=").append(refreshToken)
-					.append("&token_type_hint=refresh_token");
-		} catch (Exception e) {
-			Log.e(TAG, "Exception in revoke token :" + e.getStackTrace());
+		TokenBroker.Token token = TokenBroker.getInstance().peekToken(appKey, Constants.SCOPE);
+		if (null == token || null == token.getRefreshToken()) {
+			Log.d(TAG, "Revoke Token: no refresh token to revoke.");
 			return false;
 		}
+		refreshToken = token.getRefreshToken();
+		revokeBody.append("&token=").append(refreshToken)
+				.append("&token_type_hint=refresh_token");
 
 		try {
-			Log.d(TAG, "Revoke Token Request: " + revokeBody.toString());
+			if (SdkLog.isLoggable(Log.DEBUG)) {
+				SdkLog.d(TAG, "Revoke Token Request: " + SdkLog.redact(revokeBody.toString()));
+			}
 			post = new HttpPost(Constants.REVOKE_URL);
 			post.setHeader("Content-Type", "application/x-www-form-urlencoded");
 			post.setEntity(new StringEntity(revokeBody.toString()));
@@ -388,10 +311,8 @@ public class AuthService {
 				}
 				if (response.getStatusLine().getStatusCode() == 200) {
 					Log.d(TAG, "Revoke Token status :success");					
-					// Store expiresIn as -1, make access token and refresh token blank.
-					pref.setString("expires_in", "-1"); // get new token next time.
-					pref.setString("access_token", "");
-					pref.setString("refresh_token", "");
+					// Forget the token in memory and on disk; get new token next time.
+					TokenBroker.getInstance().invalidate(appKey, Constants.SCOPE);
 				} else {
 					StringBuffer errInfo = new StringBuffer(
 							"Revoke Token unsuccessful due to the code :"
@@ -405,9 +326,21 @@ public class AuthService {
 			}
 		} catch (Exception e) {
 			Log.e(TAG, "Exception status :" + e.fillInStackTrace());
+			// the connection is in an unknown state, so it is not reused
+			if (post != null) {
+				post.abort();
+			}
 			return false;
 		} finally {
-			post.abort();
+			// Read what is left of the response, so that the connection is
+			// released back to the connection manager and kept alive.
+			if (httpEntity != null) {
+				try {
+					httpEntity.consumeContent();
+				} catch (IOException e) {
+					post.abort();
+				}
+			}
 			try {
 				if (instream != null) {
 					instream.close();
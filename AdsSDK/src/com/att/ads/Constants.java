@@ -13,6 +13,10 @@ public class Constants {
 	public static final String SDK_VERSION = "2.1.2";
 	
 	public static final long AD_RELOAD_PERIOD = 120000; //in milliseconds
+	public static final long AD_PREFETCH_LEAD = 15000; //in milliseconds, before the reload
+	public static final long AD_PREFETCH_EXPIRY = 300000; //in milliseconds
+	public static final long AD_BATCH_WINDOW = 100; //in milliseconds, to gather the loads of a batch
+	public static final long AD_CACHE_TTL = 1800000; //in milliseconds, for cached ad responses
 	public static final int DEFAULT_REQUEST_TIMEOUT = 20000; //in seconds
 	
 	public static final int DEFAULT_AD_SERVER_TIMEOUT = 3000; // server side timeout, in milliseconds; 
@@ -45,6 +49,7 @@ public class Constants {
 	public static final String STR_APP_KEY_PROBLEM = "App Key is mandatory parameter and it should not be null or empty";
 	public static final String STR_SECRET_PROBLEM = "Secret Key is mandatory parameter and it should not be null or empty";
 	public static final String STR_CATEGORY_PROBLEM = "Category is mandatory parameter and it should not be null or empty";
+	public static final String STR_ACCESS_TOKEN_PROBLEM = "Unable to get an access token";
 
 	
 	//OATH parameters 
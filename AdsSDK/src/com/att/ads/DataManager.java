@@ -1,17 +1,30 @@
 package com.att.ads;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.att.ads.controllers.NetworkController;
+import com.att.ads.util.AdExecutors;
+import com.att.ads.util.AdImageCache;
 
 import android.content.Context;
 import android.util.Log;
 
+import com.att.ads.model.AdServiceResponse;
+
 /**
  * DataManager is a Singleton class and manages the data loading requests.
  * Handles all the third party requests asynchronously. Controlling the 
  * start and stop loading processes by various factors to improve the battery 
  * utilization.
+ * <p>
+ * Loads run on the shared workers of {@link AdExecutors}. The parameters of
+ * the load in progress for each view are kept in a concurrent map, as loads
+ * are started and finished from different threads.
+ * <p>
+ * In batch mode, see {@link #setBatchMode(boolean)}, the loads started within
+ * {@link Constants#AD_BATCH_WINDOW} of each other are run together.
  * 
  * @author ATT
  *
@@ -19,15 +32,19 @@ import android.util.Log;
 public class DataManager {
 	public static final String TAG = "DataManager";
 	private static DataManager instance;
-	private HashMap<ATTAdView, DataParameters> senderParameters = new HashMap<ATTAdView, DataParameters>();
+	private final ConcurrentHashMap<ATTAdView, DataParameters> senderParameters = new ConcurrentHashMap<ATTAdView, DataParameters>();
 	private Context context;
+	private volatile boolean batchMode = false;
+	// loads waiting for the batch task; guarded by pendingBatch
+	private final ArrayList<DataParameters> pendingBatch = new ArrayList<DataParameters>();
+	private boolean isBatchScheduled = false;
 
 	/**
 	 * Returns the Data Manager object.
 	 * @param context
 	 * @return DataManager
 	 */
-	static public DataManager getInstance(Context context) {
+	static public synchronized DataManager getInstance(Context context) {
 		if (instance == null)
 			instance = new DataManager(context);
 
@@ -50,20 +67,80 @@ public class DataManager {
 	 * @param url
 	 */
 	public void startLoadData(ATTAdView attAdView, String url) {
-		if (senderParameters.containsKey(attAdView))
-			stopLoadData(attAdView);
+		startLoadData(attAdView, url, false);
+	}
 
+	/**
+	 * Initiates the data loading process like
+	 * {@link #startLoadData(ATTAdView, String)}, first showing a recent cached
+	 * ad for the URL if asked to, such as for the first load of a view.
+	 * 
+	 * @param attAdView
+	 * @param url
+	 * @param showCached
+	 */
+	public void startLoadData(ATTAdView attAdView, String url, boolean showCached) {
 		DataParameters parameters = new DataParameters();
 		parameters.sender = attAdView;
 		parameters.url = url;
+		parameters.showCached = showCached;
+		DataTask dTask = new DataTask(parameters);
+		parameters.dTask = dTask;
+
+		DataParameters previous = senderParameters.put(attAdView, parameters);
+		if (null != previous) {
+			// the previous load no longer delivers its result
+			previous.sender = null;
+			previous.dTask.cancel();
+		}
+
+		if (batchMode) {
+			addToBatch(parameters);
+			return;
+		}
+		Log.i(TAG, "Data Task starting: " + attAdView);
+		AdExecutors.execute(dTask);
+	}
+
+	/**
+	 * Sets whether loads are batched. Batching suits screens with several
+	 * ad views, such as a feed: the loads started within a short window share
+	 * one network check and one access token lookup, their requests are sent
+	 * one after another over the same kept-alive connection, and views whose
+	 * requests are the same (URL, UDID, category and user agent) share one
+	 * response. Batching is off by default.
+	 * 
+	 * @param enabled
+	 */
+	public void setBatchMode(boolean enabled) {
+		batchMode = enabled;
+	}
 
-		senderParameters.put(attAdView, parameters);
+	private void addToBatch(DataParameters parameters) {
+		synchronized (pendingBatch) {
+			pendingBatch.add(parameters);
+			if (!isBatchScheduled) {
+				isBatchScheduled = true;
+				AdExecutors.schedule(new BatchTask(), Constants.AD_BATCH_WINDOW);
+			}
+		}
+	}
+
+	/**
+	 * Fetches the next ad of the ATTAdView in the background, ahead of its
+	 * refresh, and keeps it ready in the view's {@link AdPrefetcher}. Does
+	 * nothing if enough ads are ready or a fetch is in progress. Failures are
+	 * not reported to the view; its refresh then loads the ad as usual.
+	 * 
+	 * @param attAdView
+	 * @param url
+	 */
+	public void startPrefetch(ATTAdView attAdView, String url) {
+		if (!attAdView.getPrefetcher().startFetch(url))
+			return;
 
-		DataThread dTh = new DataThread(parameters);
-		parameters.dTh = dTh;
-		dTh.setName("[DataManager] LoadData");
-		Log.i(TAG, "Data Thread starting: " + attAdView);
-		dTh.start();
+		Log.i(TAG, "Prefetch Task starting: " + attAdView);
+		AdExecutors.execute(new PrefetchTask(attAdView, url));
 	}
 
 	/**
@@ -74,31 +151,80 @@ public class DataManager {
 	 * @param url
 	 */
 	public void stopLoadData(ATTAdView sender) {
-		if(sender.isManualCall)
-			sender.isManualCall = false;
 		if (null != sender) {
-			Log.i(TAG, "Data Thread stopped: " + sender);
+			DataParameters parameters = senderParameters.get(sender);
+			if (null != parameters) {
+				finishLoadData(sender, parameters);
+			} else {
+				sender.isManualCall = false;
+				if (sender.isShown()) {
+					sender.startTimer(context);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Ends the given load of the view and restarts its timer. Does nothing to
+	 * a later load of the view that replaced it.
+	 */
+	private void finishLoadData(ATTAdView sender, DataParameters parameters) {
+		parameters.sender = null;
+		parameters.dTask.cancel();
+		if (senderParameters.remove(sender, parameters)) {
+			Log.i(TAG, "Data Task stopped: " + sender);
+			sender.isManualCall = false;
 			if (sender.isShown()) {
 				sender.startTimer(context);
 			}
-			if (senderParameters.containsKey(sender)) {
-				senderParameters.get(sender).sender = null;
-				senderParameters.get(sender).dTh.cancel();
-				senderParameters.remove(sender);
-			}
+		}
+	}
+
+	/*
+	 * Shows a cached ad for the URL while the fresh ad of the load is fetched,
+	 * if the load asks for it. Called by the workers, as the cache may read a
+	 * file. Returns whether an ad was shown.
+	 */
+	private boolean showCached(ATTAdView adView, DataParameters parameters) {
+		if (!parameters.showCached) {
+			return false;
+		}
+		AdServiceResponse cachedAd = AdResponseCache.getInstance(context).take(parameters.url);
+		if (null == cachedAd) {
+			return false;
+		}
+		Log.i(TAG, "Showing cached ad while loading: " + adView);
+		adView.setResult(cachedAd, null);
+		return true;
+	}
+
+	/*
+	 * Shows a cached ad for the URL while the network is not available, or
+	 * reports the network error if there is none.
+	 */
+	private void showOffline(ATTAdView adView, String url) {
+		AdServiceResponse cachedAd = AdResponseCache.getInstance(context).take(url);
+		if (null != cachedAd) {
+			Log.i(TAG, "Network not available, showing cached ad: " + adView);
+			adView.setResult(cachedAd, null);
+		} else {
+			adView.setResult((AdServiceResponse) null, new ATTAdViewError(
+					ATTAdViewError.ERROR_NETWORK_ERROR,
+					Constants.STR_NETWORK_PROBLEM));
 		}
 	}
 
 	/**
 	 * Inner class to encapsulates the core required data for processing. 
-	 * Such as Ad service request URL, ATTAdView and Data Thread.  
+	 * Such as Ad service request URL, ATTAdView and Data Task.  
 	 * @author ATT
 	 *
 	 */
 	private class DataParameters {
-		public String url;
-		public ATTAdView sender;
-		DataThread dTh;
+		public volatile String url;
+		public volatile ATTAdView sender;
+		boolean showCached;
+		DataTask dTask;
 	};
 
 	/**
@@ -107,17 +233,22 @@ public class DataManager {
 	 * @author ATT
 	 *
 	 */
-	private class DataThread extends Thread {
+	private class DataTask implements Runnable {
 		DataParameters parameters;
-		boolean isCanceled = false;
+		volatile boolean isCanceled = false;
 
-		public DataThread(DataParameters parameters) {
+		public DataTask(DataParameters parameters) {
 			this.parameters = parameters;
 		}
 
 		@Override
 		public void run() {
 			ATTAdView adView = parameters.sender;
+			if (isCanceled || null == adView) {
+				// replaced by a later load while waiting for a worker
+				return;
+			}
+			boolean isCachedShown = showCached(adView, parameters);
 			//Network Availability check
 			NetworkController nController = new NetworkController(adView, context);
 			if(nController.isOnline()){
@@ -125,15 +256,15 @@ public class DataManager {
 				String accessToken = authSvc.getAccessToken(adView);
 				if (null != accessToken) {
 					AdService adSvc = new AdService(accessToken);
-					adSvc.getAd(parameters.url, parameters.sender, isCanceled);
+					// the view checked above; the parameters lose it when the load
+					// is replaced or stopped on another thread
+					adSvc.getAd(parameters.url, adView, isCanceled);
 				}
-			} else {
-				if (adView != null)
-					adView.setResult(null, new ATTAdViewError(
-							ATTAdViewError.ERROR_NETWORK_ERROR,
-							Constants.STR_NETWORK_PROBLEM));				
+			} else if (!isCachedShown) {
+				// the cached ad shown above already stands in for this load
+				showOffline(adView, parameters.url);
 			}
-			stopLoadData(adView);
+			finishLoadData(adView, parameters);
 		}
 
 		/**
@@ -144,4 +275,160 @@ public class DataManager {
 		}
 	}
 
+	/**
+	 * A load of a batch, with its view; the view is taken from the parameters
+	 * when the batch starts, as they lose it when the load is stopped.
+	 */
+	private static class Slot {
+		final DataParameters parameters;
+		final ATTAdView adView;
+		boolean isCachedShown;
+
+		Slot(DataParameters parameters, ATTAdView adView) {
+			this.parameters = parameters;
+			this.adView = adView;
+		}
+	}
+
+	/**
+	 * Runnable class to load the ads of the views gathered in batch mode.
+	 * 
+	 * @author ATT
+	 *
+	 */
+	private class BatchTask implements Runnable {
+
+		@Override
+		public void run() {
+			ArrayList<DataParameters> batch;
+			synchronized (pendingBatch) {
+				batch = new ArrayList<DataParameters>(pendingBatch);
+				pendingBatch.clear();
+				isBatchScheduled = false;
+			}
+
+			// views with the same request share its response
+			LinkedHashMap<String, ArrayList<Slot>> requests = new LinkedHashMap<String, ArrayList<Slot>>();
+			ArrayList<Slot> slots = new ArrayList<Slot>();
+			for (DataParameters parameters : batch) {
+				ATTAdView adView = parameters.sender;
+				if (parameters.dTask.isCanceled || null == adView) {
+					// replaced or stopped while waiting for the batch
+					continue;
+				}
+				Slot slot = new Slot(parameters, adView);
+				String key = parameters.url + '\n' + adView.getUdid() + '\n'
+						+ adView.getCategory() + '\n' + adView.getUserAgent();
+				ArrayList<Slot> sameRequest = requests.get(key);
+				if (null == sameRequest) {
+					sameRequest = new ArrayList<Slot>();
+					requests.put(key, sameRequest);
+				}
+				sameRequest.add(slot);
+				slots.add(slot);
+			}
+			if (slots.isEmpty()) {
+				return;
+			}
+			Log.i(TAG, "Batch Task starting: " + slots.size() + " views, "
+					+ requests.size() + " requests");
+
+			try {
+				for (Slot slot : slots) {
+					slot.isCachedShown = showCached(slot.adView, slot.parameters);
+				}
+				ATTAdView firstView = slots.get(0).adView;
+				NetworkController nController = new NetworkController(firstView, context);
+				if (!nController.isOnline()) {
+					for (Slot slot : slots) {
+						if (!slot.parameters.dTask.isCanceled && !slot.isCachedShown) {
+							showOffline(slot.adView, slot.parameters.url);
+						}
+					}
+					return;
+				}
+				// the first view gets the error of the lookup, the others a summary
+				String accessToken = new AuthService(context).getAccessToken(firstView);
+				if (null == accessToken) {
+					deliver(slots.subList(1, slots.size()), null, new ATTAdViewError(
+							ATTAdViewError.ERROR_OAUTH_ERROR,
+							Constants.STR_ACCESS_TOKEN_PROBLEM));
+					return;
+				}
+
+				AdService adSvc = new AdService(accessToken);
+				for (final ArrayList<Slot> sameRequest : requests.values()) {
+					Slot first = sameRequest.get(0);
+					adSvc.getAd(first.parameters.url, first.adView, false,
+							new AdService.ResultHandler() {
+								@Override
+								public void onResult(AdServiceResponse response, ATTAdViewError error) {
+									deliver(sameRequest, response, error);
+								}
+							});
+				}
+			} finally {
+				for (Slot slot : slots) {
+					finishLoadData(slot.adView, slot.parameters);
+				}
+			}
+		}
+
+		private void deliver(Iterable<Slot> slots, AdServiceResponse response,
+				ATTAdViewError error) {
+			for (Slot slot : slots) {
+				if (!slot.parameters.dTask.isCanceled) {
+					slot.adView.setResult(response, error);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runnable class to fetch an ad ahead of the refresh of a view.
+	 * 
+	 * @author ATT
+	 *
+	 */
+	private class PrefetchTask implements Runnable, AdService.ResultHandler {
+		private ATTAdView adView;
+		private String url;
+		private AdServiceResponse response;
+
+		public PrefetchTask(ATTAdView adView, String url) {
+			this.adView = adView;
+			this.url = url;
+		}
+
+		@Override
+		public void run() {
+			try {
+				NetworkController nController = new NetworkController(adView, context);
+				if (nController.isOnline()) {
+					// errors are not reported to the view, so it is not passed here
+					String accessToken = new AuthService(context).getAccessToken(null);
+					if (null != accessToken) {
+						new AdService(accessToken).getAd(url, adView, false, this);
+					}
+					// fetch and decode the image now, so the ad is shown without waiting
+					String imageUrl = null == response ? null : AdPrefetcher.imageUrlOf(response);
+					if (null != imageUrl && imageUrl.length() > 0) {
+						AdImageCache.getInstance(context).prefetch(imageUrl);
+					}
+				}
+			} finally {
+				adView.getPrefetcher().finishFetch(url, response);
+			}
+		}
+
+		@Override
+		public void onResult(AdServiceResponse response, ATTAdViewError error) {
+			if (null != error) {
+				Log.i(TAG, "Prefetch failed: " + error.getMessage());
+			} else {
+				this.response = response;
+			}
+		}
+	}
+
 }
@@ -0,0 +1,128 @@
+package com.att.ads;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.text.TextUtils;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+/**
+ * Shows text and image ads in an {@link ATTAdView} with an ImageView or a
+ * TextView, instead of loading a page for each ad. The image is the one
+ * decoded by the image cache when the ad arrived. Third party ads, whose
+ * content is HTML, are shown in a web view the ad view borrows from
+ * {@link WebViewPool}.
+ * <p>
+ * All methods must be called on the UI thread.
+ * 
+ * @author ATT
+ */
+class NativeAdRenderer {
+	private final ATTAdView adView;
+	private ImageView imageView;
+	private TextView textView;
+	private String clickUrl;
+
+	NativeAdRenderer(ATTAdView adView) {
+		this.adView = adView;
+	}
+
+	/**
+	 * Shows the ad if it can be shown natively.
+	 * 
+	 * @param type
+	 *            type of the ad
+	 * @param clickUrl
+	 * @param image
+	 *            the decoded image of an image ad
+	 * @param text
+	 *            the text of a text ad
+	 * @return false if the ad must be shown in the web view instead
+	 */
+	boolean show(String type, String clickUrl, Bitmap image, String text) {
+		if (!canShow(type, image, text)) {
+			return false;
+		}
+		if (Constants.ADS_IMAGE_TYPE.equals(type)) {
+			if (null == imageView) {
+				imageView = new ImageView(adView.getContext());
+				// as the page did: at its own size, shrunk only if it does not fit
+				imageView.setScaleType(ImageView.ScaleType.CENTER_INSIDE);
+				init(imageView);
+			}
+			imageView.setImageBitmap(image);
+			showOnly(imageView, textView);
+		} else {
+			if (null == textView) {
+				textView = new TextView(adView.getContext());
+				textView.setGravity(Gravity.CENTER);
+				textView.setTextColor(Color.BLUE);
+				textView.setMaxLines(2);
+				textView.setEllipsize(TextUtils.TruncateAt.END);
+				init(textView);
+			}
+			textView.setText(text);
+			showOnly(textView, imageView);
+		}
+		this.clickUrl = clickUrl;
+		return true;
+	}
+
+	/**
+	 * Tells whether {@link #show} shows the ad natively. May be called on any
+	 * thread.
+	 * 
+	 * @param type
+	 *            type of the ad
+	 * @param image
+	 *            the decoded image of an image ad
+	 * @param text
+	 *            the text of a text ad
+	 * @return false if the ad must be shown in the web view instead
+	 */
+	static boolean canShow(String type, Bitmap image, String text) {
+		return (Constants.ADS_IMAGE_TYPE.equals(type) && null != image)
+				|| (Constants.ADS_TEXT_TYPE.equals(type) && !TextUtils.isEmpty(text));
+	}
+
+	/**
+	 * Hides the ad shown natively, so that a third party ad can be shown.
+	 */
+	void hide() {
+		showOnly(null, imageView);
+		showOnly(null, textView);
+		if (null != imageView) {
+			// do not keep the last image from being collected
+			imageView.setImageBitmap(null);
+		}
+		clickUrl = null;
+	}
+
+	private void init(View view) {
+		view.setBackgroundColor(Color.WHITE);
+		view.setOnClickListener(new View.OnClickListener() {
+			@Override
+			public void onClick(View v) {
+				if (null != clickUrl && clickUrl.length() != 0) {
+					adView.onAdClick(clickUrl);
+				}
+			}
+		});
+		view.setVisibility(View.GONE);
+		adView.addView(view, new FrameLayout.LayoutParams(
+				ViewGroup.LayoutParams.FILL_PARENT, ViewGroup.LayoutParams.FILL_PARENT));
+	}
+
+	private static void showOnly(View shown, View hidden) {
+		if (null != shown) {
+			shown.setVisibility(View.VISIBLE);
+		}
+		if (null != hidden) {
+			hidden.setVisibility(View.GONE);
+		}
+	}
+}
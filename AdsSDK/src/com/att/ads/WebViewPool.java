@@ -0,0 +1,143 @@
+package com.att.ads;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.os.Build;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+/**
+ * Keeps web views ready for the full screen ad dialog, so that a tap on an ad
+ * does not wait for a web view to be created. The web views of a context are
+ * created while an ad view that opens the dialog is attached to a window of
+ * that context, and destroyed when the last such ad view is detached. Ad
+ * views also borrow a web view from here while they show a third party ad.
+ * <p>
+ * All methods must be called on the UI thread.
+ * 
+ * @author ATT
+ */
+final class WebViewPool {
+	// idle web views kept per context
+	private static final int MAX_IDLE = 1;
+
+	private static class Pool {
+		int users = 0;
+		final LinkedList<WebView> idle = new LinkedList<WebView>();
+	}
+
+	private static final HashMap<Context, Pool> pools = new HashMap<Context, Pool>();
+
+	private static String defaultUserAgent = null;
+
+	private WebViewPool() {
+	}
+
+	/**
+	 * Registers an ad view of the context, and creates a web view for it if
+	 * none is ready.
+	 * 
+	 * @param context
+	 */
+	static void register(Context context) {
+		Pool pool = pools.get(context);
+		if (null == pool) {
+			pool = new Pool();
+			pools.put(context, pool);
+		}
+		++pool.users;
+		if (pool.idle.isEmpty()) {
+			pool.idle.add(create(context));
+		}
+	}
+
+	/**
+	 * Unregisters an ad view of the context; the web views of the context are
+	 * destroyed with its last ad view.
+	 * 
+	 * @param context
+	 */
+	static void unregister(Context context) {
+		Pool pool = pools.get(context);
+		if (null == pool || --pool.users > 0) {
+			return;
+		}
+		pools.remove(context);
+		for (WebView view : pool.idle) {
+			view.destroy();
+		}
+	}
+
+	/**
+	 * Takes a ready web view of the context, or creates one.
+	 * 
+	 * @param context
+	 * @return WebView
+	 */
+	static WebView obtain(Context context) {
+		Pool pool = pools.get(context);
+		if (null != pool && !pool.idle.isEmpty()) {
+			return pool.idle.removeFirst();
+		}
+		return create(context);
+	}
+
+	/**
+	 * Returns a web view taken by {@link #obtain(Context)}. It is cleared and
+	 * kept for the next dialog, or destroyed if enough are kept.
+	 * 
+	 * @param view
+	 */
+	static void recycle(WebView view) {
+		ViewParent parent = view.getParent();
+		if (parent instanceof ViewGroup) {
+			((ViewGroup) parent).removeView(view);
+		}
+		view.stopLoading();
+		Pool pool = pools.get(view.getContext());
+		if (null == pool || pool.idle.size() >= MAX_IDLE) {
+			view.destroy();
+			return;
+		}
+		view.setWebViewClient(new WebViewClient());
+		view.getSettings().setJavaScriptEnabled(true);
+		view.loadUrl("about:blank");
+		view.clearHistory();
+		pool.idle.add(view);
+	}
+
+	/**
+	 * Returns the user agent of the web views, read once per process. Before
+	 * Android 4.2 it can only be read from a web view, so one is taken from
+	 * the pool for it.
+	 * 
+	 * @param context
+	 * @return the user agent
+	 */
+	static String getDefaultUserAgent(Context context) {
+		if (null == defaultUserAgent) {
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+				defaultUserAgent = WebSettings.getDefaultUserAgent(context);
+			} else {
+				WebView view = obtain(context);
+				defaultUserAgent = view.getSettings().getUserAgentString();
+				recycle(view);
+			}
+		}
+		return defaultUserAgent;
+	}
+
+	// Since the webview content is generated internally by adservice provider enabling the javascript.
+	@SuppressLint("SetJavaScriptEnabled")
+	private static WebView create(Context context) {
+		WebView view = new WebView(context);
+		view.getSettings().setJavaScriptEnabled(true);
+		return view;
+	}
+}
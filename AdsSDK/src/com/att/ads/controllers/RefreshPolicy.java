@@ -0,0 +1,209 @@
+package com.att.ads.controllers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PowerManager;
+import android.telephony.TelephonyManager;
+import android.util.Log;
+
+import com.att.ads.ATTAdView;
+
+/**
+ * Decides how long an {@link ATTAdView} waits before it refreshes its ad.
+ * <p>
+ * Refreshes pause while the screen is off, and resume when it is turned on
+ * again. The refresh period is doubled on a metered network, on a slow (2G)
+ * network and on a low battery that is not charging, and doubled again for
+ * each failed load in a row, such as an error or no ad to show, up to
+ * {@link #MAX_REFRESH_PERIOD}. A successful load ends the backoff.
+ * 
+ * @author ATT
+ */
+public class RefreshPolicy {
+	private static final String TAG = "RefreshPolicy";
+
+	/** The longest wait between refreshes, in milliseconds. */
+	public static final long MAX_REFRESH_PERIOD = 30 * 60 * 1000;
+	// battery level in percent at or below which refreshes are stretched
+	private static final int LOW_BATTERY_LEVEL = 15;
+	// failures after which the backoff stops growing
+	private static final int MAX_BACKOFF_STEPS = 5;
+
+	private final ATTAdView adView;
+	private final Context context;
+	private final ConnectivityManager connectivityManager;
+	private final PowerManager powerManager;
+	private final AtomicInteger failures = new AtomicInteger();
+	private ScreenReceiver screenReceiver;
+
+	/**
+	 * Constructor set the {@link ATTAdView} and {@link Context}.
+	 * @param adView
+	 * @param context
+	 */
+	public RefreshPolicy(ATTAdView adView, Context context) {
+		this.adView = adView;
+		this.context = context;
+		connectivityManager = (ConnectivityManager) context
+				.getSystemService(Context.CONNECTIVITY_SERVICE);
+		powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+	}
+
+	/**
+	 * Gets the wait before the next refresh.
+	 * 
+	 * @param periodInMS
+	 *            the refresh period set for the view, in milliseconds
+	 * @return the wait in milliseconds, or -1 if refreshes are paused
+	 */
+	public long getRefreshDelay(long periodInMS) {
+		if (!isScreenOn()) {
+			return -1;
+		}
+		long delay = periodInMS;
+		NetworkInfo ni = connectivityManager.getActiveNetworkInfo();
+		if (null != ni) {
+			if (isMetered(ni)) {
+				delay *= 2;
+			}
+			if (isSlow(ni)) {
+				delay *= 2;
+			}
+		}
+		if (isBatteryLow()) {
+			delay *= 2;
+		}
+		return backoff(periodInMS, delay, failures.get());
+	}
+
+	/**
+	 * Applies the backoff for the failed loads in a row to a delay.
+	 * 
+	 * @param periodInMS
+	 *            the refresh period set for the view, in milliseconds
+	 * @param delay
+	 *            the period stretched for the network and battery state
+	 * @param failures
+	 *            failed loads in a row
+	 * @return the wait in milliseconds
+	 */
+	static long backoff(long periodInMS, long delay, int failures) {
+		delay <<= Math.min(failures, MAX_BACKOFF_STEPS);
+		// never shorter than the period set, even if it exceeds the maximum
+		return Math.max(periodInMS, Math.min(delay, MAX_REFRESH_PERIOD));
+	}
+
+	/**
+	 * Records a successful load, which ends the backoff.
+	 */
+	public void onSuccess() {
+		failures.set(0);
+	}
+
+	/**
+	 * Records a failed load, which doubles the wait before the next refresh.
+	 */
+	public void onFailure() {
+		Log.d(TAG, "Failed loads in a row: " + failures.incrementAndGet());
+	}
+
+	/**
+	 * Checks whether the screen is on.
+	 * @return true if the screen is on, or its state is unknown
+	 */
+	public boolean isScreenOn() {
+		return null == powerManager || powerManager.isScreenOn();
+	}
+
+	/**
+	 * Registers for the screen on and off events, which pause and resume the
+	 * refreshes of the view.
+	 */
+	public void startListening() {
+		if (null != screenReceiver)
+			return;
+		screenReceiver = new ScreenReceiver();
+		IntentFilter filter = new IntentFilter();
+		filter.addAction(Intent.ACTION_SCREEN_ON);
+		filter.addAction(Intent.ACTION_SCREEN_OFF);
+		try {
+			context.registerReceiver(screenReceiver, filter);
+		} catch (Exception e) {
+			Log.e(TAG, "Unable to register screen receiver: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Unregisters the screen receiver.
+	 */
+	public void stopListening() {
+		if (null == screenReceiver)
+			return;
+		try {
+			context.unregisterReceiver(screenReceiver);
+		} catch (Exception e) {
+			Log.e(TAG, "Unable to unregister screen receiver: " + e.getMessage());
+		}
+		screenReceiver = null;
+	}
+
+	private boolean isMetered(NetworkInfo ni) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			return connectivityManager.isActiveNetworkMetered();
+		}
+		return ni.getType() == ConnectivityManager.TYPE_MOBILE;
+	}
+
+	private static boolean isSlow(NetworkInfo ni) {
+		if (ni.getType() != ConnectivityManager.TYPE_MOBILE) {
+			return false;
+		}
+		switch (ni.getSubtype()) {
+		case TelephonyManager.NETWORK_TYPE_GPRS:
+		case TelephonyManager.NETWORK_TYPE_EDGE:
+		case TelephonyManager.NETWORK_TYPE_CDMA:
+		case TelephonyManager.NETWORK_TYPE_1xRTT:
+		case TelephonyManager.NETWORK_TYPE_IDEN:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private boolean isBatteryLow() {
+		// the battery state is a sticky broadcast, so no receiver is kept
+		Intent battery = context.registerReceiver(null, new IntentFilter(
+				Intent.ACTION_BATTERY_CHANGED));
+		if (null == battery) {
+			return false;
+		}
+		int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+		if (status == BatteryManager.BATTERY_STATUS_CHARGING
+				|| status == BatteryManager.BATTERY_STATUS_FULL) {
+			return false;
+		}
+		int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+		int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+		return level >= 0 && scale > 0 && level * 100 / scale <= LOW_BATTERY_LEVEL;
+	}
+
+	private class ScreenReceiver extends BroadcastReceiver {
+		@Override
+		public void onReceive(Context context, Intent intent) {
+			if (Intent.ACTION_SCREEN_OFF.equals(intent.getAction())) {
+				Log.d(TAG, "Screen off, refresh paused");
+				adView.stopTimer(true);
+			} else if (Intent.ACTION_SCREEN_ON.equals(intent.getAction())) {
+				adView.resumeTimer();
+			}
+		}
+	}
+}
@@ -1,5 +1,11 @@
 package com.att.ads.model;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import com.att.ads.Constants;
+
 /**
  * Class encapsulates all of the data from Ad service response.
  * 
@@ -10,6 +16,42 @@ public class AdServiceResponse {
 	private ImageUrl imageUrl= null;
 	private String type = null;
 	private String text = null;
+	private String content = null;
+	private String rawResponse = null;
+
+	/**
+	 * Parses the JSON body of an ad service response. The body is parsed
+	 * once; the response keeps it for {@link #getRawResponse()}.
+	 * 
+	 * @param json
+	 *            the response body
+	 * @return the response
+	 * @throws JSONException
+	 *             if the body is not an AdsResponse with the fields of its type
+	 */
+	public static AdServiceResponse parse(String json) throws JSONException {
+		Object root = new JSONTokener(json).nextValue();
+		if (!(root instanceof JSONObject)) {
+			throw new JSONException("AdsResponse expected");
+		}
+		JSONObject ads = ((JSONObject) root).getJSONObject("AdsResponse")
+				.getJSONObject("Ads");
+
+		AdServiceResponse response = new AdServiceResponse();
+		response.rawResponse = json;
+		response.type = ads.getString("Type");
+		response.clickUrl = ads.getString("ClickUrl");
+		if (response.type.equals(Constants.ADS_IMAGE_TYPE)) {
+			ImageUrl imageUrl = response.new ImageUrl();
+			imageUrl.setImage(ads.getJSONObject(Constants.ADS_IMAGE_URL).getString("Image"));
+			response.imageUrl = imageUrl;
+		} else if (response.type.equals(Constants.ADS_TEXT_TYPE)) {
+			response.text = ads.getString("Text");
+		} else {
+			response.content = ads.getString("Content");
+		}
+		return response;
+	}
 	
 	public class ImageUrl {
 		private String image = null;
@@ -46,5 +88,18 @@ public class AdServiceResponse {
 	public void setText(String text) {
 		this.text = text;
 	}
+	public String getContent() {
+		return content;
+	}
+	public void setContent(String content) {
+		this.content = content;
+	}
+	/**
+	 * Gets the JSON body the response was parsed from.
+	 * @return the body, or null if the response was not parsed
+	 */
+	public String getRawResponse() {
+		return rawResponse;
+	}
 	
 }
@@ -0,0 +1,97 @@
+package com.att.ads.util;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Build;
+import android.os.Process;
+
+/**
+ * The threads of the Ads SDK: one scheduler for the refresh timers of all
+ * ad views, and a bounded pool of workers for ad requests, prefetches and
+ * other network work. The number of threads does not grow with the number of
+ * ad views on screen.
+ * <p>
+ * Scheduled tasks are handed to the workers when they are due, so a slow
+ * request never delays the timers of other views.
+ * 
+ * @author ATT
+ */
+public final class AdExecutors {
+	// the most requests the SDK runs at a time
+	private static final int MAX_WORKERS = 3;
+	// how long an idle worker is kept, in seconds
+	private static final long WORKER_KEEP_ALIVE = 30;
+
+	private static final ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1,
+			new AdThreadFactory("[ATTAds] Scheduler"));
+
+	private static final ThreadPoolExecutor workers = new ThreadPoolExecutor(MAX_WORKERS,
+			MAX_WORKERS, WORKER_KEEP_ALIVE, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), new AdThreadFactory("[ATTAds] Worker"));
+
+	static {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+			// no threads are kept while the app shows no ads
+			workers.allowCoreThreadTimeOut(true);
+		}
+	}
+
+	private AdExecutors() {
+	}
+
+	/**
+	 * Runs the task on a worker as soon as one is free.
+	 * 
+	 * @param task
+	 */
+	public static void execute(Runnable task) {
+		workers.execute(task);
+	}
+
+	/**
+	 * Runs the task on a worker after the delay. Cancelling the returned
+	 * future before the delay has passed keeps the task from running.
+	 * 
+	 * @param task
+	 * @param delayInMS
+	 *            delay in milliseconds
+	 * @return the future of the scheduled task
+	 */
+	public static ScheduledFuture<?> schedule(final Runnable task, long delayInMS) {
+		return scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				workers.execute(task);
+			}
+		}, delayInMS, TimeUnit.MILLISECONDS);
+	}
+
+	private static class AdThreadFactory implements ThreadFactory {
+		private final String name;
+		private final AtomicInteger count = new AtomicInteger();
+
+		AdThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(final Runnable r) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+					r.run();
+				}
+			}, name + " " + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,468 @@
+package com.att.ads.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.cookie.DateParseException;
+import org.apache.http.impl.cookie.DateUtils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Base64;
+
+/**
+ * Caches the images of image ads on disk, keyed by the image URL, and keeps
+ * the most recently used ones decoded in memory. Images are fetched and
+ * decoded when the ad response arrives, so showing the ad does not wait on
+ * the network, and an ad that rotates back in is shown from the cache.
+ * <p>
+ * A cached image is used without a request while the Cache-Control max-age
+ * or Expires header of its response allows, and is then validated with its
+ * ETag or Last-Modified date. The disk cache is limited to
+ * {@link #MAX_DISK_SIZE} bytes, the least recently used images being removed
+ * first.
+ *
+ * @author ATT
+ */
+public class AdImageCache {
+	private static final String TAG = "AdImageCache";
+	private static AdImageCache instance;
+
+	/** Maximum size of the images on disk, in bytes. */
+	public static final long MAX_DISK_SIZE = 4 * 1024 * 1024;
+	/** Maximum size of the decoded images in memory, in bytes. */
+	public static final int MAX_MEMORY_SIZE = 2 * 1024 * 1024;
+	// freshness of a response without max-age or Expires, in milliseconds
+	private static final long DEFAULT_MAX_AGE = 60 * 60 * 1000;
+
+	private static final String IMAGE_SUFFIX = ".img";
+	private static final String META_SUFFIX = ".meta";
+	private static final String ETAG = "etag";
+	private static final String LAST_MODIFIED = "lastModified";
+	private static final String EXPIRES = "expires";
+	private static final String CONTENT_TYPE = "contentType";
+
+	private final File directory;
+	private final ConcurrentHashMap<String, FutureTask<File>> inFlight = new ConcurrentHashMap<String, FutureTask<File>>();
+	// held while the image and meta files of an image are replaced, deleted or
+	// read together, so that an image is never read with the meta of another
+	private final Object filesLock = new Object();
+
+	// guarded by itself; in access order, so the eldest entry is the least recently used
+	private final LinkedHashMap<String, Bitmap> bitmaps = new LinkedHashMap<String, Bitmap>(16, 0.75f, true);
+	private int bitmapsSize = 0;
+
+	/**
+	 * Returns the image cache of the application.
+	 * @param context
+	 * @return AdImageCache
+	 */
+	public static synchronized AdImageCache getInstance(Context context) {
+		if (instance == null)
+			instance = new AdImageCache(new File(context.getCacheDir(), "att_ads_images"));
+
+		return instance;
+	}
+
+	private AdImageCache(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Fetches the image into the cache if it is not there or no longer
+	 * fresh, and decodes it. Performs blocking I/O, so it must be called from
+	 * a background thread. Concurrent calls for the same URL make one request.
+	 *
+	 * @param url
+	 *            URL of the image
+	 * @return the decoded image, or null if it could not be fetched or decoded
+	 */
+	public Bitmap prefetch(String url) {
+		File file = fetch(url);
+		if (null == file) {
+			return null;
+		}
+		Bitmap bitmap = getBitmap(url);
+		if (null == bitmap) {
+			bitmap = BitmapFactory.decodeFile(file.getPath());
+			if (null != bitmap) {
+				putBitmap(url, bitmap);
+			}
+		}
+		return bitmap;
+	}
+
+	/**
+	 * Returns the decoded image if it is in memory. Does no I/O.
+	 *
+	 * @param url
+	 * @return the image, or null
+	 */
+	public Bitmap getBitmap(String url) {
+		synchronized (bitmaps) {
+			return bitmaps.get(url);
+		}
+	}
+
+	/**
+	 * Returns the cached image as a data URI, for showing it in a web view
+	 * without a request. Makes no request, but reads the file, so it must be
+	 * called from a background thread.
+	 *
+	 * @param url
+	 * @return the data URI, or null if the image is not cached
+	 */
+	public String getDataUri(String url) {
+		String name = nameOf(url);
+		File file = new File(directory, name + IMAGE_SUFFIX);
+		try {
+			Properties meta;
+			byte[] data;
+			synchronized (filesLock) {
+				meta = readMeta(name);
+				if (null == meta || !file.exists()) {
+					return null;
+				}
+				data = readFile(file);
+			}
+			touch(file);
+			return "data:" + meta.getProperty(CONTENT_TYPE, "image/png") + ";base64,"
+					+ Base64.encodeToString(data, Base64.NO_WRAP);
+		} catch (IOException e) {
+			SdkLog.e(TAG, "Unable to read cached image: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the cached file of the image, making a request only if the image
+	 * is not cached or is no longer fresh.
+	 */
+	private File fetch(final String url) {
+		FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+			@Override
+			public File call() throws IOException {
+				return load(url);
+			}
+		});
+		FutureTask<File> running = inFlight.putIfAbsent(url, task);
+		if (null != running) {
+			task = running;
+		} else {
+			try {
+				task.run();
+			} finally {
+				inFlight.remove(url, task);
+			}
+		}
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			SdkLog.e(TAG, "Unable to fetch image " + SdkLog.redactUrl(url) + ": " + e.getCause());
+			return null;
+		}
+	}
+
+	private File load(String url) throws IOException {
+		String name = nameOf(url);
+		File file = new File(directory, name + IMAGE_SUFFIX);
+		Properties meta;
+		synchronized (filesLock) {
+			meta = readMeta(name);
+			if (!file.exists()) {
+				meta = null;
+			}
+		}
+		if (null != meta
+				&& System.currentTimeMillis() < Long.parseLong(meta.getProperty(EXPIRES, "0"))) {
+			touch(file);
+			return file;
+		}
+
+		HttpGet get = new HttpGet(url);
+		if (null != meta) {
+			if (null != meta.getProperty(ETAG))
+				get.addHeader("If-None-Match", meta.getProperty(ETAG));
+			if (null != meta.getProperty(LAST_MODIFIED))
+				get.addHeader("If-Modified-Since", meta.getProperty(LAST_MODIFIED));
+		}
+		HttpEntity entity = null;
+		try {
+			HttpResponse response = HttpClientFactory.getThreadSafeClient().execute(get);
+			entity = response.getEntity();
+			int status = response.getStatusLine().getStatusCode();
+			if (status == 304 && null != meta) {
+				SdkLog.d(TAG, "Cached image still valid: " + SdkLog.redactUrl(url));
+				meta.setProperty(EXPIRES, String.valueOf(expiresAt(response)));
+				replace(name, null, writeMeta(name, meta));
+				touch(file);
+				return file;
+			}
+			if (status != 200 || null == entity) {
+				throw new IOException(response.getStatusLine().toString());
+			}
+
+			File tempFile = new File(directory, name + ".tmp");
+			directory.mkdirs();
+			InputStream in = entity.getContent();
+			FileOutputStream out = new FileOutputStream(tempFile);
+			try {
+				byte[] buffer = new byte[8192];
+				for (int n; (n = in.read(buffer)) != -1;) {
+					out.write(buffer, 0, n);
+				}
+			} finally {
+				out.close();
+				in.close();
+			}
+
+			Properties newMeta = new Properties();
+			putHeader(newMeta, ETAG, response.getFirstHeader("ETag"));
+			putHeader(newMeta, LAST_MODIFIED, response.getFirstHeader("Last-Modified"));
+			putHeader(newMeta, CONTENT_TYPE, response.getFirstHeader("Content-Type"));
+			newMeta.setProperty(EXPIRES, String.valueOf(expiresAt(response)));
+			File tempMeta;
+			try {
+				tempMeta = writeMeta(name, newMeta);
+			} catch (IOException e) {
+				tempFile.delete();
+				throw e;
+			}
+			replace(name, tempFile, tempMeta);
+			// the image may have changed, so decode it again
+			removeBitmap(url);
+			trim();
+			return file;
+		} catch (IOException e) {
+			get.abort();
+			throw e;
+		} finally {
+			if (null != entity) {
+				try {
+					entity.consumeContent();
+				} catch (IOException e) {
+					SdkLog.d(TAG, e.toString());
+				}
+			}
+		}
+	}
+
+	/*
+	 * Returns the time until which the response may be used without
+	 * validation, from its Cache-Control max-age or Expires header.
+	 */
+	private static long expiresAt(HttpResponse response) {
+		long now = System.currentTimeMillis();
+		Header cacheControl = response.getFirstHeader("Cache-Control");
+		if (null != cacheControl) {
+			for (String directive : cacheControl.getValue().split(",")) {
+				directive = directive.trim();
+				if (directive.equals("no-cache") || directive.equals("no-store")) {
+					return now;
+				}
+				if (directive.startsWith("max-age=")) {
+					try {
+						return now + Long.parseLong(directive.substring(8).trim()) * 1000;
+					} catch (NumberFormatException e) {
+						// use the other headers
+					}
+				}
+			}
+		}
+		Header expires = response.getFirstHeader("Expires");
+		if (null != expires) {
+			try {
+				return DateUtils.parseDate(expires.getValue()).getTime();
+			} catch (DateParseException e) {
+				return now;
+			}
+		}
+		return now + DEFAULT_MAX_AGE;
+	}
+
+	/*
+	 * Removes the least recently used images until the cache fits MAX_DISK_SIZE.
+	 */
+	private void trim() {
+		File[] files = directory.listFiles();
+		if (null == files) {
+			return;
+		}
+		long size = 0;
+		for (File file : files) {
+			size += file.length();
+		}
+		if (size <= MAX_DISK_SIZE) {
+			return;
+		}
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				long diff = a.lastModified() - b.lastModified();
+				return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+			}
+		});
+		for (File file : files) {
+			if (size <= MAX_DISK_SIZE) {
+				break;
+			}
+			String fileName = file.getName();
+			if (!fileName.endsWith(IMAGE_SUFFIX)) {
+				continue;
+			}
+			File metaFile = new File(directory,
+					fileName.substring(0, fileName.length() - IMAGE_SUFFIX.length()) + META_SUFFIX);
+			size -= file.length() + metaFile.length();
+			synchronized (filesLock) {
+				metaFile.delete();
+				file.delete();
+			}
+		}
+	}
+
+	private void putBitmap(String url, Bitmap bitmap) {
+		synchronized (bitmaps) {
+			Bitmap old = bitmaps.put(url, bitmap);
+			if (null != old) {
+				bitmapsSize -= sizeOf(old);
+			}
+			bitmapsSize += sizeOf(bitmap);
+			Iterator<Map.Entry<String, Bitmap>> it = bitmaps.entrySet().iterator();
+			while (bitmapsSize > MAX_MEMORY_SIZE && it.hasNext()) {
+				Map.Entry<String, Bitmap> eldest = it.next();
+				if (eldest.getValue() == bitmap) {
+					// keep the image just decoded, even if it alone exceeds the limit
+					continue;
+				}
+				bitmapsSize -= sizeOf(eldest.getValue());
+				it.remove();
+			}
+		}
+	}
+
+	private void removeBitmap(String url) {
+		synchronized (bitmaps) {
+			Bitmap old = bitmaps.remove(url);
+			if (null != old) {
+				bitmapsSize -= sizeOf(old);
+			}
+		}
+	}
+
+	private static int sizeOf(Bitmap bitmap) {
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+	private Properties readMeta(String name) throws IOException {
+		File metaFile = new File(directory, name + META_SUFFIX);
+		if (!metaFile.exists()) {
+			return null;
+		}
+		Properties meta = new Properties();
+		FileInputStream in = new FileInputStream(metaFile);
+		try {
+			meta.load(in);
+		} finally {
+			in.close();
+		}
+		return meta;
+	}
+
+	/*
+	 * Writes the meta to a temporary file, which replace() moves into place.
+	 */
+	private File writeMeta(String name, Properties meta) throws IOException {
+		File tempFile = new File(directory, name + META_SUFFIX + ".tmp");
+		FileOutputStream out = new FileOutputStream(tempFile);
+		try {
+			try {
+				meta.store(out, null);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			tempFile.delete();
+			throw e;
+		}
+		return tempFile;
+	}
+
+	/*
+	 * Moves the temporary meta file and, unless it is null, the temporary
+	 * image file into place together. If the meta is replaced but the image
+	 * is not, the meta is removed, so the old image is fetched again.
+	 */
+	private void replace(String name, File tempImage, File tempMeta) throws IOException {
+		File file = new File(directory, name + IMAGE_SUFFIX);
+		File metaFile = new File(directory, name + META_SUFFIX);
+		synchronized (filesLock) {
+			if (tempMeta.renameTo(metaFile)) {
+				if (null == tempImage || tempImage.renameTo(file)) {
+					return;
+				}
+				metaFile.delete();
+			}
+		}
+		tempMeta.delete();
+		if (null != tempImage) {
+			tempImage.delete();
+		}
+		throw new IOException("Unable to replace " + file);
+	}
+
+	private static void putHeader(Properties meta, String key, Header header) {
+		if (null != header) {
+			meta.setProperty(key, header.getValue());
+		}
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		byte[] data = new byte[(int) file.length()];
+		FileInputStream in = new FileInputStream(file);
+		try {
+			int offset = 0;
+			for (int n; offset < data.length && (n = in.read(data, offset, data.length - offset)) != -1;) {
+				offset += n;
+			}
+			return offset == data.length ? data : trimmed(data, offset);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static byte[] trimmed(byte[] data, int length) {
+		byte[] copy = new byte[length];
+		System.arraycopy(data, 0, copy, 0, length);
+		return copy;
+	}
+
+	// the modification time orders the images by last use
+	private static void touch(File file) {
+		file.setLastModified(System.currentTimeMillis());
+	}
+
+	private static String nameOf(String url) {
+		return Utils.md5(url);
+	}
+}
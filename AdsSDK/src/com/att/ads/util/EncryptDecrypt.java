@@ -1,9 +1,13 @@
 package com.att.ads.util;
 
 import android.util.Log;
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
@@ -15,6 +19,13 @@ import javax.crypto.spec.SecretKeySpec;
 /**
  * AES algorithm is the Advanced Encryption Standard. to encrypt, decrypt,
  * generate a message authentication code
+ * <p>
+ * Values are encrypted by {@link #encrypt(String, String)} with a key derived
+ * from the seed by SHA-256, which gives the same key on every device, and a
+ * random IV stored with the value. Values stored by earlier versions, which
+ * used a key generated from a seeded SHA1PRNG, are still read by
+ * {@link #decrypt(String, String)}. Keys are derived once per seed and
+ * Cipher objects are reused by each thread.
  * 
  * @author ATT
  * 
@@ -31,6 +42,19 @@ public class EncryptDecrypt {
 
 	private static IvParameterSpec IV = new IvParameterSpec(iv);
 
+	// Prefix of the values written by encrypt(); older values are plain hex.
+	private static final String VERSION_2 = "v2:";
+
+	private static final int IV_LENGTH = 16;
+
+	private static final ConcurrentHashMap<String, SecretKeySpec> legacyKeys = new ConcurrentHashMap<String, SecretKeySpec>();
+
+	private static final ConcurrentHashMap<String, SecretKeySpec> keys = new ConcurrentHashMap<String, SecretKeySpec>();
+
+	private static final ThreadLocal<Cipher> ciphers = new ThreadLocal<Cipher>();
+
+	private static final SecureRandom random = new SecureRandom();
+
 	/**
 	 * Convert Byte Array to Hex String.
 	 * 
@@ -75,9 +99,108 @@ public class EncryptDecrypt {
 		return hexData;
 	}
 
+	/**
+	 * Encrypts a value with the key for the seed.
+	 * 
+	 * @param strOrigValue
+	 *            value to encrypt
+	 * @param strSeedKey
+	 *            seed of the key, e.g. the name of the preference
+	 * @return the encrypted value, or null if the value is null or empty
+	 * @throws Exception
+	 */
+	public static String encrypt(String strOrigValue, String strSeedKey) throws Exception {
+		if ((strOrigValue == null) || (strOrigValue.length() == 0)) {
+			return null;
+		}
+		byte[] valueIv = new byte[IV_LENGTH];
+		random.nextBytes(valueIv);
+		Cipher cipher = getCipher();
+		cipher.init(Cipher.ENCRYPT_MODE, getKey(strSeedKey), new IvParameterSpec(valueIv));
+		byte[] encrypted = cipher.doFinal(strOrigValue.getBytes("UTF-8"));
+
+		byte[] stored = new byte[IV_LENGTH + encrypted.length];
+		System.arraycopy(valueIv, 0, stored, 0, IV_LENGTH);
+		System.arraycopy(encrypted, 0, stored, IV_LENGTH, encrypted.length);
+		return VERSION_2 + convertToHex(stored);
+	}
+
+	/**
+	 * Decrypts a value stored by {@link #encrypt(String, String)}, or by
+	 * {@link #getEncryptedValue(String, SecretKeySpec)} with the key of
+	 * {@link #getSecretKeySpec(String)}.
+	 * 
+	 * @param strEncryptedValue
+	 *            value to decrypt
+	 * @param strSeedKey
+	 *            seed the value was encrypted with
+	 * @return the decrypted value, or null if the value is null or empty
+	 * @throws Exception
+	 */
+	public static String decrypt(String strEncryptedValue, String strSeedKey) throws Exception {
+		if ((strEncryptedValue == null) || (strEncryptedValue.length() == 0)) {
+			return null;
+		}
+		if (!strEncryptedValue.startsWith(VERSION_2)) {
+			return getDecryptedValue(strEncryptedValue, getSecretKeySpec(strSeedKey));
+		}
+		byte[] stored = convertHexStringToByteArray(strEncryptedValue.substring(VERSION_2.length()));
+		if ((stored == null) || (stored.length <= IV_LENGTH)) {
+			throw new IllegalBlockSizeException("Encrypted value is too short");
+		}
+		Cipher cipher = getCipher();
+		cipher.init(Cipher.DECRYPT_MODE, getKey(strSeedKey), new IvParameterSpec(stored, 0, IV_LENGTH));
+		return new String(cipher.doFinal(stored, IV_LENGTH, stored.length - IV_LENGTH), "UTF-8");
+	}
+
+	/**
+	 * Tells whether a value was stored in the format of earlier versions, and
+	 * should be encrypted again with {@link #encrypt(String, String)}.
+	 * 
+	 * @param strEncryptedValue
+	 * @return true if the value is not empty and not in the current format
+	 */
+	public static boolean isLegacyValue(String strEncryptedValue) {
+		return (strEncryptedValue != null) && (strEncryptedValue.length() > 0)
+				&& !strEncryptedValue.startsWith(VERSION_2);
+	}
+
+	/**
+	 * Gets the key for the seed. The key is the first 128 bits of the SHA-256
+	 * digest of the seed, so it is the same with every security provider.
+	 */
+	private static SecretKeySpec getKey(String strSeedKey) throws NoSuchAlgorithmException,
+			UnsupportedEncodingException {
+		SecretKeySpec key = keys.get(strSeedKey);
+		if (key == null) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			key = new SecretKeySpec(digest.digest(strSeedKey.getBytes("UTF-8")), 0, 16, "AES");
+			keys.put(strSeedKey, key);
+		}
+		return key;
+	}
+
+	/**
+	 * Gets the Cipher of the calling thread; Cipher objects are not thread
+	 * safe, but one can be initialized again for each value.
+	 */
+	private static Cipher getCipher() throws GeneralSecurityException {
+		Cipher cipher = ciphers.get();
+		if (cipher == null) {
+			cipher = Cipher.getInstance(CIPHERMODEPADDING);
+			ciphers.set(cipher);
+		}
+		return cipher;
+	}
+
 	/**
 	 * Creates a new SecretKeySpec for the specified key data and algorithm
 	 * name(AES) in a provider-independent fashion.
+	 * <p>
+	 * This is the key of values stored by earlier versions. It is generated
+	 * from a seeded SHA1PRNG, which not every Android version provides, so
+	 * new values are encrypted with {@link #encrypt(String, String)}. The key
+	 * is generated once per seed.
 	 * 
 	 * @param strSeedKey
 	 * @return
@@ -86,25 +209,37 @@ public class EncryptDecrypt {
 	public static SecretKeySpec getSecretKeySpec(String strSeedKey) throws Exception {
 		SecretKeySpec secretKeySpec = null;
 		if ((strSeedKey != null) && (strSeedKey.length() > 0)) {
-			byte[] byteBSSIDValue = strSeedKey.getBytes();
-			try {
-				SecureRandom rng;
-				if(android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.JELLY_BEAN_MR1)
-					rng = SecureRandom.getInstance("SHA1PRNG", "Crypto");
-				else
-					rng = SecureRandom.getInstance("SHA1PRNG");
-				rng.setSeed(byteBSSIDValue);
-				KeyGenerator kg = KeyGenerator.getInstance("AES");
-				kg.init(128, rng);
-				byte[] byteEncodedKeyValue = kg.generateKey().getEncoded();
-				secretKeySpec = new SecretKeySpec(byteEncodedKeyValue, "AES");
-			} catch (NoSuchAlgorithmException e) {
-				throw e;
+			secretKeySpec = legacyKeys.get(strSeedKey);
+			if (secretKeySpec != null) {
+				return secretKeySpec;
 			}
+			secretKeySpec = generateLegacyKey(strSeedKey);
+			legacyKeys.put(strSeedKey, secretKeySpec);
 		}
 		return secretKeySpec;
 	}
 
+	/*
+	 * Generates the key of earlier versions; see getSecretKeySpec.
+	 */
+	private static SecretKeySpec generateLegacyKey(String strSeedKey) throws Exception {
+		byte[] byteBSSIDValue = strSeedKey.getBytes();
+		try {
+			SecureRandom rng;
+			if(android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.JELLY_BEAN_MR1)
+				rng = SecureRandom.getInstance("SHA1PRNG", "Crypto");
+			else
+				rng = SecureRandom.getInstance("SHA1PRNG");
+			rng.setSeed(byteBSSIDValue);
+			KeyGenerator kg = KeyGenerator.getInstance("AES");
+			kg.init(128, rng);
+			byte[] byteEncodedKeyValue = kg.generateKey().getEncoded();
+			return new SecretKeySpec(byteEncodedKeyValue, "AES");
+		} catch (NoSuchAlgorithmException e) {
+			throw e;
+		}
+	}
+
 	/**
 	 * get Encrypted value by given Original value and A key specification for a
 	 * SecretKey.
@@ -119,7 +254,7 @@ public class EncryptDecrypt {
 		String strValue = null;
 		try {
 			if ((secretKeySpec != null) && (strOrigValue != null) && (strOrigValue.length() > 0)) {
-				Cipher cipher = Cipher.getInstance(CIPHERMODEPADDING);
+				Cipher cipher = getCipher();
 				cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec, IV);
 				byte[] encryptedOrigValue = cipher.doFinal(strOrigValue.getBytes());
 				strValue = convertToHex(encryptedOrigValue);
@@ -156,7 +291,7 @@ public class EncryptDecrypt {
 			byte[] encryptedValue = convertHexStringToByteArray(strEncryptedValue);
 			try {
 				if (secretKeySpec != null) {
-					Cipher cipher = Cipher.getInstance(CIPHERMODEPADDING);
+					Cipher cipher = getCipher();
 					cipher.init(Cipher.DECRYPT_MODE, secretKeySpec, IV);
 					strDecryptedValue = new String(cipher.doFinal(encryptedValue));
 				} else {
@@ -0,0 +1,190 @@
+package com.att.ads.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ring buffer of short strings in a file, for events that must survive the
+ * process until they are delivered. The file holds a fixed number of slots;
+ * when it is full, a new string overwrites the oldest one.
+ * <p>
+ * Strings are numbered in the order they are added, so that a reader can
+ * remove exactly those it delivered, even if newer strings were added or old
+ * ones overwritten meanwhile. The methods are synchronized; the file is kept
+ * open until {@link #close()}.
+ * 
+ * @author ATT
+ */
+public class EventRingBuffer {
+	// version, capacity, head slot, count, sequence number of the head
+	private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 8;
+	private static final int VERSION = 1;
+	/** Bytes of a slot; longer strings are cut. */
+	public static final int SLOT_SIZE = 512;
+
+	private final File file;
+	private final int capacity;
+	private RandomAccessFile raf;
+	private int head;
+	private int count;
+	private long headSequence;
+
+	/**
+	 * A batch of the oldest strings, from {@link EventRingBuffer#peek(int)}.
+	 */
+	public static class Batch {
+		/** Sequence number of the first string. */
+		public final long firstSequence;
+		public final List<String> items;
+
+		Batch(long firstSequence, List<String> items) {
+			this.firstSequence = firstSequence;
+			this.items = items;
+		}
+	}
+
+	/**
+	 * Opens the buffer in the file, creating it if needed. A file with another
+	 * capacity or format is started over.
+	 * 
+	 * @param file
+	 * @param capacity
+	 *            number of slots
+	 */
+	public EventRingBuffer(File file, int capacity) {
+		this.file = file;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Adds a string, overwriting the oldest one if the buffer is full.
+	 * 
+	 * @param item
+	 * @throws IOException
+	 */
+	public synchronized void add(String item) throws IOException {
+		open();
+		byte[] data = item.getBytes("UTF-8");
+		int length = Math.min(data.length, SLOT_SIZE - 2);
+		raf.seek(slotOffset((head + count) % capacity));
+		raf.writeShort(length);
+		raf.write(data, 0, length);
+		if (count == capacity) {
+			head = (head + 1) % capacity;
+			++headSequence;
+		} else {
+			++count;
+		}
+		writeHeader();
+	}
+
+	/**
+	 * Reads the oldest strings without removing them.
+	 * 
+	 * @param max
+	 *            most strings to read
+	 * @return the strings, possibly none
+	 * @throws IOException
+	 */
+	public synchronized Batch peek(int max) throws IOException {
+		open();
+		int n = Math.min(max, count);
+		List<String> items = new ArrayList<String>(n);
+		byte[] data = new byte[SLOT_SIZE];
+		for (int i = 0; i < n; i++) {
+			raf.seek(slotOffset((head + i) % capacity));
+			int length = raf.readUnsignedShort();
+			raf.readFully(data, 0, Math.min(length, SLOT_SIZE - 2));
+			items.add(new String(data, 0, Math.min(length, SLOT_SIZE - 2), "UTF-8"));
+		}
+		return new Batch(headSequence, items);
+	}
+
+	/**
+	 * Removes the strings of a batch that are still in the buffer.
+	 * 
+	 * @param batch
+	 *            a batch from {@link #peek(int)}
+	 * @throws IOException
+	 */
+	public synchronized void remove(Batch batch) throws IOException {
+		open();
+		long end = batch.firstSequence + batch.items.size();
+		int n = (int) Math.max(0, Math.min(count, end - headSequence));
+		if (n == 0) {
+			return;
+		}
+		head = (head + n) % capacity;
+		count -= n;
+		headSequence += n;
+		writeHeader();
+	}
+
+	/**
+	 * @return the number of strings in the buffer
+	 * @throws IOException
+	 */
+	public synchronized int size() throws IOException {
+		open();
+		return count;
+	}
+
+	/**
+	 * Closes the file; it is opened again when needed.
+	 */
+	public synchronized void close() {
+		if (null != raf) {
+			try {
+				raf.close();
+			} catch (IOException e) {
+				// nothing to flush
+			}
+			raf = null;
+		}
+	}
+
+	private void open() throws IOException {
+		if (null != raf) {
+			return;
+		}
+		File dir = file.getParentFile();
+		if (null != dir) {
+			dir.mkdirs();
+		}
+		raf = new RandomAccessFile(file, "rw");
+		if (raf.length() >= HEADER_SIZE) {
+			raf.seek(0);
+			int version = raf.readInt();
+			int storedCapacity = raf.readInt();
+			head = raf.readInt();
+			count = raf.readInt();
+			headSequence = raf.readLong();
+			if (version == VERSION && storedCapacity == capacity && head >= 0
+					&& head < capacity && count >= 0 && count <= capacity) {
+				return;
+			}
+		}
+		// new, or not readable: start over
+		head = 0;
+		count = 0;
+		headSequence = 0;
+		raf.setLength(0);
+		writeHeader();
+	}
+
+	private void writeHeader() throws IOException {
+		raf.seek(0);
+		raf.writeInt(VERSION);
+		raf.writeInt(capacity);
+		raf.writeInt(head);
+		raf.writeInt(count);
+		raf.writeLong(headSequence);
+	}
+
+	private static long slotOffset(int slot) {
+		return HEADER_SIZE + (long) slot * SLOT_SIZE;
+	}
+}
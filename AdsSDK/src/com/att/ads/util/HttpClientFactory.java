@@ -1,5 +1,14 @@
 package com.att.ads.util;
 
+import java.net.URI;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
@@ -8,18 +17,30 @@ import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+
+import android.util.Log;
 
 import com.att.ads.Constants;
 
 /**
  * added to solve the trusted authentication exception while sending data to
  * server and thread-safe client singleton.
+ * <p>
+ * The client keeps connections alive between requests. To return a connection
+ * to the pool for reuse, read its response entity to the end or call
+ * consumeContent() on it; abort a request only when the connection is broken.
  * 
  * @author ATT
  */
 public class HttpClientFactory {
+	private static final String TAG = "HttpClientFactory";
+	// how long a pre-warmed connection may wait in the pool for its first request
+	private static final long PREWARM_KEEP_ALIVE = 60;
 	private static DefaultHttpClient client;
 	private static SSLSocketFactory sslSocketFactory;
+	// routes with a pre-warm in progress
+	private static final HashSet<HttpRoute> prewarming = new HashSet<HttpRoute>();
 
 	/**
 	 * Creates a new HTTP client from parameters and a new thread safe
@@ -66,6 +87,70 @@ public class HttpClientFactory {
 		}
 	}
 
+	/**
+	 * Opens a connection to the host of the URL in the background, including
+	 * the TLS handshake, and leaves it in the pool of the thread-safe client,
+	 * so that the next request to the host takes a single round trip. Does
+	 * nothing if the pool already has a connection to the host.
+	 * 
+	 * @param url
+	 *            URL of a later request
+	 */
+	public static void prewarm(final String url) {
+		AdExecutors.execute(new Runnable() {
+			@Override
+			public void run() {
+				prewarmConnection(url);
+			}
+		});
+	}
+
+	private static void prewarmConnection(String url) {
+		DefaultHttpClient httpClient = getThreadSafeClient();
+		ClientConnectionManager manager = httpClient.getConnectionManager();
+		HttpRoute route = null;
+		boolean isPrewarming = false;
+		ManagedClientConnection connection = null;
+		try {
+			URI uri = new URI(url);
+			HttpHost target = new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme());
+			BasicHttpContext context = new BasicHttpContext();
+			// the same route as a request for the URL, so the request finds the connection
+			route = httpClient.getRoutePlanner().determineRoute(target, new HttpGet(url), context);
+			synchronized (prewarming) {
+				if (!prewarming.add(route)) {
+					return;
+				}
+				isPrewarming = true;
+			}
+			connection = manager.requestConnection(route, null).getConnection(
+					Constants.CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+			if (!connection.isOpen()) {
+				connection.open(route, context, httpClient.getParams());
+				Log.d(TAG, "Pre-warmed connection to " + target);
+			}
+			connection.markReusable();
+			manager.releaseConnection(connection, PREWARM_KEEP_ALIVE, TimeUnit.SECONDS);
+			connection = null;
+		} catch (Exception e) {
+			// the request opens its own connection
+			Log.d(TAG, "Unable to pre-warm connection: " + e);
+		} finally {
+			if (connection != null) {
+				try {
+					connection.abortConnection();
+				} catch (Exception e) {
+					Log.d(TAG, e.toString());
+				}
+			}
+			if (isPrewarming) {
+				synchronized (prewarming) {
+					prewarming.remove(route);
+				}
+			}
+		}
+	}
+
 	/**
 	 * get the scheme register used by this connection manager.
 	 * 
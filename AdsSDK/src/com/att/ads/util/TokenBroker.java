@@ -0,0 +1,555 @@
+package com.att.ads.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.content.Context;
+
+/**
+ * Obtains client credentials access tokens for every AT&amp;T SDK in the
+ * application, keyed by client id and scope.
+ *
+ * <p>
+ * Tokens are kept in memory and in a {@link Storage}, so that a token
+ * obtained earlier, or in an earlier run of the application, is reused
+ * instead of being requested again. When several threads need the same token
+ * at the same time, only one of them requests it and the others wait for its
+ * result. An expired token is renewed with its refresh token when it has one,
+ * and requested anew otherwise. Requests are sent with the client of
+ * {@link HttpClientFactory}, so they use its kept alive connections and the
+ * SSL socket factory set for the SDK.
+ * </p>
+ *
+ * <p>
+ * Unless a storage is passed with the request, tokens are saved in the
+ * application's files, once {@link #init(Context)} has been called. This is
+ * the broker of the Ads SDK, which does not link the IAM SDK; it follows
+ * com.att.api.oauth.TokenBroker, whose tokens it shares through the same
+ * files, so keep the two in step.
+ * </p>
+ *
+ * An example of usage can be found below:
+ * <pre>
+ * <code>
+ * TokenBroker.init(context);
+ * TokenBroker.Token token = TokenBroker.getInstance().getToken(
+ *         "https://api.att.com/oauth/v4/token", clientId, clientSecret, "TTS");
+ * </code>
+ * </pre>
+ *
+ * @author ps350r
+ */
+public final class TokenBroker {
+
+	/* A token expiring within this many seconds is renewed before use. */
+	private static final long EXPIRY_MARGIN = 60;
+
+	/* Directory of the FileStorage, in the application's files directory. */
+	private static final String TOKEN_DIRECTORY = "att_tokens";
+
+	private static final TokenBroker INSTANCE = new TokenBroker();
+
+	/**
+	 * An access token and when it expires.
+	 */
+	public static final class Token {
+
+		/** Used to indicate access token does not expire. */
+		public static final long NO_EXPIRATION = -1;
+
+		private final String accessToken;
+		private final String refreshToken;
+		private final long accessTokenExpiry;
+
+		/**
+		 * @param accessToken access token
+		 * @param refreshToken refresh token, or null if there is none
+		 * @param accessTokenExpiry Unix timestamp, in seconds, of the access
+		 *        token expiry, or <code>NO_EXPIRATION</code>
+		 */
+		public Token(String accessToken, String refreshToken, long accessTokenExpiry) {
+			this.accessToken = accessToken;
+			this.refreshToken = refreshToken;
+			this.accessTokenExpiry = accessTokenExpiry;
+		}
+
+		public String getAccessToken() {
+			return accessToken;
+		}
+
+		public String getRefreshToken() {
+			return refreshToken;
+		}
+
+		public long getAccessTokenExpiry() {
+			return accessTokenExpiry;
+		}
+
+		/**
+		 * Gets whether the access token expires within the specified time.
+		 *
+		 * @param seconds time from now, in seconds
+		 * @return <tt>true</tt> if the token expires within that time
+		 */
+		public boolean expiresWithin(long seconds) {
+			return accessTokenExpiry != NO_EXPIRATION
+				&& System.currentTimeMillis() / 1000 + seconds >= accessTokenExpiry;
+		}
+	}
+
+	/**
+	 * Persists tokens between runs of the application.
+	 */
+	public interface Storage {
+		/**
+		 * @param key identifies the token
+		 * @return the saved token, or null if there is none
+		 */
+		Token load(String key) throws IOException;
+
+		void save(String key, Token token) throws IOException;
+
+		void remove(String key) throws IOException;
+	}
+
+	/**
+	 * Thrown when the OAuth server rejects a token request.
+	 */
+	public static class TokenException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		private final int statusCode;
+		private final String response;
+
+		public TokenException(int statusCode, String response) {
+			super("OAuth request failed with status " + statusCode + ": " + response);
+			this.statusCode = statusCode;
+			this.response = response;
+		}
+
+		public int getStatusCode() {
+			return statusCode;
+		}
+
+		public String getResponse() {
+			return response;
+		}
+	}
+
+	/**
+	 * Saves each token in its own properties file in a directory. Files are
+	 * written to a temporary file first and then renamed, so that a reader
+	 * never sees a partly written token.
+	 */
+	public static class FileStorage implements Storage {
+		private final File directory;
+
+		public FileStorage(File directory) {
+			this.directory = directory;
+		}
+
+		@Override
+		public Token load(String key) throws IOException {
+			final File file = fileFor(key);
+			if (!file.exists()) {
+				return null;
+			}
+			final Properties props = new Properties();
+			final FileInputStream in = new FileInputStream(file);
+			try {
+				props.load(in);
+			} finally {
+				in.close();
+			}
+			final String accessToken = props.getProperty("accessToken");
+			if (accessToken == null || accessToken.length() == 0) {
+				return null;
+			}
+			final String refreshToken = props.getProperty("refreshToken");
+			try {
+				return new Token(accessToken,
+						refreshToken == null || refreshToken.length() == 0 ? null : refreshToken,
+						Long.parseLong(props.getProperty("accessTokenExpiry", "0")));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+
+		@Override
+		public void save(String key, Token token) throws IOException {
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Unable to create " + directory);
+			}
+			final Properties props = new Properties();
+			props.setProperty("accessToken", token.getAccessToken());
+			props.setProperty("refreshToken",
+					token.getRefreshToken() == null ? "" : token.getRefreshToken());
+			props.setProperty("accessTokenExpiry", String.valueOf(token.getAccessTokenExpiry()));
+
+			final File file = fileFor(key);
+			// the broker of another SDK may save the same token at the same time
+			final File temp = File.createTempFile(file.getName(), ".tmp", directory);
+			final FileOutputStream out = new FileOutputStream(temp);
+			try {
+				props.store(out, "Token Information");
+				out.getFD().sync();
+			} finally {
+				out.close();
+			}
+			if (!temp.renameTo(file)) {
+				temp.delete();
+				throw new IOException("Unable to replace " + file);
+			}
+		}
+
+		@Override
+		public void remove(String key) throws IOException {
+			final File file = fileFor(key);
+			if (file.exists() && !file.delete()) {
+				throw new IOException("Unable to delete " + file);
+			}
+		}
+
+		/* The key holds the client id, so it is hashed to name the file. */
+		private File fileFor(String key) throws IOException {
+			try {
+				final byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+				final StringBuilder name = new StringBuilder("token-");
+				for (final byte b : digest) {
+					name.append(Character.forDigit((b >> 4) & 0xf, 16));
+					name.append(Character.forDigit(b & 0xf, 16));
+				}
+				return new File(directory, name.append(".properties").toString());
+			} catch (NoSuchAlgorithmException e) {
+				throw new IOException(e.getMessage());
+			}
+		}
+	}
+
+	private final ConcurrentHashMap<String, Token> tokens =
+		new ConcurrentHashMap<String, Token>();
+	private final ConcurrentHashMap<String, FutureTask<Token>> inFlight =
+		new ConcurrentHashMap<String, FutureTask<Token>>();
+	private final ConcurrentHashMap<String, Storage> storages =
+		new ConcurrentHashMap<String, Storage>();
+
+	/* The application's FileStorage, once an SDK has passed a context. */
+	private static volatile Storage defaultStorage = null;
+
+	private TokenBroker() {
+	}
+
+	/**
+	 * Makes the broker save tokens in the application's files when no
+	 * storage is passed with a request. Every SDK may call it; they all
+	 * select the same files.
+	 *
+	 * @param context any context of the application
+	 */
+	public static void init(Context context) {
+		if (defaultStorage == null) {
+			defaultStorage = fileStorage(context.getApplicationContext());
+		}
+	}
+
+	/**
+	 * Gets the broker.
+	 *
+	 * @return the broker of the application
+	 */
+	public static TokenBroker getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Gets the storage that saves tokens in the application's private files
+	 * directory, in the format shared by every SDK.
+	 *
+	 * @param context any context of the application
+	 * @return the storage
+	 */
+	public static Storage fileStorage(Context context) {
+		return new FileStorage(new File(context.getFilesDir(), TOKEN_DIRECTORY));
+	}
+
+	/**
+	 * Gets a valid token for the client and scope, like
+	 * {@link #getToken(String, String, String, String, Storage)}, saving it
+	 * in the application's files if {@link #init(Context)} was called, and
+	 * in memory only otherwise.
+	 *
+	 * @param tokenUrl URL of the OAuth token end point
+	 * @param clientId client id to use
+	 * @param clientSecret client secret to use
+	 * @param scope scope of the token
+	 * @return a token that does not expire within a minute
+	 * @throws TokenException if the OAuth server rejected the request
+	 * @throws IOException if the request could not be made
+	 */
+	public Token getToken(String tokenUrl, String clientId, String clientSecret, String scope)
+			throws IOException {
+		return getToken(tokenUrl, clientId, clientSecret, scope, defaultStorage);
+	}
+
+	/**
+	 * Gets a valid token for the client and scope, requesting one only if
+	 * there is no valid token in memory or storage.
+	 *
+	 * @param tokenUrl URL of the OAuth token end point
+	 * @param clientId client id to use
+	 * @param clientSecret client secret to use
+	 * @param scope scope of the token
+	 * @param storage storage the token is loaded from and saved in, or null
+	 *        for the application's files if {@link #init(Context)} was
+	 *        called, and memory only otherwise
+	 * @return a token that does not expire within a minute
+	 * @throws TokenException if the OAuth server rejected the request
+	 * @throws IOException if the request could not be made
+	 */
+	public Token getToken(final String tokenUrl, final String clientId, final String clientSecret,
+			String scope, Storage storage) throws IOException {
+
+		final String key = keyOf(clientId, scope);
+		if (storage != null) {
+			storages.put(key, storage);
+		} else {
+			storages.remove(key);
+		}
+		final Token cached = tokens.get(key);
+		if (cached != null && !cached.expiresWithin(EXPIRY_MARGIN)) {
+			return cached;
+		}
+
+		final String requestScope = scope;
+		FutureTask<Token> task = new FutureTask<Token>(new Callable<Token>() {
+			@Override
+			public Token call() throws IOException {
+				return fetch(key, tokenUrl, clientId, clientSecret, requestScope);
+			}
+		});
+		final FutureTask<Token> running = inFlight.putIfAbsent(key, task);
+		if (running != null) {
+			task = running;
+		} else {
+			try {
+				task.run();
+			} finally {
+				inFlight.remove(key, task);
+			}
+		}
+
+		try {
+			return task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for a token");
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(String.valueOf(cause));
+		}
+	}
+
+	/**
+	 * Gets the token of the client and scope from memory or storage, without
+	 * a request, e.g. to revoke it.
+	 *
+	 * @param clientId client id of the token
+	 * @param scope scope of the token
+	 * @return the token, which may have expired, or null if there is none
+	 */
+	public Token peekToken(String clientId, String scope) {
+		final String key = keyOf(clientId, scope);
+		final Token token = tokens.get(key);
+		final Storage storage = storageFor(key);
+		if (token != null || storage == null) {
+			return token;
+		}
+		try {
+			return storage.load(key);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Replaces the token of the client and scope in memory and storage, e.g.
+	 * with one obtained by another grant.
+	 *
+	 * @param clientId client id of the token
+	 * @param scope scope of the token
+	 * @param token the new token
+	 */
+	public void putToken(String clientId, String scope, Token token) {
+		final String key = keyOf(clientId, scope);
+		tokens.put(key, token);
+		final Storage storage = storageFor(key);
+		if (storage != null) {
+			try {
+				storage.save(key, token);
+			} catch (IOException e) {
+				// still usable from memory for this run
+			}
+		}
+	}
+
+	/**
+	 * Forgets the token of the client and scope, e.g. after it was revoked or
+	 * rejected, so that the next request obtains a new one.
+	 *
+	 * @param clientId client id of the token
+	 * @param scope scope of the token
+	 */
+	public void invalidate(String clientId, String scope) {
+		final String key = keyOf(clientId, scope);
+		tokens.remove(key);
+		final Storage storage = storageFor(key);
+		if (storage != null) {
+			try {
+				storage.remove(key);
+			} catch (IOException e) {
+				// the token is gone from memory, which is what requests use
+			}
+		}
+	}
+
+	private Token fetch(String key, String tokenUrl, String clientId, String clientSecret,
+			String scope) throws IOException {
+
+		// another thread may have finished a request just before this one started
+		Token token = tokens.get(key);
+		if (token != null && !token.expiresWithin(EXPIRY_MARGIN)) {
+			return token;
+		}
+
+		final Storage storage = storageFor(key);
+		if (token == null && storage != null) {
+			try {
+				token = storage.load(key);
+			} catch (IOException e) {
+				token = null;
+			}
+			if (token != null && !token.expiresWithin(EXPIRY_MARGIN)) {
+				tokens.put(key, token);
+				return token;
+			}
+		}
+
+		Token fresh = null;
+		if (token != null && token.getRefreshToken() != null) {
+			try {
+				fresh = request(tokenUrl, clientId, clientSecret,
+						"grant_type", "refresh_token",
+						"refresh_token", token.getRefreshToken());
+			} catch (TokenException e) {
+				// the refresh token is no longer accepted; request a new token below
+			}
+		}
+		if (fresh == null) {
+			fresh = request(tokenUrl, clientId, clientSecret,
+					"grant_type", "client_credentials",
+					"scope", scope);
+		}
+
+		tokens.put(key, fresh);
+		if (storage != null) {
+			try {
+				storage.save(key, fresh);
+			} catch (IOException e) {
+				// still usable from memory for this run
+			}
+		}
+		return fresh;
+	}
+
+	/*
+	 * Posts the client credentials and the other parameters, given as name
+	 * and value pairs, to the token end point.
+	 */
+	private static Token request(String tokenUrl, String clientId, String clientSecret,
+			String... params) throws IOException {
+		final StringBuilder body = new StringBuilder()
+			.append("client_id=").append(encode(clientId))
+			.append("&client_secret=").append(encode(clientSecret));
+		for (int i = 0; i < params.length; i += 2) {
+			body.append('&').append(encode(params[i])).append('=').append(encode(params[i + 1]));
+		}
+		final HttpPost post = new HttpPost(tokenUrl);
+		post.setHeader("Content-Type", "application/x-www-form-urlencoded");
+		post.setHeader("Accept", "application/json");
+		post.setEntity(new StringEntity(body.toString(), "UTF-8"));
+
+		final int status;
+		final String response;
+		try {
+			final HttpResponse httpResponse = HttpClientFactory.getThreadSafeClient().execute(post);
+			status = httpResponse.getStatusLine().getStatusCode();
+			final HttpEntity entity = httpResponse.getEntity();
+			// read to the end, so that the connection is kept alive
+			response = entity == null ? "" : EntityUtils.toString(entity, "UTF-8");
+		} catch (IOException e) {
+			// the connection is in an unknown state, so it is not reused
+			post.abort();
+			throw e;
+		}
+		if (status != 200) {
+			throw new TokenException(status, response);
+		}
+		return parse(response);
+	}
+
+	private static Token parse(String response) throws IOException {
+		try {
+			final JSONObject json = new JSONObject(response);
+			final String accessToken = json.getString("access_token");
+			final String refreshToken = json.optString("refresh_token", null);
+			final long expiresIn = json.optLong("expires_in", 0);
+			// 0 indicates no expiry
+			final long expiry = expiresIn == 0
+				? Token.NO_EXPIRATION : System.currentTimeMillis() / 1000 + expiresIn;
+			return new Token(accessToken,
+					refreshToken == null || refreshToken.length() == 0 ? null : refreshToken,
+					expiry);
+		} catch (JSONException e) {
+			throw new IOException("Invalid OAuth response: " + e.getMessage());
+		}
+	}
+
+	private static String encode(String value) throws UnsupportedEncodingException {
+		return URLEncoder.encode(value, "UTF-8");
+	}
+
+	/* The storage of the last request for the key, or else the default one. */
+	private Storage storageFor(String key) {
+		final Storage storage = storages.get(key);
+		return storage != null ? storage : defaultStorage;
+	}
+
+	private static String keyOf(String clientId, String scope) {
+		return clientId + '\n' + scope;
+	}
+}
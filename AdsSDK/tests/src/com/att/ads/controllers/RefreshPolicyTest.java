@@ -0,0 +1,38 @@
+package com.att.ads.controllers;
+
+import junit.framework.TestCase;
+
+public class RefreshPolicyTest extends TestCase {
+
+	private static final long PERIOD = 60 * 1000;
+
+	public void testNoFailuresKeepsDelay() {
+		assertEquals(PERIOD, RefreshPolicy.backoff(PERIOD, PERIOD, 0));
+		assertEquals(4 * PERIOD, RefreshPolicy.backoff(PERIOD, 4 * PERIOD, 0));
+	}
+
+	public void testDoublesForEachFailure() {
+		assertEquals(2 * PERIOD, RefreshPolicy.backoff(PERIOD, PERIOD, 1));
+		assertEquals(4 * PERIOD, RefreshPolicy.backoff(PERIOD, PERIOD, 2));
+		assertEquals(8 * PERIOD, RefreshPolicy.backoff(PERIOD, PERIOD, 3));
+	}
+
+	public void testStopsGrowingAfterMaxSteps() {
+		long period = 1000;
+		assertEquals(32 * period, RefreshPolicy.backoff(period, period, 5));
+		assertEquals(32 * period, RefreshPolicy.backoff(period, period, 6));
+		assertEquals(32 * period, RefreshPolicy.backoff(period, period, Integer.MAX_VALUE));
+	}
+
+	public void testCappedAtMaximum() {
+		assertEquals(RefreshPolicy.MAX_REFRESH_PERIOD, RefreshPolicy.backoff(PERIOD, PERIOD, 5));
+		assertEquals(RefreshPolicy.MAX_REFRESH_PERIOD,
+				RefreshPolicy.backoff(PERIOD, RefreshPolicy.MAX_REFRESH_PERIOD, 1));
+	}
+
+	public void testNeverShorterThanPeriod() {
+		long period = 2 * RefreshPolicy.MAX_REFRESH_PERIOD;
+		assertEquals(period, RefreshPolicy.backoff(period, period, 0));
+		assertEquals(period, RefreshPolicy.backoff(period, 2 * period, 3));
+	}
+}
@@ -0,0 +1,112 @@
+package com.att.ads.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class EventRingBufferTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		file = File.createTempFile("events", null);
+		file.delete();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+		super.tearDown();
+	}
+
+	public void testKeepsItemsInOrder() throws IOException {
+		EventRingBuffer buffer = new EventRingBuffer(file, 4);
+		buffer.add("a");
+		buffer.add("b");
+		buffer.add("c");
+
+		EventRingBuffer.Batch batch = buffer.peek(10);
+		assertEquals(Arrays.asList("a", "b", "c"), batch.items);
+		assertEquals(0, batch.firstSequence);
+		assertEquals(3, buffer.size());
+		buffer.close();
+	}
+
+	public void testOverwritesOldestWhenFull() throws IOException {
+		EventRingBuffer buffer = new EventRingBuffer(file, 3);
+		for (String item : new String[] { "a", "b", "c", "d", "e" }) {
+			buffer.add(item);
+		}
+
+		EventRingBuffer.Batch batch = buffer.peek(10);
+		assertEquals(Arrays.asList("c", "d", "e"), batch.items);
+		assertEquals(2, batch.firstSequence);
+		assertEquals(3, buffer.size());
+		buffer.close();
+	}
+
+	public void testRemoveSkipsItemsOverwrittenSincePeek() throws IOException {
+		EventRingBuffer buffer = new EventRingBuffer(file, 3);
+		buffer.add("a");
+		buffer.add("b");
+		EventRingBuffer.Batch batch = buffer.peek(2);
+
+		// wraps around: "a" and "b" are overwritten while the batch is sent
+		buffer.add("c");
+		buffer.add("d");
+		buffer.add("e");
+		buffer.remove(batch);
+
+		assertEquals(Arrays.asList("c", "d", "e"), buffer.peek(10).items);
+
+		// removes only the part of the batch that is still there
+		buffer.add("f");
+		batch = buffer.peek(2);
+		buffer.add("g");
+		buffer.remove(batch);
+		assertEquals(Arrays.asList("f", "g"), buffer.peek(10).items);
+		buffer.close();
+	}
+
+	public void testSurvivesReopen() throws IOException {
+		EventRingBuffer buffer = new EventRingBuffer(file, 3);
+		for (String item : new String[] { "a", "b", "c", "d" }) {
+			buffer.add(item);
+		}
+		buffer.remove(buffer.peek(1));
+		buffer.close();
+
+		buffer = new EventRingBuffer(file, 3);
+		EventRingBuffer.Batch batch = buffer.peek(10);
+		assertEquals(Arrays.asList("c", "d"), batch.items);
+		assertEquals(2, batch.firstSequence);
+		buffer.close();
+	}
+
+	public void testStartsOverWithOtherCapacity() throws IOException {
+		EventRingBuffer buffer = new EventRingBuffer(file, 3);
+		buffer.add("a");
+		buffer.close();
+
+		buffer = new EventRingBuffer(file, 5);
+		assertEquals(0, buffer.size());
+		buffer.close();
+	}
+
+	public void testCutsLongItems() throws IOException {
+		char[] chars = new char[EventRingBuffer.SLOT_SIZE * 2];
+		Arrays.fill(chars, 'x');
+		EventRingBuffer buffer = new EventRingBuffer(file, 2);
+		buffer.add(new String(chars));
+		buffer.add("next");
+
+		EventRingBuffer.Batch batch = buffer.peek(10);
+		assertEquals(EventRingBuffer.SLOT_SIZE - 2, batch.items.get(0).length());
+		assertEquals("next", batch.items.get(1));
+		buffer.close();
+	}
+}
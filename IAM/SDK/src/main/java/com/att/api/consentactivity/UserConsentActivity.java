@@ -10,7 +10,6 @@ import android.content.Intent;
 import android.graphics.Bitmap;
 import android.os.Bundle;
 import android.os.Handler;
-import android.util.Log;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
@@ -19,7 +18,9 @@ import android.widget.LinearLayout;
 import com.att.api.error.InAppMessagingError;
 import com.att.api.immn.listener.ATTIAMListener;
 import com.att.api.oauth.OAuthService;
+import com.att.api.oauth.TokenBroker;
 import com.att.api.rest.RESTException;
+import com.att.api.util.SdkLog;
 
 public class UserConsentActivity extends Activity implements ATTIAMListener{
 
@@ -55,6 +56,8 @@ public class UserConsentActivity extends Activity implements ATTIAMListener{
 		 }
 		
 		 osrvc = new OAuthService(fqdn, clientId, clientSecret);
+		 // tokens of the SDK are saved in the application's files
+		 TokenBroker.init(this);
 
 		
 		webView.clearFormData();
@@ -74,7 +77,7 @@ public class UserConsentActivity extends Activity implements ATTIAMListener{
 		
 		 @Override
 		    public boolean shouldOverrideUrlLoading(WebView view, String smsUrl) {
-	    	Log.i("shouldOverrideUrlLoad", "shouldOverrideUrlLoading() in the MyWebViewClient "+ smsUrl);
+	    	SdkLog.d("shouldOverrideUrlLoad", "shouldOverrideUrlLoading() in the MyWebViewClient "+ SdkLog.redactUrl(smsUrl));
 	    	if(smsUrl.contains("sms:")) {
 				String[] splitNumber = smsUrl.split(":");
 				String phNumber = splitNumber[1];
@@ -90,20 +93,20 @@ public class UserConsentActivity extends Activity implements ATTIAMListener{
 		
     	@Override
 		public void onPageStarted(WebView view, String url, Bitmap favicon) {
-			Log.i("onPageStarted", "Start : " + url);
+			SdkLog.d("onPageStarted", "Start : " + SdkLog.redactUrl(url));
 			super.onPageStarted(view, url, favicon);
 			if(url.contains("code=")) {				
 				String encodedURL;
 				try {
 					encodedURL = URLEncoder.encode(url, "UTF-8");
-					Log.i("onPageStarted", "encodedURL: " + encodedURL);
+					SdkLog.d("onPageStarted", "encodedURL: " + SdkLog.redact(encodedURL));
 
 					String encodedURLSplits[] = encodedURL.split("code%3D");
 					if(encodedURLSplits.length > 1) {
 						String twiceEncodedAuthCode = encodedURLSplits[1];
 						String encodedAuthCode = URLDecoder.decode(twiceEncodedAuthCode, "UTF-8");
 						String authCode = URLDecoder.decode(encodedAuthCode, "UTF-8");
-						Log.i("onPageStarted", "authCode: " + authCode);
+						SdkLog.d("onPageStarted", "authCode: " + SdkLog.redact(authCode));
 
 						Intent returnIntent = new Intent();
 						returnIntent.putExtra("oAuthCode", authCode);
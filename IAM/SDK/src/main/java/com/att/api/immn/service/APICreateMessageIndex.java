@@ -1,6 +1,10 @@
 package com.att.api.immn.service;
 
 
+import java.text.ParseException;
+
+import org.json.JSONException;
+
 import android.os.AsyncTask;
 import android.os.Handler;
 
@@ -25,7 +29,7 @@ public class APICreateMessageIndex implements ATTIAMListener {
 	public void CreateMessageIndex() {
 		
 		CreateMessageIndexTask createMessageIndexTask = new CreateMessageIndexTask();
-		createMessageIndexTask.execute();
+		createMessageIndexTask.executeOnExecutor(iamManager.getExecutor());
 	}
 	
 	public class CreateMessageIndexTask extends AsyncTask<Void, Void, Boolean> {
@@ -38,11 +42,23 @@ public class APICreateMessageIndex implements ATTIAMListener {
 
 			try {
 				if (!iamManager.CheckAndRefreshExpiredTokenAsync()) return false;
-				IAMManager.immnSrvc.createMessageIndex();
+				iamManager.callService(new IAMManager.ServiceCall<Void>() {
+					@Override
+					public Void call(IMMNService srvc) throws RESTException, JSONException, ParseException {
+						srvc.createMessageIndex();
+						return null;
+					}
+				});
 				isSuccesful = true;
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				onError( errorObj );
+			} catch (JSONException e) {
+				errorObj = new InAppMessagingError(e.getMessage());
+				onError(errorObj);			
+			} catch (ParseException e) {
+				errorObj = new InAppMessagingError(e.getMessage());
+				onError(errorObj);		
 			}
 			return isSuccesful;
 		}
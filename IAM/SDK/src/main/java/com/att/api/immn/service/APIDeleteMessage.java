@@ -1,5 +1,9 @@
 package com.att.api.immn.service;
 
+import java.text.ParseException;
+
+import org.json.JSONException;
+
 import android.os.AsyncTask;
 import android.os.Handler;
 
@@ -25,7 +29,7 @@ public class APIDeleteMessage implements ATTIAMListener {
 	public void DeleteMessage() {
 		
 		DeleteMessageTask deleteMessageTask = new DeleteMessageTask();
-		deleteMessageTask.execute(msgId);		
+		deleteMessageTask.executeOnExecutor(iamManager.getExecutor(), msgId);		
 	}
 	
 	public class DeleteMessageTask extends AsyncTask<String, Void, Boolean> {
@@ -38,11 +42,24 @@ public class APIDeleteMessage implements ATTIAMListener {
 
 			try {
 				if (!iamManager.CheckAndRefreshExpiredTokenAsync()) return false;
-				IAMManager.immnSrvc.deleteMessage(msgId);
+				iamManager.callService(new IAMManager.ServiceCall<Void>() {
+					@Override
+					public Void call(IMMNService srvc) throws RESTException, JSONException, ParseException {
+						srvc.deleteMessage(msgId);
+						return null;
+					}
+				});
+				iamManager.onMessagesDeleted(new String[] { msgId });
 				isSuccessful = true;
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				onError( errorObj );
+			} catch (JSONException e) {
+				errorObj = new InAppMessagingError(e.getMessage());
+				onError(errorObj);			
+			} catch (ParseException e) {
+				errorObj = new InAppMessagingError(e.getMessage());
+				onError(errorObj);		
 			}
 			return isSuccessful;
 		}
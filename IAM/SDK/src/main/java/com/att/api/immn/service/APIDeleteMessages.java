@@ -1,5 +1,9 @@
 package com.att.api.immn.service;
 
+import java.text.ParseException;
+
+import org.json.JSONException;
+
 import android.os.AsyncTask;
 import android.os.Handler;
 
@@ -26,24 +30,37 @@ public class APIDeleteMessages implements ATTIAMListener{
 	
 	public void DeleteMessages() {
 		DeleteMessagestask deleteMessagesTask = new DeleteMessagestask();
-		deleteMessagesTask.execute(msgIds);	
+		deleteMessagesTask.executeOnExecutor(iamManager.getExecutor(), msgIds);	
 	}
 	
 	public class DeleteMessagestask extends AsyncTask<String[], Void, Boolean> {
 
 		@Override
-		protected Boolean doInBackground(String[]... msgIds) {
+		protected Boolean doInBackground(final String[]... msgIds) {
 			// TODO Auto-generated method stub
 			Boolean isSuccesful = false;
 			InAppMessagingError errorObj = new InAppMessagingError();
 
 			try {
 				if (!iamManager.CheckAndRefreshExpiredTokenAsync()) return false;
-				IAMManager.immnSrvc.deleteMessages(msgIds[0]);
+				iamManager.callService(new IAMManager.ServiceCall<Void>() {
+					@Override
+					public Void call(IMMNService srvc) throws RESTException, JSONException, ParseException {
+						srvc.deleteMessages(msgIds[0]);
+						return null;
+					}
+				});
+				iamManager.onMessagesDeleted(msgIds[0]);
 				isSuccesful = true;
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				onError( errorObj );
+			} catch (JSONException e) {
+				errorObj = new InAppMessagingError(e.getMessage());
+				onError(errorObj);			
+			} catch (ParseException e) {
+				errorObj = new InAppMessagingError(e.getMessage());
+				onError(errorObj);		
 			}
 			
 			return isSuccesful;
@@ -27,19 +27,25 @@ public class APIGetDelta implements ATTIAMListener {
 
 	public void GetDelta() {
 		GetDeltaTask getDelta =  new GetDeltaTask();
-		getDelta.execute(state);		
+		getDelta.executeOnExecutor(iamManager.getExecutor(), state);		
 	}
 	public class GetDeltaTask extends AsyncTask<String, Void, DeltaResponse> {
 
 		@Override
-		protected DeltaResponse doInBackground(String... params) {
+		protected DeltaResponse doInBackground(final String... params) {
 			// TODO Auto-generated method stub
 			DeltaResponseInternal deltaResponseInternal = null;
 			InAppMessagingError errorObj = new InAppMessagingError();
 
 			try {
 				if (!iamManager.CheckAndRefreshExpiredTokenAsync()) return null;
-				deltaResponseInternal = IAMManager.immnSrvc.getDelta(params[0]);
+				deltaResponseInternal = iamManager.callService(new IAMManager.ServiceCall<DeltaResponseInternal>() {
+					@Override
+					public DeltaResponseInternal call(IMMNService srvc) throws RESTException, JSONException, ParseException {
+						return srvc.getDelta(params[0]);
+					}
+				});
+				iamManager.onDeltaReceived(deltaResponseInternal);
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				onError( errorObj );
@@ -30,20 +30,26 @@ public class APIGetMessage implements ATTIAMListener {
 	public void GetMessage(String msgId) {
 		
 		GetMessageTask getMessageTask = new GetMessageTask();
-		getMessageTask.execute(msgId);
+		getMessageTask.executeOnExecutor(iamManager.getExecutor(), msgId);
 	}
 	
 	public class  GetMessageTask extends AsyncTask<String,Void,Message> {
 
 		@Override
-		protected Message doInBackground(String... msgId) {
+		protected Message doInBackground(final String... msgId) {
 			Message message = null;
 			InAppMessagingError errorObj = new InAppMessagingError();
 
 			try {
 				Log.d("IAMSDK", "Async Task : " +  msgId[0]);
 				if (!iamManager.CheckAndRefreshExpiredTokenAsync()) return null;
-				message = IAMManager.immnSrvc.getMessage(msgId[0]);
+				message = iamManager.callService(new IAMManager.ServiceCall<Message>() {
+					@Override
+					public Message call(IMMNService srvc) throws RESTException, JSONException, ParseException {
+						return srvc.getMessage(msgId[0]);
+					}
+				});
+				iamManager.onMessageReceived(message);
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				onError( errorObj );
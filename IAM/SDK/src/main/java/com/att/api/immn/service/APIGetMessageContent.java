@@ -1,5 +1,9 @@
 package com.att.api.immn.service;
 
+import java.text.ParseException;
+
+import org.json.JSONException;
+
 import android.os.AsyncTask;
 import android.os.Handler;
 
@@ -26,23 +30,34 @@ public class APIGetMessageContent implements ATTIAMListener {
 	
 	public void GetMessageContent() {
 		GetMessageContentTask getMessageContentTask = new GetMessageContentTask();
-		getMessageContentTask.execute(messageId, partNumber);
+		getMessageContentTask.executeOnExecutor(iamManager.getExecutor(), messageId, partNumber);
 	}
 	
 	public class GetMessageContentTask extends AsyncTask<String, Void, MessageContent> {
 
 		@Override
-		protected MessageContent doInBackground(String... params) {
+		protected MessageContent doInBackground(final String... params) {
 			// TODO Auto-generated method stub
 			MessageContent msgContent = null;
 			InAppMessagingError errorObj = new InAppMessagingError();
 
 			try {
 				if (!iamManager.CheckAndRefreshExpiredTokenAsync()) return null;
-				msgContent = IAMManager.immnSrvc.getMessageContent(params[0], params[1]);
+				msgContent = iamManager.callService(new IAMManager.ServiceCall<MessageContent>() {
+					@Override
+					public MessageContent call(IMMNService srvc) throws RESTException, JSONException, ParseException {
+						return srvc.getMessageContent(params[0], params[1]);
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				onError( errorObj );
+			} catch (JSONException e) {
+				errorObj = new InAppMessagingError(e.getMessage());
+				onError(errorObj);			
+			} catch (ParseException e) {
+				errorObj = new InAppMessagingError(e.getMessage());
+				onError(errorObj);		
 			}
 			return msgContent;
 		}
@@ -25,7 +25,7 @@ public class APIGetMessageIndexInfo implements ATTIAMListener {
 	
 	public void GetMessageIndexInfo() {
 		GetMessageIndexInfoTask getMessageIndexInfoTask = new GetMessageIndexInfoTask();
-		getMessageIndexInfoTask.execute();
+		getMessageIndexInfoTask.executeOnExecutor(iamManager.getExecutor());
 	}
 	
 	public class GetMessageIndexInfoTask extends AsyncTask<Void, Void, MessageIndexInfo> {
@@ -38,7 +38,12 @@ public class APIGetMessageIndexInfo implements ATTIAMListener {
 
 			try {
 				if (!iamManager.CheckAndRefreshExpiredTokenAsync()) return null;
-				messageIndexInfo = IAMManager.immnSrvc.getMessageIndexInfo();
+				messageIndexInfo = iamManager.callService(new IAMManager.ServiceCall<MessageIndexInfo>() {
+					@Override
+					public MessageIndexInfo call(IMMNService srvc) throws RESTException, JSONException, ParseException {
+						return srvc.getMessageIndexInfo();
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				onError( errorObj );
@@ -31,20 +31,26 @@ public class APIGetMessageList implements ATTIAMListener {
 	
 	public void GetMessageList() {
 		GetMessageListTask getMessageListTask = new GetMessageListTask();
-		getMessageListTask.execute(limit,offset);
+		getMessageListTask.executeOnExecutor(iamManager.getExecutor(), limit,offset);
 	}
 	
 	public class  GetMessageListTask extends AsyncTask<Integer, Void, MessageList> {
 
 		@Override
-		protected MessageList doInBackground(Integer... params) {
+		protected MessageList doInBackground(final Integer... params) {
 			// TODO Auto-generated method stub
 			MessageList messageList = null;
 			InAppMessagingError errorObj = new InAppMessagingError();
 
 			try {
 				if (!iamManager.CheckAndRefreshExpiredTokenAsync()) return null;
-				messageList = IAMManager.immnSrvc.getMessageList(params[0],params[1]);
+				messageList = iamManager.callService(new IAMManager.ServiceCall<MessageList>() {
+					@Override
+					public MessageList call(IMMNService srvc) throws RESTException, JSONException, ParseException {
+						return srvc.getMessageList(params[0],params[1]);
+					}
+				});
+				iamManager.onMessagesReceived(messageList);
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				onError( errorObj );
@@ -100,10 +106,10 @@ public class APIGetMessageList implements ATTIAMListener {
 					JSONObject jobj2 = jobj1.getJSONObject("ServiceException");
 					serviceExceptionId = jobj2.getString("MessageId");
 					if (serviceExceptionId.equalsIgnoreCase("SVC0001") ) {
-						messageIndexInfo = IAMManager.immnSrvc.getMessageIndexInfo();
+						messageIndexInfo = iamManager.getService().getMessageIndexInfo();
 						if(messageIndexInfo.getStatus().toString().equalsIgnoreCase("NOT_INITIALIZED") || 
 						   messageIndexInfo.getStatus().toString().equalsIgnoreCase("ERROR")) {
-							IAMManager.immnSrvc.createMessageIndex();
+							iamManager.getService().createMessageIndex();
 							GetMessageList();
 						}
 					}
@@ -43,7 +43,7 @@ public class APISendMessage implements ATTIAMListener {
 	public void SendMessage() {
 
 		SendMessageTask sendMessageTask = new SendMessageTask();
-		sendMessageTask.execute(sendMessageParams);
+		sendMessageTask.executeOnExecutor(iamManager.getExecutor(), sendMessageParams);
 	}
 	
 	
@@ -52,17 +52,22 @@ public class APISendMessage implements ATTIAMListener {
 	public class SendMessageTask extends AsyncTask<SendMessageParams, Void, SendResponse> {
 
 		@Override
-		protected SendResponse doInBackground(SendMessageParams... params) {
+		protected SendResponse doInBackground(final SendMessageParams... params) {
 			SendResponse sendMessageResponse = null;
 			InAppMessagingError errorObj = new InAppMessagingError();
 
 			try {
 				if (!iamManager.CheckAndRefreshExpiredTokenAsync()) return null;
-				sendMessageResponse = IAMManager.immnSrvc.sendMessage(params[0].getAddresses(),
-														   params[0].getMessage(),
-														   params[0].getSubject(),
-														   params[0].getGroup(),
-														   params[0].getAttachments());
+				sendMessageResponse = iamManager.callService(new IAMManager.ServiceCall<SendResponse>() {
+					@Override
+					public SendResponse call(IMMNService srvc) throws RESTException, JSONException, ParseException {
+						return srvc.sendMessage(params[0].getAddresses(),
+										params[0].getMessage(),
+										params[0].getSubject(),
+										params[0].getGroup(),
+										params[0].getAttachments());
+					}
+				});
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
 				//Log.i("APISendMessage", e.getErrorMessage());
@@ -1,5 +1,7 @@
 package com.att.api.immn.service;
 
+import java.text.ParseException;
+
 import org.json.JSONException;
 
 import android.os.AsyncTask;
@@ -54,23 +56,29 @@ public class APIUpdateMessage  implements ATTIAMListener{
 	
 	public void UpdateMessage() {
 		UpdateMessageTask updateMessageTask = new UpdateMessageTask();
-		updateMessageTask.execute(params);
+		updateMessageTask.executeOnExecutor(iamManager.getExecutor(), params);
 		
 	}
 	
 	public class UpdateMessageTask extends AsyncTask<APIUpdateMessageParams, Void, Boolean> {
 
 		@Override
-		protected Boolean doInBackground(APIUpdateMessageParams... params) {
+		protected Boolean doInBackground(final APIUpdateMessageParams... params) {
 			// TODO Auto-generated method stub
 			Boolean isSuccesful = false;
 			InAppMessagingError errorObj = new InAppMessagingError();
 
 			try {
 				if (!iamManager.CheckAndRefreshExpiredTokenAsync()) return false;
-				IAMManager.immnSrvc.updateMessage(params[0].msgId,
-									   params[0].isFavorite,
-									   params[0].isUnread );
+				iamManager.callService(new IAMManager.ServiceCall<Void>() {
+					@Override
+					public Void call(IMMNService srvc) throws RESTException, JSONException, ParseException {
+						srvc.updateMessage(params[0].msgId, params[0].isUnread, params[0].isFavorite);
+						return null;
+					}
+				});
+				iamManager.onMessagesUpdated(new DeltaChange[] {
+						new DeltaChange(params[0].msgId, params[0].isFavorite, params[0].isUnread) });
 				isSuccesful = true;
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
@@ -79,6 +87,9 @@ public class APIUpdateMessage  implements ATTIAMListener{
 				//errorObj.setErrorMessage(e.getMessage());
 				errorObj = new InAppMessagingError(e.getMessage());
 				onError(errorObj);			
+} catch (ParseException e) {
+				errorObj = new InAppMessagingError(e.getMessage());
+				onError(errorObj);		
 			}
 			return isSuccesful;
 		}
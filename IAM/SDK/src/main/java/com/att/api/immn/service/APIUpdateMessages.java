@@ -1,5 +1,7 @@
 package com.att.api.immn.service;
 
+import java.text.ParseException;
+
 import org.json.JSONException;
 
 import android.os.AsyncTask;
@@ -26,19 +28,26 @@ public class APIUpdateMessages implements ATTIAMListener {
 	
 	public void UpdateMessages() {
 		APIUpdateMessagesTask updateMessagestask = new APIUpdateMessagesTask();
-		updateMessagestask.execute(messages);
+		updateMessagestask.executeOnExecutor(iamManager.getExecutor(), messages);
 	}
 
 	public class APIUpdateMessagesTask extends AsyncTask<DeltaChange, Void, Boolean> {
 
 		@Override
-		protected Boolean doInBackground(DeltaChange... messages) {
+		protected Boolean doInBackground(final DeltaChange... messages) {
 			InAppMessagingError errorObj = new InAppMessagingError();
 
 			// TODO Auto-generated method stub
 			try {
 				if (!iamManager.CheckAndRefreshExpiredTokenAsync()) return false;
-				IAMManager.immnSrvc.updateMessages(messages);
+				iamManager.callService(new IAMManager.ServiceCall<Void>() {
+					@Override
+					public Void call(IMMNService srvc) throws RESTException, JSONException, ParseException {
+						srvc.updateMessages(messages);
+						return null;
+					}
+				});
+				iamManager.onMessagesUpdated(messages);
 				isSuccesful = true;
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
@@ -46,6 +55,9 @@ public class APIUpdateMessages implements ATTIAMListener {
 			} catch (JSONException e) {
 				errorObj = new InAppMessagingError(e.getMessage());
 				onError(errorObj);			
+} catch (ParseException e) {
+				errorObj = new InAppMessagingError(e.getMessage());
+				onError(errorObj);		
 			}
 			return isSuccesful;
 		}
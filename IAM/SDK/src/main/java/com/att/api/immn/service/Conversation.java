@@ -0,0 +1,47 @@
+package com.att.api.immn.service;
+
+/*
+ * Summary of one conversation in a ConversationIndex: the messages
+ * exchanged with one set of participants.
+ */
+public final class Conversation {
+    private final String key;
+    private final String[] participants;
+    private final int messageCount;
+    private final int unreadCount;
+    private final Message lastMessage;
+
+    Conversation(String key, String[] participants, int messageCount,
+            int unreadCount, Message lastMessage) {
+
+        this.key = key;
+        this.participants = participants;
+        this.messageCount = messageCount;
+        this.unreadCount = unreadCount;
+        this.lastMessage = lastMessage;
+    }
+
+    /*
+     * Identifies the conversation; the normalized participant addresses,
+     * sorted and comma separated.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public String[] getParticipants() {
+        return participants.clone();
+    }
+
+    public int getMessageCount() {
+        return messageCount;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public Message getLastMessage() {
+        return lastMessage;
+    }
+}
@@ -0,0 +1,237 @@
+package com.att.api.immn.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+ * Groups synced messages into conversations keyed by their normalized
+ * participant set, so that a conversation list does not have to be rebuilt
+ * by rescanning every message whenever a delta arrives.
+ *
+ * Each change costs O(log n) in the size of the affected conversation and
+ * the number of conversations. IAMManager keeps the index current as
+ * message lists, messages, deltas and local updates and deletes are seen.
+ */
+public final class ConversationIndex {
+
+    // newest first; the message id breaks ties so distinct messages never compare equal
+    private static final Comparator<Message> NEWEST_FIRST = new Comparator<Message>() {
+        @Override
+        public int compare(Message a, Message b) {
+            final long ta = a.getTimeStampMillis();
+            final long tb = b.getTimeStampMillis();
+            if (ta != tb) {
+                return ta < tb ? 1 : -1;
+            }
+            return a.getMessageId().compareTo(b.getMessageId());
+        }
+    };
+
+    private static final Comparator<ThreadState> MOST_RECENT_FIRST = new Comparator<ThreadState>() {
+        @Override
+        public int compare(ThreadState a, ThreadState b) {
+            final int order = NEWEST_FIRST.compare(a.messages.first(), b.messages.first());
+            return order != 0 ? order : a.key.compareTo(b.key);
+        }
+    };
+
+    private final HashMap<String, ThreadState> threads = new HashMap<String, ThreadState>();
+    private final HashMap<String, Message> messagesById = new HashMap<String, Message>();
+    private final HashMap<String, ThreadState> threadByMessageId = new HashMap<String, ThreadState>();
+    private final TreeSet<ThreadState> byRecency = new TreeSet<ThreadState>(MOST_RECENT_FIRST);
+
+    /*
+     * Adds the message to its conversation, replacing any previous version of
+     * it.
+     */
+    public synchronized void add(Message msg) {
+        removeLocked(msg.getMessageId());
+
+        final TreeMap<String, String> participants = participantsOf(msg);
+        final String key = keyOf(participants.keySet());
+        ThreadState thread = threads.get(key);
+        if (thread == null) {
+            thread = new ThreadState(key,
+                    participants.values().toArray(new String[participants.size()]));
+            threads.put(key, thread);
+        } else {
+            byRecency.remove(thread);
+        }
+
+        thread.messages.add(msg);
+        if (msg.isUnread()) {
+            ++thread.unreadCount;
+        }
+        byRecency.add(thread);
+        messagesById.put(msg.getMessageId(), msg);
+        threadByMessageId.put(msg.getMessageId(), thread);
+    }
+
+    public synchronized void addAll(Collection<Message> msgs) {
+        for (final Message msg : msgs) {
+            add(msg);
+        }
+    }
+
+    /*
+     * Updates the flags of an indexed message. A null flag is left unchanged.
+     */
+    public synchronized void update(String msgId, Boolean isFavorite, Boolean isUnread) {
+        final Message old = messagesById.get(msgId);
+        if (old == null) {
+            return;
+        }
+        final ThreadState thread = threadByMessageId.get(msgId);
+        final Message msg = old.withFlags(isFavorite, isUnread);
+
+        // the ordering does not depend on the flags, so the thread keeps its place
+        thread.messages.remove(old);
+        thread.messages.add(msg);
+        if (old.isUnread() != msg.isUnread()) {
+            thread.unreadCount += msg.isUnread() ? 1 : -1;
+        }
+        messagesById.put(msgId, msg);
+    }
+
+    public synchronized void remove(String msgId) {
+        removeLocked(msgId);
+    }
+
+    public synchronized void clear() {
+        threads.clear();
+        messagesById.clear();
+        threadByMessageId.clear();
+        byRecency.clear();
+    }
+
+    /*
+     * Returns all conversations, most recently active first.
+     */
+    public synchronized List<Conversation> getConversations() {
+        final ArrayList<Conversation> result = new ArrayList<Conversation>(byRecency.size());
+        for (final ThreadState thread : byRecency) {
+            result.add(thread.summary());
+        }
+        return result;
+    }
+
+    /*
+     * Returns the conversation the message belongs to, or null if the message
+     * is not indexed.
+     */
+    public synchronized Conversation getConversationOf(String msgId) {
+        final ThreadState thread = threadByMessageId.get(msgId);
+        return thread == null ? null : thread.summary();
+    }
+
+    /*
+     * Returns the messages of a conversation, newest first.
+     */
+    public synchronized List<Message> getMessages(String key) {
+        final ThreadState thread = threads.get(key);
+        if (thread == null) {
+            return new ArrayList<Message>();
+        }
+        return new ArrayList<Message>(thread.messages);
+    }
+
+    public synchronized int getUnreadCount(String key) {
+        final ThreadState thread = threads.get(key);
+        return thread == null ? 0 : thread.unreadCount;
+    }
+
+    private void removeLocked(String msgId) {
+        final Message msg = messagesById.remove(msgId);
+        if (msg == null) {
+            return;
+        }
+        final ThreadState thread = threadByMessageId.remove(msgId);
+        byRecency.remove(thread);
+        thread.messages.remove(msg);
+        if (msg.isUnread()) {
+            --thread.unreadCount;
+        }
+        if (thread.messages.isEmpty()) {
+            threads.remove(thread.key);
+        } else {
+            byRecency.add(thread);
+        }
+    }
+
+    /*
+     * Returns the participant addresses of the message keyed and sorted by
+     * their normalized form, without duplicates.
+     */
+    private static TreeMap<String, String> participantsOf(Message msg) {
+        final TreeMap<String, String> byNormalized = new TreeMap<String, String>();
+        if (msg.getFrom() != null) {
+            byNormalized.put(normalize(msg.getFrom()), msg.getFrom());
+        }
+        if (msg.getRecipients() != null) {
+            for (final String recipient : msg.getRecipients()) {
+                if (recipient != null) {
+                    byNormalized.put(normalize(recipient), recipient);
+                }
+            }
+        }
+        return byNormalized;
+    }
+
+    private static String keyOf(Collection<String> participants) {
+        final StringBuilder key = new StringBuilder();
+        for (final String participant : participants) {
+            if (key.length() > 0) {
+                key.append(',');
+            }
+            key.append(participant);
+        }
+        return key.toString();
+    }
+
+    /*
+     * Normalizes an address so that the forms the API uses for the same
+     * subscriber compare equal: tel:+12065551212, tel:12065551212 and
+     * tel:2065551212 all become tel:2065551212, and email addresses are
+     * compared case insensitively.
+     */
+    static String normalize(String address) {
+        final String lower = address.trim().toLowerCase(Locale.US);
+        if (!lower.startsWith("tel:")) {
+            return lower;
+        }
+        final StringBuilder digits = new StringBuilder(lower.length());
+        for (int i = 4; i < lower.length(); ++i) {
+            final char c = lower.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        if (digits.length() == 11 && digits.charAt(0) == '1') {
+            digits.deleteCharAt(0);
+        }
+        return "tel:" + digits;
+    }
+
+    private static final class ThreadState {
+        final String key;
+        final String[] participants;
+        final TreeSet<Message> messages = new TreeSet<Message>(NEWEST_FIRST);
+        int unreadCount = 0;
+
+        ThreadState(String key, String[] participants) {
+            this.key = key;
+            this.participants = participants;
+        }
+
+        Conversation summary() {
+            return new Conversation(key, participants, messages.size(),
+                    unreadCount, messages.first());
+        }
+    }
+}
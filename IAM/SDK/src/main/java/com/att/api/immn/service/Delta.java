@@ -1,9 +1,15 @@
 package com.att.api.immn.service;
 
+import java.io.IOException;
+import java.util.ArrayList;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 public final class Delta {
     private final String type;
     private final DeltaChangeInternal[] adds;
@@ -62,4 +68,46 @@ public final class Delta {
         return new Delta(type, adds, deletes, updates);
     }
 
+    public static Delta valueOf(JsonReader reader) throws IOException, JSONException {
+        String type = null;
+        DeltaChangeInternal[] adds = null;
+        DeltaChangeInternal[] deletes = null;
+        DeltaChangeInternal[] updates = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if (name.equals("type")) {
+                type = reader.nextString();
+            } else if (name.equals("adds")) {
+                adds = readChanges(reader);
+            } else if (name.equals("deletes")) {
+                deletes = readChanges(reader);
+            } else if (name.equals("updates")) {
+                updates = readChanges(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (type == null || adds == null || deletes == null || updates == null) {
+            throw new JSONException("Delta is missing a required field");
+        }
+
+        return new Delta(type, adds, deletes, updates);
+    }
+
+    private static DeltaChangeInternal[] readChanges(JsonReader reader) throws IOException {
+        ArrayList<DeltaChangeInternal> changes = new ArrayList<DeltaChangeInternal>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            changes.add(DeltaChangeInternal.valueOf(reader));
+        }
+        reader.endArray();
+        return changes.toArray(new DeltaChangeInternal[changes.size()]);
+    }
+
 }
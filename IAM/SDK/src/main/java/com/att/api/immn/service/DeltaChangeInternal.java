@@ -1,8 +1,13 @@
 package com.att.api.immn.service;
 
+import java.io.IOException;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 public final class DeltaChangeInternal {
     private final String messageId;
     private final Boolean isFavorite;
@@ -61,4 +66,29 @@ public final class DeltaChangeInternal {
 
         return new DeltaChangeInternal(msgId, isFavorite, isUnread);
     }
+
+    public static DeltaChangeInternal valueOf(JsonReader reader) throws IOException {
+        String msgId = null;
+        Boolean isFavorite = null;
+        Boolean isUnread = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if (name.equals("messageId")) {
+                msgId = reader.nextString();
+            } else if (name.equals("isFavorite")) {
+                isFavorite = JsonStreamParser.nextBoolean(reader);
+            } else if (name.equals("isUnread")) {
+                isUnread = JsonStreamParser.nextBoolean(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return new DeltaChangeInternal(msgId, isFavorite, isUnread);
+    }
 }
@@ -1,9 +1,15 @@
 package com.att.api.immn.service;
 
+import java.io.IOException;
+import java.util.ArrayList;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.json.JSONArray;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 public final class DeltaResponseInternal {
     public final String state;
     public final Delta[] delta;
@@ -32,4 +38,44 @@ public final class DeltaResponseInternal {
 
         return new DeltaResponseInternal(state, delta);
     }
+
+    /*
+     * Reads a delta response from a pull parser positioned before the root
+     * <code>{"deltaResponse": ...}</code> object.
+     */
+    public static DeltaResponseInternal valueOf(JsonReader reader) throws IOException, JSONException {
+        if (!JsonStreamParser.enterRootMember(reader, "deltaResponse")) {
+            throw new JSONException("No value for deltaResponse");
+        }
+
+        String state = null;
+        Delta[] delta = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if (name.equals("state")) {
+                state = reader.nextString();
+            } else if (name.equals("delta")) {
+                ArrayList<Delta> deltas = new ArrayList<Delta>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    deltas.add(Delta.valueOf(reader));
+                }
+                reader.endArray();
+                delta = deltas.toArray(new Delta[deltas.size()]);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (state == null || delta == null) {
+            throw new JSONException("DeltaResponse is missing a required field");
+        }
+
+        return new DeltaResponseInternal(state, delta);
+    }
 }
@@ -1,5 +1,11 @@
 package com.att.api.immn.service;
 
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.json.JSONException;
+
 import android.os.AsyncTask;
 import android.util.Log;
 
@@ -10,7 +16,6 @@ import com.att.api.immn.listener.AttSdkTokenUpdater;
 import com.att.api.oauth.OAuthService;
 import com.att.api.oauth.OAuthToken;
 import com.att.api.rest.RESTException;
-import com.att.api.util.TokenUpdatedListener;
 /**
  * This class encapsulates the AT&amp;T REST APIs for In-App Messaging.
  * 
@@ -21,23 +26,16 @@ import com.att.api.util.TokenUpdatedListener;
  */
 public class IAMManager {
 
-	public static IMMNService immnSrvc = null;
-	public static OAuthService osrvc = null;
+	private static final IAMSession defaultSession = new IAMSession("https://api.att.com", null);
+	private final IAMSession session;
 	private ATTIAMListener iamListener;
-	private static AttSdkTokenUpdater tokenListener = null;
-	private static OAuthToken currentToken = null; // NOTE: This variable may not be required. Just immnSrvc can be used.
-	private final static Object lockRefreshToken = new Object();
-	private static String apiFqdn = "https://api.att.com";
-	// if lowerTokenExpiryTimeTo >= 0, over rides token expiry to this value
-	private static long lowerTokenExpiryTimeTo = -1; 
 
-	
 	/**
 	 * Creates an IAMManager object.
 	 * @param iamListener - Specifies the Listener for callbacks.
 	 */
 	public IAMManager(ATTIAMListener iamListener) {
-		this(null, iamListener);
+		this(defaultSession, iamListener);
 	}
 	
 	/**
@@ -47,13 +45,41 @@ public class IAMManager {
 	 */
 	public IAMManager(OAuthToken token, ATTIAMListener iamListener) {
 		if (token != null) {
-			currentToken = token;
-		}
-		if (immnSrvc == null && currentToken != null) {
-			immnSrvc = new IMMNService(apiFqdn, currentToken);
+			SetCurrentToken(token);
 		}
+		this.session = defaultSession;
+		this.iamListener = iamListener;
+	}
+	
+	/**
+	 * Creates an IAMManager object whose API calls use the specified session. Managers with
+	 * different sessions can be used at the same time for different subscribers.
+	 * @param session - Specifies the session, which holds the access token and the local message data.
+	 * @param iamListener - Specifies the Listener for callbacks.
+	 */
+	public IAMManager(IAMSession session, ATTIAMListener iamListener) {
+		this.session = session;
 		this.iamListener = iamListener;
 	}
+	
+	/**
+	 * The GetDefaultSession method returns the session used by IAMManager objects created
+	 * without one. The static methods of this class configure the default session.
+	 * 
+	 * @return the default session
+	 */
+	public static IAMSession GetDefaultSession() {
+		return defaultSession;
+	}
+	
+	/**
+	 * The GetSession method returns the session used by this IAMManager.
+	 * 
+	 * @return the session
+	 */
+	public IAMSession GetSession() {
+		return session;
+	}
 
 	/**
 	 * The getMessages method gets a message based on its message Id. 
@@ -234,13 +260,79 @@ public class IAMManager {
 		updateMessage.UpdateMessage();
 	}
 	
+	/**
+	 * The SearchMessages method searches the messages received so far on the device, without
+	 * a server round trip. Every word of the query is matched as a prefix of the words in the
+	 * message text, subject and sender.
+	 * 
+	 * @param query - Specifies the words to search for.
+	 * @param limit - Specifies the maximum number of message identifiers to return.
+	 * @return the identifiers of the matching messages, most recent first
+	 */
+	public static List<String> SearchMessages(String query, int limit) {
+		return defaultSession.searchMessages(query, limit);
+	}
+	
+	/**
+	 * The GetConversationIndex method returns the conversations formed by the messages received
+	 * so far on the device, grouped by participants. The index is kept current as messages,
+	 * deltas, updates and deletes are received, so it never needs to be rebuilt.
+	 * 
+	 * @return the conversation index
+	 */
+	public static ConversationIndex GetConversationIndex() {
+		return defaultSession.getConversationIndex();
+	}
+	
+	/*
+	 * Sync events from the API tasks, used to keep the local indexes of the session current.
+	 */
+	void onMessagesReceived(MessageList messageList) {
+		session.onMessagesReceived(messageList);
+	}
+	
+	void onMessageReceived(Message message) {
+		session.onMessageReceived(message);
+	}
+	
+	void onDeltaReceived(DeltaResponseInternal deltaResponse) {
+		session.onDeltaReceived(deltaResponse);
+	}
+	
+	void onMessagesUpdated(DeltaChange[] changes) {
+		session.onMessagesUpdated(changes);
+	}
+	
+	void onMessagesDeleted(String[] msgIds) {
+		session.onMessagesDeleted(msgIds);
+	}
+	
+	/*
+	 * Runs the API calls of this manager.
+	 */
+	Executor getExecutor() {
+		return session.getExecutor();
+	}
+	
+	IMMNService getService() {
+		return session.getService();
+	}
+	
 	/**
 	 * The SetCurrentToken method updates the current access token used for the subsequent API calls.
 	 * @param token - Overrides the default OAuth token used for authorization.
 	 */	
 	public static void SetCurrentToken(OAuthToken token) {
-		currentToken = token;
-		immnSrvc = new IMMNService(apiFqdn, token);
+		defaultSession.setToken(token);
+	}
+	
+	/**
+	 * The SetTokenRefreshSkew method sets how long before its expiry the access token is refreshed.
+	 * The token is refreshed in the background, so API calls made meanwhile are not delayed.
+	 * @param seconds - Refresh skew in seconds. The default is 5 minutes.
+	 */	
+	public static void SetTokenRefreshSkew(long seconds) {
+		defaultSession.setTokenRefreshSkew(seconds);
 	}
 	
 	/**
@@ -248,7 +340,7 @@ public class IAMManager {
 	 * @param value - Override expiry time in seconds.
 	 */	
 	public static void SetLowerTokenExpiryTimeTo (long value) {
-		lowerTokenExpiryTimeTo = value;
+		defaultSession.setLowerTokenExpiryTimeTo(value);
 	}
 	
 	/**
@@ -257,7 +349,7 @@ public class IAMManager {
 	 * @return the current expiry time override value
 	 */	
 	public static long GetLowerTokenExpiryTimeTo () {
-		return lowerTokenExpiryTimeTo;
+		return defaultSession.getLowerTokenExpiryTimeTo();
 	}
 	
 	/**
@@ -265,7 +357,7 @@ public class IAMManager {
 	 * @param listener - AttSdkTokenUpdater object.
 	 */	
 	public static void SetTokenUpdatedListener(AttSdkTokenUpdater listener) {
-		tokenListener = listener;
+		defaultSession.setTokenUpdatedListener(listener);
 	}
 	
 	/**
@@ -274,7 +366,7 @@ public class IAMManager {
 	 * @return true is the token is expired
 	 */	
 	public static Boolean isCurrentTokenExpired() {
-		return (currentToken.getAccessTokenExpiry() < (System.currentTimeMillis() / 1000));		
+		return defaultSession.isTokenExpired();
 	}
 	
 	/**
@@ -282,7 +374,24 @@ public class IAMManager {
 	 * @param fqdn - fully qualified domain name e.g. https://api.att.com
 	 */	
 	public static void SetApiFqdn(String fqdn) {
-		apiFqdn = fqdn;
+		defaultSession.setApiFqdn(fqdn);
+	}
+	
+	/**
+	 * The SetOAuthService method sets the OAuthService used to refresh and revoke the access token.
+	 * @param osrvc - OAuthService object.
+	 */	
+	public static void SetOAuthService(OAuthService osrvc) {
+		defaultSession.setOAuthService(osrvc);
+	}
+	
+	/**
+	 * The GetOAuthService method returns the OAuthService used to refresh and revoke the access token.
+	 *
+	 * @return the OAuthService object
+	 */	
+	public static OAuthService GetOAuthService() {
+		return defaultSession.getOAuthService();
 	}
 	
 	/**
@@ -292,53 +401,38 @@ public class IAMManager {
 	 */	
 	public Boolean CheckAndRefreshExpiredTokenAsync() {
 		try {
-			OAuthToken authToken = null;
-			OAuthToken adjustedAuthToken = null;
-			synchronized (lockRefreshToken) {
-				if (isCurrentTokenExpired()) {
-					String refreshTokenValue = currentToken.getRefreshToken();
-					currentToken = null;
-					InAppMessagingError errorObj = new InAppMessagingError();
-					try {
-						if (osrvc == null) throw new Exception("Failed during token refresh. osrvc not initiazed.");
-						authToken = osrvc.refreshToken(refreshTokenValue);
-						if (authToken != null) {
-							if (lowerTokenExpiryTimeTo >= 0) {
-								adjustedAuthToken = new OAuthToken(authToken.getAccessToken(), lowerTokenExpiryTimeTo,
-										authToken.getRefreshToken(), (System.currentTimeMillis() / 1000));
-							} else {
-								adjustedAuthToken = authToken;
-							}
-							SetCurrentToken(adjustedAuthToken);
-							Log.i("getRefreshTokenListener",
-									"onSuccess Message : " + 
-									TokenUpdatedListener.tokenDisplayString(adjustedAuthToken.getAccessToken()));
-							if (tokenListener != null) {
-								tokenListener.onTokenUpdate(adjustedAuthToken);
-							}
-						} else {
-							throw new Exception("Failed during token refresh.");
-						}
-					} catch (RESTException e) {
-						Log.i("getRefreshTokenListener", "REST Error:" + e.getMessage());
-						errorObj = Utils.CreateErrorObjectFromException( e );
-					} catch (Exception e) {
-						Log.i("getRefreshTokenListener", "Error:" + e.getMessage());
-					}
-					if (currentToken == null) {
-						if (iamListener != null) {
-							iamListener.onError(errorObj);
-						}						
-						if (tokenListener != null) {
-							tokenListener.onTokenDelete();
-						}			
-					}
-				}
-			}
-		} catch (Exception /*InterruptedException*/ e) {
-			currentToken = null;
-		}	
-		return (currentToken != null);
+			return (session.getValidToken() != null);
+		} catch (RESTException e) {
+			Log.i("getRefreshTokenListener", "REST Error:" + e.getMessage());
+			onTokenRefreshFailed(e);
+			return false;
+		}
+	}
+	
+	/*
+	 * A call made through callService, given the service to use.
+	 */
+	interface ServiceCall<T> {
+		T call(IMMNService srvc) throws RESTException, JSONException, ParseException;
+	}
+	
+	/*
+	 * Makes the call with the current token of the session. If the server rejects the token,
+	 * the token is refreshed and the call is retried once.
+	 */
+	<T> T callService(ServiceCall<T> call) throws RESTException, JSONException, ParseException {
+		return session.callService(call);
+	}
+	
+	private void onTokenRefreshFailed(RESTException e) {
+		InAppMessagingError errorObj = Utils.CreateErrorObjectFromException( e );
+		if (iamListener != null) {
+			iamListener.onError(errorObj);
+		}
+		AttSdkTokenUpdater listener = session.getTokenUpdatedListener();
+		if (listener != null) {
+			listener.onTokenDelete();
+		}
 	}
 	
     /**
@@ -350,9 +444,9 @@ public class IAMManager {
     public void RevokeToken(String hint) {
 		RevokeTokenTask task = new RevokeTokenTask();
 		if (hint.equalsIgnoreCase("access_token")) {
-			task.execute(currentToken.getAccessToken(), hint);
+			task.executeOnExecutor(session.getExecutor(), session.getToken().getAccessToken(), hint);
 		} else if (hint.equalsIgnoreCase("refresh_token")) {
-			task.execute(currentToken.getRefreshToken(), hint);			
+			task.executeOnExecutor(session.getExecutor(), session.getToken().getRefreshToken(), hint);			
 		} else {
 			if (null != iamListener) {
 				iamListener.onError(new InAppMessagingError("Invalid token hint passed to the RevokeToken method."));
@@ -375,7 +469,8 @@ public class IAMManager {
 			String result = null;
 			InAppMessagingError errorObj = new InAppMessagingError("RevokeToken error.");
 			try {
-				osrvc.revokeToken(params[0], params[1]);
+				session.getOAuthService().revokeToken(params[0], params[1]);
+				session.clearLocalData();
 				result = "Success";
 			} catch (RESTException e) {
 				errorObj = Utils.CreateErrorObjectFromException( e );
@@ -0,0 +1,305 @@
+package com.att.api.immn.service;
+
+import java.text.ParseException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONException;
+
+import android.util.Log;
+
+import com.att.api.immn.listener.AttSdkTokenUpdater;
+import com.att.api.oauth.OAuthService;
+import com.att.api.oauth.OAuthToken;
+import com.att.api.oauth.TokenManager;
+import com.att.api.rest.RESTException;
+import com.att.api.util.TokenUpdatedListener;
+
+/**
+ * The state of one subscriber's In-App Messaging session: the access token and its refresh,
+ * the API end point, and the messages cached and indexed on the device.
+ *
+ * <p>
+ * Each session runs its API calls on its own threads, so several subscribers can be synced
+ * at the same time, and replacing the token of one session does not affect calls made through
+ * another. A session can be used from any thread. IAMManager objects created without a session
+ * share the default session returned by IAMManager.GetDefaultSession.
+ * </p>
+ *
+ * @author ps350r
+ */
+public class IAMSession {
+
+	// API calls a session runs at the same time; further calls wait for a free thread
+	private static final int MAX_CONCURRENT_CALLS = 3;
+	private static final AtomicInteger sessionCount = new AtomicInteger();
+
+	private volatile String apiFqdn;
+	private volatile OAuthService osrvc;
+	private volatile AttSdkTokenUpdater tokenListener = null;
+	// if lowerTokenExpiryTimeTo >= 0, over rides token expiry to this value
+	private volatile long lowerTokenExpiryTimeTo = -1;
+	private volatile IMMNService immnSrvc;
+	private final TokenManager tokenManager;
+	// survive token refreshes, which replace immnSrvc
+	private final MessageCache messageCache = new MessageCache();
+	private final MessageSearchIndex searchIndex = new MessageSearchIndex();
+	private final ConversationIndex conversationIndex = new ConversationIndex();
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * Creates a session for the specified AT&amp;T API end point.
+	 * @param fqdn - fully qualified domain name e.g. https://api.att.com
+	 * @param osrvc - Used to refresh the access token. May be null if the token is not refreshed.
+	 */
+	public IAMSession(String fqdn, OAuthService osrvc) {
+		this.apiFqdn = fqdn;
+		this.osrvc = osrvc;
+		this.tokenManager = new TokenManager(new TokenManager.Refresher() {
+			@Override
+			public OAuthToken refresh(String refreshToken) throws RESTException, JSONException, ParseException {
+				OAuthService service = IAMSession.this.osrvc;
+				if (service == null) throw new RESTException("Failed during token refresh. osrvc not initiazed.");
+				OAuthToken authToken = service.refreshToken(refreshToken);
+				long expiryOverride = lowerTokenExpiryTimeTo;
+				if (authToken != null && expiryOverride >= 0) {
+					authToken = new OAuthToken(authToken.getAccessToken(), expiryOverride,
+							authToken.getRefreshToken(), (System.currentTimeMillis() / 1000));
+				}
+				return authToken;
+			}
+		});
+		this.tokenManager.setListener(new TokenManager.Listener() {
+			@Override
+			public void onTokenUpdate(OAuthToken token) {
+				immnSrvc = new IMMNService(apiFqdn, token, messageCache);
+				Log.i("getRefreshTokenListener",
+						"onSuccess Message : " +
+						TokenUpdatedListener.tokenDisplayString(token.getAccessToken()));
+				AttSdkTokenUpdater listener = tokenListener;
+				if (listener != null) {
+					listener.onTokenUpdate(token);
+				}
+			}
+		});
+
+		final String threadName = "IAMSession-" + sessionCount.incrementAndGet();
+		this.executor = new ThreadPoolExecutor(MAX_CONCURRENT_CALLS, MAX_CONCURRENT_CALLS,
+				30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, threadName);
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		// an idle session holds no threads
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Creates a session for the specified AT&amp;T API end point and sets its access token.
+	 * @param fqdn - fully qualified domain name e.g. https://api.att.com
+	 * @param osrvc - Used to refresh the access token. May be null if the token is not refreshed.
+	 * @param token - The access token used for authorization.
+	 */
+	public IAMSession(String fqdn, OAuthService osrvc, OAuthToken token) {
+		this(fqdn, osrvc);
+		setToken(token);
+	}
+
+	/**
+	 * Sets the access token used for the subsequent API calls of this session.
+	 * @param token - The access token used for authorization.
+	 */
+	public void setToken(OAuthToken token) {
+		immnSrvc = new IMMNService(apiFqdn, token, messageCache);
+		tokenManager.setToken(token);
+	}
+
+	/**
+	 * @return the current access token, or null if none has been set
+	 */
+	public OAuthToken getToken() {
+		return tokenManager.getToken();
+	}
+
+	/**
+	 * @return true if there is no access token or it has expired
+	 */
+	public boolean isTokenExpired() {
+		OAuthToken token = tokenManager.getToken();
+		return (token == null || token.isAccessTokenExpired());
+	}
+
+	/**
+	 * Sets how long before its expiry the access token is refreshed.
+	 * @param seconds - Refresh skew in seconds. The default is 5 minutes.
+	 */
+	public void setTokenRefreshSkew(long seconds) {
+		tokenManager.setRefreshSkew(seconds);
+	}
+
+	/**
+	 * Overrides the expiry time of refreshed tokens.
+	 * @param value - Override expiry time in seconds, or -1 to use the expiry the server returns.
+	 */
+	public void setLowerTokenExpiryTimeTo(long value) {
+		lowerTokenExpiryTimeTo = value;
+	}
+
+	public long getLowerTokenExpiryTimeTo() {
+		return lowerTokenExpiryTimeTo;
+	}
+
+	/**
+	 * Sets the listener to call back when the access token of this session is updated.
+	 * @param listener - AttSdkTokenUpdater object.
+	 */
+	public void setTokenUpdatedListener(AttSdkTokenUpdater listener) {
+		tokenListener = listener;
+	}
+
+	AttSdkTokenUpdater getTokenUpdatedListener() {
+		return tokenListener;
+	}
+
+	/**
+	 * Sets the FQDN of the AT&amp;T API end point.
+	 * @param fqdn - fully qualified domain name e.g. https://api.att.com
+	 */
+	public void setApiFqdn(String fqdn) {
+		apiFqdn = fqdn;
+		OAuthToken token = tokenManager.getToken();
+		if (token != null) {
+			immnSrvc = new IMMNService(fqdn, token, messageCache);
+		}
+	}
+
+	public String getApiFqdn() {
+		return apiFqdn;
+	}
+
+	/**
+	 * Sets the OAuthService used to refresh and revoke the access token.
+	 * @param osrvc - OAuthService object.
+	 */
+	public void setOAuthService(OAuthService osrvc) {
+		this.osrvc = osrvc;
+	}
+
+	public OAuthService getOAuthService() {
+		return osrvc;
+	}
+
+	/**
+	 * Searches the messages of this session received so far on the device. Every word of the
+	 * query is matched as a prefix of the words in the message text, subject and sender.
+	 * @param query - Specifies the words to search for.
+	 * @param limit - Specifies the maximum number of message identifiers to return.
+	 * @return the identifiers of the matching messages, most recent first
+	 */
+	public List<String> searchMessages(String query, int limit) {
+		return searchIndex.search(query, limit);
+	}
+
+	/**
+	 * @return the conversations formed by the messages of this session received so far
+	 */
+	public ConversationIndex getConversationIndex() {
+		return conversationIndex;
+	}
+
+	/*
+	 * Runs the API calls of this session.
+	 */
+	Executor getExecutor() {
+		return executor;
+	}
+
+	IMMNService getService() {
+		return immnSrvc;
+	}
+
+	/*
+	 * Returns a token that has not expired, refreshing it first if needed.
+	 */
+	OAuthToken getValidToken() throws RESTException {
+		return tokenManager.getValidToken();
+	}
+
+	/*
+	 * Makes the call with the current token. If the server rejects the token, the token is
+	 * refreshed and the call is retried once.
+	 */
+	<T> T callService(IAMManager.ServiceCall<T> call) throws RESTException, JSONException, ParseException {
+		final IMMNService srvc = immnSrvc;
+		try {
+			return call.call(srvc);
+		} catch (RESTException e) {
+			if (e.getStatusCode() != 401) throw e;
+			try {
+				tokenManager.refreshAfterUnauthorized(srvc.getAuthToken());
+			} catch (RESTException refreshError) {
+				Log.i("getRefreshTokenListener", "REST Error:" + refreshError.getMessage());
+				throw e;
+			}
+			return call.call(immnSrvc);
+		}
+	}
+
+	/*
+	 * Drops the messages cached and indexed for this session, e.g. after its token is revoked.
+	 */
+	void clearLocalData() {
+		messageCache.clear();
+		searchIndex.clear();
+		conversationIndex.clear();
+	}
+
+	/*
+	 * Sync events from the API tasks, used to keep the local indexes current.
+	 */
+	void onMessagesReceived(MessageList messageList) {
+		if (messageList == null || messageList.getMessages() == null) return;
+		searchIndex.addAll(messageList.getMessages());
+		conversationIndex.addAll(messageList.getMessages());
+	}
+
+	void onMessageReceived(Message message) {
+		if (message == null) return;
+		searchIndex.add(message);
+		conversationIndex.add(message);
+	}
+
+	void onDeltaReceived(DeltaResponseInternal deltaResponse) {
+		if (deltaResponse == null) return;
+		for (Delta delta : deltaResponse.getDeltas()) {
+			for (DeltaChangeInternal change : delta.getUpdates()) {
+				conversationIndex.update(change.getMessageId(), change.isFavorite(), change.isUnread());
+			}
+			for (DeltaChangeInternal change : delta.getDeletes()) {
+				searchIndex.remove(change.getMessageId());
+				conversationIndex.remove(change.getMessageId());
+			}
+		}
+	}
+
+	void onMessagesUpdated(DeltaChange[] changes) {
+		for (DeltaChange change : changes) {
+			conversationIndex.update(change.getMessageId(), change.isFavorite(), change.isUnread());
+		}
+	}
+
+	void onMessagesDeleted(String[] msgIds) {
+		for (String msgId : msgIds) {
+			searchIndex.remove(msgId);
+			conversationIndex.remove(msgId);
+		}
+	}
+}
@@ -7,6 +7,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.text.ParseException;
+import java.util.concurrent.Callable;
 
 import org.apache.commons.lang3.StringUtils;
 import org.json.JSONArray;
@@ -16,6 +17,7 @@ import org.json.JSONObject;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.util.Base64;
+import android.util.JsonReader;
 import android.util.Log;
 import android.webkit.MimeTypeMap;
 
@@ -28,11 +30,57 @@ import com.att.api.service.APIService;
 
 public class IMMNService extends APIService {
 
+    private static final JsonStreamParser<MessageList> MESSAGE_LIST_PARSER =
+            new JsonStreamParser<MessageList>() {
+        @Override
+        protected MessageList read(JsonReader reader) throws IOException, JSONException {
+            return MessageList.valueOf(reader);
+        }
+    };
+
+    private static final JsonStreamParser<Message> MESSAGE_PARSER =
+            new JsonStreamParser<Message>() {
+        @Override
+        protected Message read(JsonReader reader) throws IOException, JSONException {
+            if (!enterRootMember(reader, "message")) {
+                throw new JSONException("No value for message");
+            }
+            return Message.valueOf(reader);
+        }
+    };
+
+    private static final JsonStreamParser<DeltaResponseInternal> DELTA_PARSER =
+            new JsonStreamParser<DeltaResponseInternal>() {
+        @Override
+        protected DeltaResponseInternal read(JsonReader reader) throws IOException, JSONException {
+            return DeltaResponseInternal.valueOf(reader);
+        }
+    };
+
+    private final MessageCache messageCache;
+
 	public IMMNService(String fqdn, OAuthToken token) {
+        this(fqdn, token, null);
+    }
+
+    /*
+     * Creates a service that serves getMessage from the specified cache and
+     * keeps it current with the changes it sees. The cache may be shared
+     * between instances, e.g. across token refreshes.
+     */
+    public IMMNService(String fqdn, OAuthToken token, MessageCache messageCache) {
         super(fqdn, token);
+        this.messageCache = messageCache;
     }
 
     
+    /*
+     * Gets the token this service authorizes its requests with.
+     */
+    OAuthToken getAuthToken() {
+        return getToken();
+    }
+
     public SendResponse sendMessage(String address, String msg) throws RESTException, JSONException, ParseException {
         String[] addrs = {address};
         return this.sendMessage(addrs, msg);
@@ -235,13 +283,8 @@ public class IMMNService extends APIService {
         if (args.isIncoming() != null)
             client.addParameter("isIncoming", args.isIncoming() ? "true" : "false" );
 
-        APIResponse response  = null;
-        JSONObject	jobj = null;
-        
          try {
-			response = client.httpGet();
-			 jobj = new JSONObject(response.getResponseBody());
-			return MessageList.valueOf(jobj);
+			return client.httpGet(MESSAGE_LIST_PARSER);
 		} catch (RESTException e) {
 			// TODO Auto-generated catch block
 			throw  e;	
@@ -250,15 +293,24 @@ public class IMMNService extends APIService {
     }
 
     public Message getMessage(final String msgId) throws RESTException, JSONException, ParseException {
+        if (messageCache == null) {
+            return fetchMessage(msgId);
+        }
+        return messageCache.get(msgId, new Callable<Message>() {
+            @Override
+            public Message call() throws Exception {
+                return fetchMessage(msgId);
+            }
+        });
+    }
+
+    private Message fetchMessage(final String msgId) throws RESTException, JSONException, ParseException {
         final String endpoint = getFQDN() + "/myMessages/v2/messages/" + msgId;
 
-        final APIResponse response = new RESTClient(endpoint)
+        return new RESTClient(endpoint)
             .addAuthorizationHeader(getToken())
             .setHeader("Accept", "application/json")
-            .httpGet();
-
-        JSONObject jobj = new JSONObject(response.getResponseBody());
-		return Message.valueOf(jobj.getJSONObject("message"));
+            .httpGet(MESSAGE_PARSER);
     }
 
     public MessageContent getMessageContent(String msgId, String partNumber)
@@ -292,14 +344,16 @@ public class IMMNService extends APIService {
     public DeltaResponseInternal getDelta(final String state) throws RESTException, JSONException, ParseException {
         final String endpoint = getFQDN() + "/myMessages/v2/delta";
 
-        final APIResponse response = new RESTClient(endpoint)
+        final DeltaResponseInternal deltaResponse = new RESTClient(endpoint)
             .addAuthorizationHeader(getToken())
             .setHeader("Accept", "application/json")
             .addParameter("state", state)
-            .httpGet();
+            .httpGet(DELTA_PARSER);
 
-        JSONObject jobj = new JSONObject(response.getResponseBody());
-		return DeltaResponseInternal.valueOf(jobj);
+        if (messageCache != null && deltaResponse != null) {
+            messageCache.apply(deltaResponse);
+        }
+        return deltaResponse;
     }
 
     public void updateMessages(DeltaChange[] messages) throws RESTException, JSONException {
@@ -333,6 +387,12 @@ public class IMMNService extends APIService {
             final String body = response.getResponseBody();
             throw new RESTException(code, body);
         }
+
+        if (messageCache != null) {
+            for (final DeltaChange change : messages) {
+                messageCache.update(change.getMessageId(), change.isFavorite(), change.isUnread());
+            }
+        }
     }
 
     public void updateMessage(String msgId, Boolean isUnread,
@@ -358,6 +418,10 @@ public class IMMNService extends APIService {
             final String body = response.getResponseBody();
             throw new RESTException(code, body);
         }
+
+        if (messageCache != null) {
+            messageCache.update(msgId, isFavorite, isUnread);
+        }
     }
 
     public void deleteMessages(String[] msgIds) throws RESTException {
@@ -376,6 +440,12 @@ public class IMMNService extends APIService {
             final String body = response.getResponseBody();
             throw new RESTException(code, body);
         }
+
+        if (messageCache != null) {
+            for (final String msgId : msgIds) {
+                messageCache.remove(msgId);
+            }
+        }
     }
 
     public void deleteMessage(String msgId) throws RESTException {
@@ -391,6 +461,10 @@ public class IMMNService extends APIService {
             final String body = response.getResponseBody();
             throw new RESTException(code, body);
         }
+
+        if (messageCache != null) {
+            messageCache.remove(msgId);
+        }
     }
 
     public void createMessageIndex() throws RESTException {
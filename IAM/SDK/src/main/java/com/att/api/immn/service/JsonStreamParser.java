@@ -0,0 +1,97 @@
+package com.att.api.immn.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import org.json.JSONException;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.att.api.rest.ResponseParser;
+
+/*
+ * Decodes a JSON response body with a pull parser, filling the model objects
+ * straight from the response stream instead of building an org.json tree
+ * first.
+ */
+abstract class JsonStreamParser<T> implements ResponseParser<T> {
+
+    /*
+     * Reads the decoded object from the parser, which is positioned before
+     * the root JSON value.
+     */
+    protected abstract T read(JsonReader reader) throws IOException, JSONException;
+
+    @Override
+    public final T parse(InputStream stream) throws IOException, JSONException {
+        final JsonReader reader = new JsonReader(new InputStreamReader(stream, "UTF-8"));
+        try {
+            return read(reader);
+        } catch (IllegalStateException e) {
+            // JsonReader reports unexpected token types this way
+            throw new JSONException(e.getMessage());
+        } catch (NumberFormatException e) {
+            throw new JSONException(e.getMessage());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /*
+     * Reads a string value, returning null for a JSON null.
+     */
+    static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /*
+     * Reads a boolean value, also accepting "true" and "false" strings as the
+     * API is not consistent about which it sends.
+     */
+    static boolean nextBoolean(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return reader.nextString().equalsIgnoreCase("true");
+        }
+        return reader.nextBoolean();
+    }
+
+    /*
+     * Reads the "value" member of an address object such as
+     * <code>{"value": "tel:+12065551212"}</code>.
+     */
+    static String nextAddress(JsonReader reader) throws IOException {
+        String value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("value")) {
+                value = nextString(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return value;
+    }
+
+    /*
+     * Positions the parser at the value of the named member of the root
+     * object, skipping all other members. Returns false if there is no such
+     * member.
+     */
+    static boolean enterRootMember(JsonReader reader, String name) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(name)) {
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+}
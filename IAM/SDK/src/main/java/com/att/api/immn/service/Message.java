@@ -1,25 +1,32 @@
 package com.att.api.immn.service;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 public final class Message {
+    private static final byte FAVORITE = 0x01;
+    private static final byte UNREAD = 0x02;
+    private static final byte INCOMING = 0x04;
+
     private String messageId;
     private String from;
     private String[] recipients;
     private String text;
     private ArrayList<MmsContent> mmsContents;
-    private String timeStamp;
 
-    private boolean isFavorite;
-    private boolean isUnread;
+    // parsed once; the string is only built when asked for
+    private long timeStampMillis;
+
+    private byte flags;
     private String type;
     private TypeMetaData typeMetaData;
-    private boolean isIncoming;
     
     private Message() {
         this.messageId = null;
@@ -27,10 +34,10 @@ public final class Message {
         this.recipients = null;
         this.text = null;
         this.mmsContents = null;
-        this.timeStamp = null;
+        this.timeStampMillis = TimeStamps.NONE;
+        this.flags = 0;
         this.type = null;
         this.typeMetaData = null;
-        this.isIncoming = false;
     }
         
     public static Message valueOf(JSONObject jobj) throws JSONException {
@@ -39,13 +46,13 @@ public final class Message {
         msg.messageId = jobj.getString("messageId");
 
         if (jobj.has("from"))
-            msg.from = jobj.getJSONObject("from").getString("value");
+            msg.from = StringPool.intern(jobj.getJSONObject("from").getString("value"));
 
         if (jobj.has("recipients")) {
             JSONArray jarr = jobj.getJSONArray("recipients");
             final String[] recipients = new String[jarr.length()];
             for (int i = 0; i < jarr.length(); ++i) {
-                recipients[i] = jarr.getJSONObject(i).getString("value");
+                recipients[i] = StringPool.intern(jarr.getJSONObject(i).getString("value"));
             }
             msg.recipients = recipients;
         }
@@ -54,26 +61,124 @@ public final class Message {
 
         if (jobj.has("mmsContent")) {
             JSONArray jarr = jobj.getJSONArray("mmsContent");
-            final MmsContent[] mmsContents = new MmsContent[jarr.length()];
+            final ArrayList<MmsContent> mmsContents = new ArrayList<MmsContent>(jarr.length());
             for (int i = 0; i < jarr.length(); ++i) {
-                mmsContents[i] = MmsContent.valueOf(jarr.getJSONObject(i));
+                mmsContents.add(MmsContent.valueOf(jarr.getJSONObject(i)));
             }
-            msg.mmsContents = new ArrayList<MmsContent>(Arrays.asList(mmsContents));
+            msg.mmsContents = mmsContents;
         }
 
-        if (jobj.has("timeStamp")) msg.timeStamp = jobj.getString("timeStamp");
-        msg.isFavorite = jobj.getBoolean("isFavorite");
-        msg.isUnread = jobj.getBoolean("isUnread");
-        msg.type = jobj.getString("type");
+        if (jobj.has("timeStamp")) msg.setTimeStamp(jobj.getString("timeStamp"));
+        msg.setFlag(FAVORITE, jobj.getBoolean("isFavorite"));
+        msg.setFlag(UNREAD, jobj.getBoolean("isUnread"));
+        msg.type = StringPool.intern(jobj.getString("type"));
         msg.typeMetaData = TypeMetaData.valueOf(jobj.getJSONObject("typeMetaData"));
 
         if (jobj.has("isIncoming")) {
-            msg.isIncoming = jobj.getString("isIncoming").equals("true");
+            msg.setFlag(INCOMING, jobj.getString("isIncoming").equals("true"));
         }
         
         return msg;
     }
 
+    /*
+     * Reads a message from a pull parser positioned at the start of the
+     * message object, without building an intermediate JSONObject.
+     */
+    public static Message valueOf(JsonReader reader) throws IOException, JSONException {
+        Message msg = new Message();
+        boolean hasFavorite = false;
+        boolean hasUnread = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if (name.equals("messageId")) {
+                msg.messageId = reader.nextString();
+            } else if (name.equals("from")) {
+                msg.from = StringPool.intern(JsonStreamParser.nextAddress(reader));
+            } else if (name.equals("recipients")) {
+                final ArrayList<String> recipients = new ArrayList<String>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    recipients.add(StringPool.intern(JsonStreamParser.nextAddress(reader)));
+                }
+                reader.endArray();
+                msg.recipients = recipients.toArray(new String[recipients.size()]);
+            } else if (name.equals("text")) {
+                msg.text = reader.nextString();
+            } else if (name.equals("mmsContent")) {
+                final ArrayList<MmsContent> mmsContents = new ArrayList<MmsContent>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    mmsContents.add(MmsContent.valueOf(reader));
+                }
+                reader.endArray();
+                mmsContents.trimToSize();
+                msg.mmsContents = mmsContents;
+            } else if (name.equals("timeStamp")) {
+                msg.setTimeStamp(reader.nextString());
+            } else if (name.equals("isFavorite")) {
+                msg.setFlag(FAVORITE, JsonStreamParser.nextBoolean(reader));
+                hasFavorite = true;
+            } else if (name.equals("isUnread")) {
+                msg.setFlag(UNREAD, JsonStreamParser.nextBoolean(reader));
+                hasUnread = true;
+            } else if (name.equals("type")) {
+                msg.type = StringPool.intern(reader.nextString());
+            } else if (name.equals("typeMetaData")) {
+                msg.typeMetaData = TypeMetaData.valueOf(reader);
+            } else if (name.equals("isIncoming")) {
+                msg.setFlag(INCOMING, JsonStreamParser.nextBoolean(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (msg.messageId == null || !hasFavorite || !hasUnread
+                || msg.type == null || msg.typeMetaData == null) {
+            throw new JSONException("Message is missing a required field");
+        }
+
+        return msg;
+    }
+
+    /*
+     * Returns a copy of this message with the specified flags changed. A null
+     * flag is left unchanged.
+     */
+    Message withFlags(Boolean isFavorite, Boolean isUnread) {
+        Message msg = new Message();
+        msg.messageId = messageId;
+        msg.from = from;
+        msg.recipients = recipients;
+        msg.text = text;
+        msg.mmsContents = mmsContents;
+        msg.timeStampMillis = timeStampMillis;
+        msg.flags = flags;
+        msg.type = type;
+        msg.typeMetaData = typeMetaData;
+
+        if (isFavorite != null) msg.setFlag(FAVORITE, isFavorite);
+        if (isUnread != null) msg.setFlag(UNREAD, isUnread);
+        return msg;
+    }
+
+    private void setTimeStamp(String str) {
+        timeStampMillis = TimeStamps.parse(str);
+    }
+
+    private void setFlag(byte flag, boolean value) {
+        if (value) {
+            flags |= flag;
+        } else {
+            flags &= ~flag;
+        }
+    }
+
     public String getMessageId() {
         return messageId;
     }
@@ -94,16 +199,33 @@ public final class Message {
         return mmsContents;
     }
 
+    /*
+     * Returns the timestamp in ISO 8601 form, in UTC with milliseconds, such
+     * as <code>2014-01-14T21:13:03.000Z</code>. Returns null if the message
+     * has no timestamp or it could not be parsed.
+     */
     public String getTimeStamp() {
-        return timeStamp;
+        if (timeStampMillis == TimeStamps.NONE) {
+            return null;
+        }
+        return TimeStamps.format(timeStampMillis);
+    }
+
+    /*
+     * Returns the timestamp in milliseconds since the epoch, or
+     * Long.MIN_VALUE if the message has no timestamp or it could not be
+     * parsed.
+     */
+    public long getTimeStampMillis() {
+        return timeStampMillis;
     }
 
     public boolean isFavorite() {
-        return isFavorite;
+        return (flags & FAVORITE) != 0;
     }
 
     public boolean isUnread() {
-        return isUnread;
+        return (flags & UNREAD) != 0;
     }
 
     public String getType() {
@@ -115,7 +237,7 @@ public final class Message {
     }
 
     public boolean isIncoming() {
-        return isIncoming;
+        return (flags & INCOMING) != 0;
     }
     
     public String getSubject() {
@@ -0,0 +1,142 @@
+package com.att.api.immn.service;
+
+import java.text.ParseException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.json.JSONException;
+
+import android.util.LruCache;
+
+import com.att.api.rest.RESTException;
+
+/*
+ * Size bounded cache of messages fetched with IMMNService.getMessage.
+ *
+ * Concurrent requests for a message that is not cached share a single fetch.
+ * Entries are kept current by applying the changes reported by getDelta and
+ * the changes made through updateMessage(s) and deleteMessage(s); a change
+ * to a message that is being fetched discards the result of that fetch
+ * instead of caching it.
+ */
+public final class MessageCache {
+    public static final int DEFAULT_MAX_MESSAGES = 200;
+
+    private final LruCache<String, Message> cache;
+    private final ConcurrentHashMap<String, FutureTask<Message>> inFlight =
+            new ConcurrentHashMap<String, FutureTask<Message>>();
+
+    public MessageCache() {
+        this(DEFAULT_MAX_MESSAGES);
+    }
+
+    public MessageCache(int maxMessages) {
+        this.cache = new LruCache<String, Message>(maxMessages);
+    }
+
+    /*
+     * Returns the cached message, or loads it with the specified loader. If
+     * another thread is already loading the same message, waits for its
+     * result instead of loading it again.
+     */
+    public Message get(String msgId, Callable<Message> loader)
+            throws RESTException, JSONException, ParseException {
+
+        final Message cached = cache.get(msgId);
+        if (cached != null) {
+            return cached;
+        }
+
+        final FutureTask<Message> task = new FutureTask<Message>(loader);
+        FutureTask<Message> existing = inFlight.putIfAbsent(msgId, task);
+        if (existing == null) {
+            task.run();
+            existing = task;
+        }
+
+        final Message msg;
+        try {
+            msg = existing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RESTException(e);
+        } catch (ExecutionException e) {
+            inFlight.remove(msgId, existing);
+            throw unwrap(e.getCause());
+        }
+
+        if (existing == task) {
+            synchronized (cache) {
+                // only cache if no change to this message arrived meanwhile
+                if (inFlight.remove(msgId, task) && msg != null) {
+                    cache.put(msgId, msg);
+                }
+            }
+        }
+        return msg;
+    }
+
+    /*
+     * Updates the flags of a cached message. A null flag is left unchanged.
+     */
+    public void update(String msgId, Boolean isFavorite, Boolean isUnread) {
+        synchronized (cache) {
+            inFlight.remove(msgId);
+            final Message msg = cache.get(msgId);
+            if (msg != null) {
+                cache.put(msgId, msg.withFlags(isFavorite, isUnread));
+            }
+        }
+    }
+
+    public void remove(String msgId) {
+        synchronized (cache) {
+            inFlight.remove(msgId);
+            cache.remove(msgId);
+        }
+    }
+
+    /*
+     * Applies the changes reported by getDelta.
+     */
+    public void apply(DeltaResponseInternal deltaResponse) {
+        for (final Delta delta : deltaResponse.getDeltas()) {
+            for (final DeltaChangeInternal change : delta.getUpdates()) {
+                if (change.isFavorite() == null && change.isUnread() == null) {
+                    remove(change.getMessageId());
+                } else {
+                    update(change.getMessageId(), change.isFavorite(), change.isUnread());
+                }
+            }
+            for (final DeltaChangeInternal change : delta.getDeletes()) {
+                remove(change.getMessageId());
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            inFlight.clear();
+            cache.evictAll();
+        }
+    }
+
+    private static RESTException unwrap(Throwable cause)
+            throws JSONException, ParseException {
+
+        if (cause instanceof RESTException) {
+            return (RESTException) cause;
+        } else if (cause instanceof JSONException) {
+            throw (JSONException) cause;
+        } else if (cause instanceof ParseException) {
+            throw (ParseException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RESTException(cause);
+    }
+}
@@ -1,12 +1,15 @@
 package com.att.api.immn.service;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 public final class MessageList {
     private int offset;
     private int limit;
@@ -32,14 +35,13 @@ public final class MessageList {
         JSONObject jMsgList = jobj.getJSONObject("messageList");
 
         JSONArray jmsgs = jMsgList.getJSONArray("messages");
-        Message[] msgs = new Message[jmsgs.length()];
+        ArrayList<Message> msgs = new ArrayList<Message>(jmsgs.length());
 
         for (int i = 0; i < jmsgs.length(); ++i) {
-            Message msg = Message.valueOf(jmsgs.getJSONObject(i));
-            msgs[i] = msg;
+            msgs.add(Message.valueOf(jmsgs.getJSONObject(i)));
         }
         
-        msgList.messagesArrayList = new ArrayList<Message>(Arrays.asList(msgs));
+        msgList.messagesArrayList = msgs;
         msgList.offset = jMsgList.getInt("offset");
         msgList.limit = jMsgList.getInt("limit");
         msgList.total = jMsgList.getInt("total");
@@ -62,6 +64,70 @@ public final class MessageList {
         return msgList;
     }
 
+    /*
+     * Reads a message list from a pull parser positioned before the root
+     * <code>{"messageList": ...}</code> object.
+     */
+    public static MessageList valueOf(JsonReader reader) throws IOException, JSONException {
+        if (!JsonStreamParser.enterRootMember(reader, "messageList")) {
+            throw new JSONException("No value for messageList");
+        }
+
+        MessageList msgList = new MessageList();
+        boolean hasOffset = false;
+        boolean hasLimit = false;
+        boolean hasTotal = false;
+        String cacheStatusStr = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if (name.equals("messages")) {
+                ArrayList<Message> msgs = new ArrayList<Message>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    msgs.add(Message.valueOf(reader));
+                }
+                reader.endArray();
+                msgList.messagesArrayList = msgs;
+            } else if (name.equals("offset")) {
+                msgList.offset = reader.nextInt();
+                hasOffset = true;
+            } else if (name.equals("limit")) {
+                msgList.limit = reader.nextInt();
+                hasLimit = true;
+            } else if (name.equals("total")) {
+                msgList.total = reader.nextInt();
+                hasTotal = true;
+            } else if (name.equals("state")) {
+                msgList.state = reader.nextString();
+            } else if (name.equals("cacheStatus")) {
+                cacheStatusStr = reader.nextString();
+            } else if (name.equals("failedMessages")) {
+                ArrayList<String> failed = new ArrayList<String>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    failed.add(JsonStreamParser.nextString(reader));
+                }
+                reader.endArray();
+                msgList.failedMessages = failed.toArray(new String[failed.size()]);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (msgList.messagesArrayList == null || !hasOffset || !hasLimit
+                || !hasTotal || msgList.state == null || cacheStatusStr == null) {
+            throw new JSONException("MessageList is missing a required field");
+        }
+        msgList.cacheStatus = CacheStatus.fromString(cacheStatusStr);
+
+        return msgList;
+    }
+
     
     public ArrayList<Message> getMessages() {
         return messagesArrayList;
@@ -0,0 +1,322 @@
+package com.att.api.immn.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * On-device inverted index over the text, subject and sender of synced
+ * messages, so that keyword search does not need a server round trip.
+ *
+ * Every word of a query is matched as a prefix of the indexed words, all
+ * query words must match, and results are ordered most recent first. The
+ * index holds message ids, not messages; it is kept up to date by
+ * IAMManager as message lists, messages and deltas are received.
+ */
+public final class MessageSearchIndex {
+    private static final String[] NO_TERMS = new String[0];
+
+    // term -> ascending document numbers
+    private final TreeMap<String, IntList> postings = new TreeMap<String, IntList>();
+    private final HashMap<String, Integer> docByMessageId = new HashMap<String, Integer>();
+
+    // indexed by document number; a removed document leaves a null id
+    private final ArrayList<String> docMessageIds = new ArrayList<String>();
+    private final ArrayList<String[]> docTerms = new ArrayList<String[]>();
+    private long[] docTimes = new long[64];
+    private int removedDocs = 0;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /*
+     * Indexes the message, replacing any previous version of it.
+     */
+    public void add(Message msg) {
+        lock.writeLock().lock();
+        try {
+            addLocked(msg);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void addAll(Collection<Message> msgs) {
+        lock.writeLock().lock();
+        try {
+            for (final Message msg : msgs) {
+                addLocked(msg);
+            }
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String msgId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(msgId);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docByMessageId.clear();
+            docMessageIds.clear();
+            docTerms.clear();
+            removedDocs = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docByMessageId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Returns the ids of at most limit messages matching every word of the
+     * query as a prefix, most recent first. An empty query matches nothing.
+     */
+    public List<String> search(String query, int limit) {
+        final String[] words = tokenize(query);
+        final ArrayList<String> result = new ArrayList<String>();
+        if (words.length == 0 || limit <= 0) {
+            return result;
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet matches = null;
+            for (final String word : words) {
+                final BitSet wordMatches = matchPrefix(word);
+                if (matches == null) {
+                    matches = wordMatches;
+                } else {
+                    matches.and(wordMatches);
+                }
+                if (matches.isEmpty()) {
+                    return result;
+                }
+            }
+
+            // keep the newest matches in a small array sorted newest first,
+            // rather than sorting every match
+            final int max = Math.min(limit, matches.cardinality());
+            final int[] top = new int[max];
+            int n = 0;
+            for (int doc = matches.nextSetBit(0); doc >= 0; doc = matches.nextSetBit(doc + 1)) {
+                final long time = docTimes[doc];
+                if (n == max && time <= docTimes[top[n - 1]]) {
+                    continue;
+                }
+                int i = n < max ? n++ : n - 1;
+                while (i > 0 && docTimes[top[i - 1]] < time) {
+                    top[i] = top[i - 1];
+                    --i;
+                }
+                top[i] = doc;
+            }
+
+            for (int i = 0; i < n; ++i) {
+                result.add(docMessageIds.get(top[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet matchPrefix(String prefix) {
+        final BitSet docs = new BitSet(docMessageIds.size());
+        final SortedMap<String, IntList> range = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        for (final IntList list : range.values()) {
+            for (int i = 0; i < list.size; ++i) {
+                docs.set(list.values[i]);
+            }
+        }
+        return docs;
+    }
+
+    private void addLocked(Message msg) {
+        final String msgId = msg.getMessageId();
+        removeLocked(msgId);
+
+        final String[] terms = termsOf(msg);
+        final int doc = docMessageIds.size();
+        docMessageIds.add(msgId);
+        docTerms.add(terms);
+        if (doc == docTimes.length) {
+            docTimes = Arrays.copyOf(docTimes, doc * 2);
+        }
+        docTimes[doc] = msg.getTimeStampMillis();
+        docByMessageId.put(msgId, Integer.valueOf(doc));
+
+        for (final String term : terms) {
+            IntList list = postings.get(term);
+            if (list == null) {
+                list = new IntList();
+                postings.put(term, list);
+            }
+            // documents are numbered in insertion order, so this keeps the list sorted
+            list.add(doc);
+        }
+    }
+
+    private void removeLocked(String msgId) {
+        final Integer boxed = docByMessageId.remove(msgId);
+        if (boxed == null) {
+            return;
+        }
+        final int doc = boxed.intValue();
+        for (final String term : docTerms.get(doc)) {
+            final IntList list = postings.get(term);
+            if (list != null) {
+                list.remove(doc);
+                if (list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+        docMessageIds.set(doc, null);
+        docTerms.set(doc, NO_TERMS);
+        ++removedDocs;
+    }
+
+    /*
+     * Renumbers the documents once more than half of them have been removed,
+     * so that the document tables and query bit sets do not keep growing.
+     */
+    private void compactIfSparse() {
+        if (removedDocs < 64 || removedDocs * 2 < docMessageIds.size()) {
+            return;
+        }
+        final ArrayList<String> ids = new ArrayList<String>(docByMessageId.size());
+        final ArrayList<String[]> terms = new ArrayList<String[]>(docByMessageId.size());
+        final long[] times = new long[Math.max(64, docByMessageId.size())];
+        for (int doc = 0; doc < docMessageIds.size(); ++doc) {
+            final String msgId = docMessageIds.get(doc);
+            if (msgId != null) {
+                times[ids.size()] = docTimes[doc];
+                ids.add(msgId);
+                terms.add(docTerms.get(doc));
+            }
+        }
+
+        postings.clear();
+        docByMessageId.clear();
+        for (int doc = 0; doc < ids.size(); ++doc) {
+            docByMessageId.put(ids.get(doc), Integer.valueOf(doc));
+            for (final String term : terms.get(doc)) {
+                IntList list = postings.get(term);
+                if (list == null) {
+                    list = new IntList();
+                    postings.put(term, list);
+                }
+                list.add(doc);
+            }
+        }
+        docMessageIds.clear();
+        docMessageIds.addAll(ids);
+        docTerms.clear();
+        docTerms.addAll(terms);
+        docTimes = times;
+        removedDocs = 0;
+    }
+
+    private static String[] termsOf(Message msg) {
+        final HashSet<String> terms = new HashSet<String>();
+        addTerms(terms, msg.getText());
+        if (msg.getTypeMetaData() != null) {
+            addTerms(terms, msg.getSubject());
+        }
+        final String from = msg.getFrom();
+        if (from != null) {
+            addTerms(terms, from);
+            // also index the bare address so "206555" finds "tel:+12065551212"
+            final int colon = from.indexOf(':');
+            final String address = colon >= 0 ? from.substring(colon + 1) : from;
+            final String digits = address.replaceAll("[^0-9]", "");
+            if (digits.length() > 0) {
+                terms.add(digits);
+                // numbers are usually searched without the country code
+                if (digits.length() == 11 && digits.charAt(0) == '1') {
+                    terms.add(digits.substring(1));
+                }
+            }
+        }
+        return terms.toArray(new String[terms.size()]);
+    }
+
+    private static void addTerms(Collection<String> terms, String text) {
+        if (text == null) {
+            return;
+        }
+        for (final String word : tokenize(text)) {
+            terms.add(word);
+        }
+    }
+
+    private static String[] tokenize(String text) {
+        if (text == null) {
+            return NO_TERMS;
+        }
+        final ArrayList<String> words = new ArrayList<String>();
+        final String lower = text.toLowerCase(Locale.US);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); ++i) {
+            final boolean wordChar = i < lower.length()
+                    && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words.toArray(new String[words.size()]);
+    }
+
+    /*
+     * Growable sorted array of document numbers.
+     */
+    private static final class IntList {
+        int[] values = new int[2];
+        int size = 0;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void remove(int value) {
+            final int i = Arrays.binarySearch(values, 0, size, value);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, size - i - 1);
+                --size;
+            }
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.att.api.immn.service;
 
+import java.io.IOException;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 public final class MmsContent {
     private final String contentName;
     private final String contentType;
@@ -13,7 +18,7 @@ public final class MmsContent {
             MessageContentType type) {
 
         this.contentName = cname;
-        this.contentType = ctype;
+        this.contentType = StringPool.intern(ctype);
         this.contentUrl = curl;
         this.type = type;
     }
@@ -45,4 +50,36 @@ public final class MmsContent {
         return new MmsContent(cname, ctype, curl, type);
     }
 
+    public static MmsContent valueOf(JsonReader reader) throws IOException, JSONException {
+        String cname = null;
+        String ctype = null;
+        String curl = null;
+        String typestr = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if (name.equals("contentName")) {
+                cname = reader.nextString();
+            } else if (name.equals("contentType")) {
+                ctype = reader.nextString();
+            } else if (name.equals("contentUrl")) {
+                curl = reader.nextString();
+            } else if (name.equals("type")) {
+                typestr = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (cname == null || ctype == null || curl == null || typestr == null) {
+            throw new JSONException("MmsContent is missing a required field");
+        }
+
+        return new MmsContent(cname, ctype, curl, MessageContentType.fromString(typestr));
+    }
+
 }
@@ -1,8 +1,12 @@
 package com.att.api.immn.service;
 
+import java.io.IOException;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import android.util.JsonReader;
+
 public final class SegmentationDetails {
     private final int segmentationMsgRefNumber;
     private final int totalNumberOfParts;
@@ -33,5 +37,32 @@ public final class SegmentationDetails {
 
         return new SegmentationDetails(refNumb, numbParts, partNumb);
     }
+
+    public static SegmentationDetails valueOf(JsonReader reader) throws IOException, JSONException {
+        int refNumb = -1;
+        int numbParts = -1;
+        int partNumb = -1;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (name.equals("segmentationMsgRefNumber")) {
+                refNumb = reader.nextInt();
+            } else if (name.equals("totalNumberOfParts")) {
+                numbParts = reader.nextInt();
+            } else if (name.equals("thisPartNumber")) {
+                partNumb = reader.nextInt();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (refNumb < 0 || numbParts < 0 || partNumb < 0) {
+            throw new JSONException("SegmentationDetails is missing a required field");
+        }
+
+        return new SegmentationDetails(refNumb, numbParts, partNumb);
+    }
     
 }
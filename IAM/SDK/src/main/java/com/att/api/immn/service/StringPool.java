@@ -0,0 +1,33 @@
+package com.att.api.immn.service;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/*
+ * Canonicalizes strings that repeat across many messages (senders, message
+ * types, content types) so that a large mailbox holds one copy of each.
+ *
+ * Entries are weakly held and disappear once no message refers to them.
+ */
+final class StringPool {
+    private static final WeakHashMap<String, WeakReference<String>> POOL =
+            new WeakHashMap<String, WeakReference<String>>();
+
+    private StringPool() {
+    }
+
+    static String intern(String str) {
+        if (str == null) {
+            return null;
+        }
+        synchronized (POOL) {
+            final WeakReference<String> ref = POOL.get(str);
+            final String pooled = ref == null ? null : ref.get();
+            if (pooled != null) {
+                return pooled;
+            }
+            POOL.put(str, new WeakReference<String>(str));
+            return str;
+        }
+    }
+}
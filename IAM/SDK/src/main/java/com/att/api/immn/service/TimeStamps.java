@@ -0,0 +1,159 @@
+package com.att.api.immn.service;
+
+/*
+ * Converts between the ISO 8601 timestamps used by the API, such as
+ * <code>2014-01-14T21:13:03</code>, and epoch milliseconds.
+ *
+ * Timestamps without a zone designator are in UTC. Conversion is done by
+ * hand rather than with SimpleDateFormat so that parsing a large message
+ * list does not allocate a formatter, calendar or date per message.
+ */
+final class TimeStamps {
+    static final long NONE = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private TimeStamps() {
+    }
+
+    /*
+     * Returns the timestamp in epoch milliseconds, or NONE if the string is
+     * not in a recognized format.
+     */
+    static long parse(String str) {
+        if (str == null || str.length() < 19) {
+            return NONE;
+        }
+        final int year = digits(str, 0, 4);
+        final int month = digits(str, 5, 2);
+        final int day = digits(str, 8, 2);
+        final int hour = digits(str, 11, 2);
+        final int minute = digits(str, 14, 2);
+        final int second = digits(str, 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 60 || str.charAt(4) != '-'
+                || str.charAt(7) != '-' || str.charAt(13) != ':'
+                || str.charAt(16) != ':') {
+            return NONE;
+        }
+        final char sep = str.charAt(10);
+        if (sep != 'T' && sep != ' ') {
+            return NONE;
+        }
+
+        int pos = 19;
+        int millis = 0;
+        if (pos < str.length() && str.charAt(pos) == '.') {
+            int scale = 100;
+            ++pos;
+            while (pos < str.length() && isDigit(str.charAt(pos))) {
+                millis += (str.charAt(pos) - '0') * scale;
+                scale /= 10;
+                ++pos;
+            }
+        }
+
+        long offsetMillis = 0;
+        if (pos < str.length()) {
+            final char zone = str.charAt(pos);
+            if (zone == 'Z' && pos + 1 == str.length()) {
+                offsetMillis = 0;
+            } else if ((zone == '+' || zone == '-') && pos + 6 == str.length()
+                    && str.charAt(pos + 3) == ':') {
+                final int zh = digits(str, pos + 1, 2);
+                final int zm = digits(str, pos + 4, 2);
+                if (zh < 0 || zm < 0) {
+                    return NONE;
+                }
+                offsetMillis = (zh * 60L + zm) * 60 * 1000;
+                if (zone == '-') {
+                    offsetMillis = -offsetMillis;
+                }
+            } else {
+                return NONE;
+            }
+        }
+
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                + ((hour * 60L + minute) * 60 + second) * 1000 + millis
+                - offsetMillis;
+    }
+
+    /*
+     * Formats epoch milliseconds in UTC with milliseconds and a zone
+     * designator, such as <code>2014-01-14T21:13:03.000Z</code>, so that
+     * parsing the result gives back the same instant.
+     */
+    static String format(long millis) {
+        long days = millis / MILLIS_PER_DAY;
+        long rem = millis % MILLIS_PER_DAY;
+        if (rem < 0) {
+            rem += MILLIS_PER_DAY;
+            --days;
+        }
+
+        // inverse of daysFromCivil
+        final long z = days + 719468;
+        final long era = (z >= 0 ? z : z - 146096) / 146097;
+        final long doe = z - era * 146097;
+        final long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        final long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        final long mp = (5 * doy + 2) / 153;
+        final int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        final int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        final int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+        final int ms = (int) rem;
+        final int secs = ms / 1000;
+        final char[] buf = new char[24];
+        put(buf, 0, year, 4);
+        buf[4] = '-';
+        put(buf, 5, month, 2);
+        buf[7] = '-';
+        put(buf, 8, day, 2);
+        buf[10] = 'T';
+        put(buf, 11, secs / 3600, 2);
+        buf[13] = ':';
+        put(buf, 14, (secs / 60) % 60, 2);
+        buf[16] = ':';
+        put(buf, 17, secs % 60, 2);
+        buf[19] = '.';
+        put(buf, 20, ms % 1000, 3);
+        buf[23] = 'Z';
+        return new String(buf);
+    }
+
+    // days since 1970-01-01 in the proleptic Gregorian calendar
+    private static long daysFromCivil(int year, int month, int day) {
+        final int y = month <= 2 ? year - 1 : year;
+        final int era = (y >= 0 ? y : y - 399) / 400;
+        final int yoe = y - era * 400;
+        final int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        final int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    private static int digits(String str, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; ++i) {
+            final char c = str.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static void put(char[] buf, int start, int value, int count) {
+        for (int i = start + count - 1; i >= start; --i) {
+            buf[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package com.att.api.immn.service;
 
+import java.io.IOException;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
+
 public final class TypeMetaData {
+    // most messages carry no metadata, so they all share this instance
+    private static final TypeMetaData EMPTY = new TypeMetaData(null, null, null);
 
     private final Boolean isSegmented;
     private final SegmentationDetails details;
@@ -29,6 +36,14 @@ public final class TypeMetaData {
         return subject;
     }
 
+    private static TypeMetaData create(Boolean isSegmented,
+            SegmentationDetails details, String subject) {
+        if (isSegmented == null && details == null && subject == null) {
+            return EMPTY;
+        }
+        return new TypeMetaData(isSegmented, details, subject);
+    }
+
     public static TypeMetaData valueOf(JSONObject jobj) throws JSONException {
         Boolean isSegmented = null;
         SegmentationDetails details = null;
@@ -45,7 +60,32 @@ public final class TypeMetaData {
         if (jobj.has("subject"))
             subject = jobj.getString("subject");
             
-        return new TypeMetaData(isSegmented, details, subject);
+        return create(isSegmented, details, subject);
+    }
+
+    public static TypeMetaData valueOf(JsonReader reader) throws IOException, JSONException {
+        Boolean isSegmented = null;
+        SegmentationDetails details = null;
+        String subject = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+            } else if (name.equals("isSegmented")) {
+                isSegmented = JsonStreamParser.nextBoolean(reader);
+            } else if (name.equals("segmentationDetails")) {
+                details = SegmentationDetails.valueOf(reader);
+            } else if (name.equals("subject")) {
+                subject = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        return create(isSegmented, details, subject);
     }
 
 }
@@ -14,11 +14,13 @@
 
 package com.att.api.oauth;
 
+import java.io.IOException;
 import java.text.ParseException;
 
 import android.os.AsyncTask;
 import android.os.Handler;
 import android.app.Activity;
+import android.content.Context;
 
 import com.att.api.error.InAppMessagingError;
 import com.att.api.error.Utils;
@@ -78,7 +80,7 @@ import org.json.JSONObject;
  * } catch (RESTException e) {
  *     // if an error occured during access token request
  * } catch (IOException ioe) {
- *     // if an error occured loading or saving token
+ *     // if an error occured loading token
  * }
  * </pre>
  *
@@ -204,7 +206,12 @@ public class OAuthService extends Activity implements ATTIAMListener {
      * </p>
      *
      * <p>
-     * The token request is done using the 'client_credentials' grant type.
+     * The token request is done using the 'client_credentials' grant type,
+     * through the {@link TokenBroker}; a token that the broker already holds
+     * for this client id and scope is returned without a request. The token
+     * is saved in the application's files, so that a later run of the
+     * application reuses it, once the SDK has been given a context, e.g. by
+     * the user consent activity or {@link #getToken(String, Context)}.
      * </p>
      *
      * @param scope scope to use when requesting access token
@@ -215,18 +222,42 @@ public class OAuthService extends Activity implements ATTIAMListener {
      * @throws JSONException couldn't parse response JSON
      */
     public OAuthToken getToken(String scope) throws RESTException, JSONException, ParseException {
-    	
-    	RESTClient client =
-            new RESTClient(this.fqdn + API_URL)
-            .addParameter("client_id", clientId)
-            .addParameter("client_secret", clientSecret)
-            .addParameter("scope", scope)
-            .addParameter("grant_type", "client_credentials");
-
-        APIResponse apiResponse = sendRequest(client);
+        return getToken(scope, null);
+    }
 
-        return parseResponse(apiResponse);
+    /**
+     * Gets an access token using the specified scope, like
+     * {@link #getToken(String)}, and saves it in the application's files, so
+     * that a later run of the application, or another AT&amp;T SDK, reuses it
+     * without a request.
+     *
+     * @param scope scope to use when requesting access token
+     * @param context any context of the application, or null if the SDK
+     *        already has one
+     * @return OAuthToken object if successful
+     *
+     * @throws RESTException if request was unsuccessful
+     * @throws ParseException couldn't parse response
+     * @throws JSONException couldn't parse response JSON
+     */
+    public OAuthToken getToken(String scope, Context context)
+            throws RESTException, JSONException, ParseException {
+        if (context != null) {
+            TokenBroker.init(context);
+        }
+        final TokenBroker.Token token;
+        try {
+            token = TokenBroker.getInstance().getToken(
+                    this.fqdn + API_URL, clientId, clientSecret, scope);
+        } catch (TokenBroker.TokenException e) {
+            throw new RESTException(e.getStatusCode(), e.getResponse());
+        } catch (IOException e) {
+            throw new RESTException(e);
+        }
 
+        // the broker's expiry is a Unix timestamp, so it is an offset from time 0
+        return new OAuthToken(token.getAccessToken(), token.getAccessTokenExpiry(),
+                token.getRefreshToken(), 0);
     }
     /**
      * Gets an access token using the specified code and returns the token to the listener which will handle 
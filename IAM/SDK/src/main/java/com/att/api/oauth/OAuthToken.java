@@ -15,12 +15,9 @@
 package com.att.api.oauth;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.channels.FileLock;
-import java.util.HashMap;
-import java.util.Properties;
+
+import com.att.api.util.TokenStore;
 
 /**
  * An immutable OAuthToken object that encapsulates an OAuth 2.0 token, which
@@ -28,7 +25,7 @@ import java.util.Properties;
  *
  * <p>
  * This class also offers convenience methods for checking whether the token is
- * expired, and saving/loading token from file in an asynchronous-safe manner.
+ * expired, and saving/loading token from file through a {@link TokenStore}.
  * </p>
  *
  * An example of usage can be found below:
@@ -58,12 +55,6 @@ import java.util.Properties;
  */
 public class OAuthToken {
 
-    /* Static synchronization object. */
-    private final static Object LOCK_OBJECT = new Object();
-
-    /* Cache tokens loaded from file to speed up load times. */
-    private static HashMap<String, OAuthToken> cachedTokens = null;
-
     /* Access token. */
     private final String accessToken;
 
@@ -164,94 +155,35 @@ public class OAuthToken {
     }
 
     /*
-     * Saves this token to a file in an asynchronous-safe manner.
+     * Saves this token to a file.
+     *
+     * <p>
+     * The token is written in the background; later loads from the same file
+     * in this process return it at once.
+     * </p>
      *
      * @param fpath file path
-     * @throws IOException if unable to save token
+     * @see TokenStore#setToken(OAuthToken)
      */
-    public void saveToken(String fpath) throws IOException {
-        FileOutputStream fOutputStream = null;
-        FileLock fLock = null;
-
-        // save to cached tokens
-        synchronized (LOCK_OBJECT) {
-            // lazy init
-            if (cachedTokens == null) {
-                cachedTokens = new HashMap<String, OAuthToken>();
-            }
-            OAuthToken.cachedTokens.put(fpath, this);
-        }
-
-        try {
-            fOutputStream = new FileOutputStream(fpath);
-            fLock = fOutputStream.getChannel().lock();
-            Properties props = new Properties();
-            props.setProperty("accessToken", accessToken);
-            props.setProperty("accessTokenExpiry", String.valueOf(accessTokenExpiry));
-            props.setProperty("refreshToken", refreshToken);
-            props.store(fOutputStream, "Token Information");
-        } catch (IOException e) {
-            throw e; // pass along exception
-        } finally {
-            if (fLock != null) { fLock.release(); }
-            if (fOutputStream != null) { fOutputStream.close(); }
-        }
+    public void saveToken(String fpath) {
+        TokenStore.forFile(new File(fpath)).setToken(this);
     }
 
     /*
-     * Attempts to load an OAuthToken from a file in an asynchronous-safe
-     * manner.
+     * Loads an OAuthToken from a file.
      *
      * <p>
-     * If <code>fpath</code> does not exist, null is returned.
-     * </p>
-     *
-     * <p>
-     * <strong>WARNING</strong>: Because caching may be used, manually modifying
-     * the saved token properties file may yield unexpected results unless
-     * caching is disabled.
+     * If <code>fpath</code> does not exist, null is returned. The token is
+     * kept in memory and the file is read again only if it has changed.
      * </p>
      *
      * @param fpath file path from which to load token
      * @return OAuthToken an OAuthToken object if successful, null otherwise
      * @throws IOException if there was an error loading the token
-     * @see #useTokenCaching(boolean)
+     * @see TokenStore#getToken()
      */
     public static OAuthToken loadToken(String fpath) throws IOException {
-        FileInputStream fInputStream = null;
-        FileLock fLock = null;
-
-        // attempt to load from cached tokens, thereby saving file I/O
-        synchronized (LOCK_OBJECT) {
-            if (cachedTokens != null && cachedTokens.get(fpath) != null) {
-                return cachedTokens.get(fpath);
-            }
-        }
-
-        if (!new File(fpath).exists()) {
-            return null;
-        }
-
-        try {
-            fInputStream = new FileInputStream(fpath);
-            // acquire shared lock
-            fLock = fInputStream.getChannel().lock(0L, Long.MAX_VALUE, true);
-            Properties props = new Properties();
-            props.load(fInputStream);
-            String accessToken = props.getProperty("accessToken");
-            if (accessToken == null || accessToken.equals("")) {
-                return null;
-            }
-            String sExpiry = props.getProperty("accessTokenExpiry", "0");
-            long expiry = new Long(sExpiry).longValue();
-            String refreshToken = props.getProperty("refreshToken");
-            return new OAuthToken(accessToken, expiry, refreshToken);
-        } catch (IOException e) {
-            throw e; // pass along exception
-        } finally {
-            if (fLock != null) { fLock.release(); }
-            if (fInputStream != null) { fInputStream.close(); }
-        }
+        return TokenStore.forFile(new File(fpath)).getToken();
     }
 
     /*
@@ -55,11 +55,13 @@ import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.message.AbstractHttpMessage;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import android.util.Log;
 
 import com.att.api.oauth.OAuthToken;
+import com.att.api.util.SdkLog;
 
 /*
  * Client used to send RESTFul requests.
@@ -564,6 +566,62 @@ public class RESTClient {
 		}
 	}
 	
+	/*
+	 * Sends an http GET request using the parameters and headers previously
+	 * set, and hands a successful response body to the specified parser as a
+	 * stream.
+	 *
+	 * <p>
+	 * Unlike <code>httpGet()</code>, the response body is not copied into a
+	 * string first, so the parser can build its result while the body is
+	 * still being read from the connection.
+	 * </p>
+	 *
+	 * @param parser
+	 *            used to decode the response body
+	 * @return decoded response
+	 * @throws RESTException
+	 *             if request was unsuccessful or the response had no body
+	 *             to decode
+	 * @throws JSONException
+	 *             if the parser was unable to decode the response body
+	 */
+	public <T> T httpGet(ResponseParser<T> parser) throws RESTException,
+			JSONException {
+		HttpClient httpClient = null;
+		HttpResponse response = null;
+
+		try {
+			httpClient = createClient();
+
+			String query = "";
+			if (!buildQuery().equals("")) {
+				query = "?" + buildQuery();
+			}
+			HttpGet httpGet = new HttpGet(url + query);
+			addInternalHeaders(httpGet);
+
+			response = httpClient.execute(httpGet);
+
+			final HttpEntity entity = response.getEntity();
+			if (response.getStatusLine().getStatusCode() != 200
+					|| entity == null) {
+				// error bodies are small; report them the usual way
+				APIResponse apir = buildResponse(response);
+				throw new RESTException(apir.getStatusCode(),
+						"No response body to decode");
+			}
+
+			return parser.parse(entity.getContent());
+		} catch (IOException ioe) {
+			throw new RESTException(ioe);
+		} finally {
+			if (response != null) {
+				this.releaseConnection(response);
+			}
+		}
+	}
+
 	public APIResponse httpGetMessageContent() throws RESTException {
 		HttpClient httpClient = null;
 		HttpResponse response = null;
@@ -645,10 +703,14 @@ public class RESTClient {
             HttpClient httpClient = createClient();
 
             HttpPost httpPost = new HttpPost(url);
-            Log.d("Request",url);
+            if (SdkLog.isLoggable(Log.DEBUG)) {
+                SdkLog.d("Request", SdkLog.redactUrl(url));
+            }
             addInternalHeaders(httpPost);
             if (body != null && !body.equals("")) {
-            	Log.d("Request : body - ",body);
+            	if (SdkLog.isLoggable(Log.DEBUG)) {
+            	    SdkLog.d("Request : body - ", SdkLog.redact(body));
+            	}
                 httpPost.setEntity(new StringEntity(body));
             }
 
@@ -0,0 +1,52 @@
+/* vim: set expandtab tabstop=4 shiftwidth=4 softtabstop=4 */
+
+/*
+ * ====================================================================
+ * LICENSE: Licensed by AT&T under the 'Software Development Kit Tools
+ * Agreement.' 2013.
+ * TERMS AND CONDITIONS FOR USE, REPRODUCTION, AND DISTRIBUTIONS:
+ * http://developer.att.com/sdk_agreement/
+ *
+ * Copyright 2013 AT&T Intellectual Property. All rights reserved.
+ * For more information contact developer.support@att.com
+ * ====================================================================
+ */
+
+package com.att.api.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.json.JSONException;
+
+/*
+ * Decodes a response body directly from the connection stream.
+ *
+ * <p>
+ * Used with <code>RESTClient.httpGet(ResponseParser)</code> so that large
+ * responses do not have to be buffered into a string before being decoded.
+ * </p>
+ *
+ * @param <T> type of the decoded response
+ * @version 1.0
+ * @since 1.0
+ * @see RESTClient#httpGet(ResponseParser)
+ */
+public interface ResponseParser<T> {
+
+    /*
+     * Decodes the response body.
+     *
+     * <p>
+     * The stream is owned by the <code>RESTClient</code> and is released
+     * once this method returns.
+     * </p>
+     *
+     * @param stream response body
+     * @return decoded response
+     * @throws IOException if unable to read the response body
+     * @throws JSONException if the response body is not in the expected
+     *         format
+     */
+    public T parse(InputStream stream) throws IOException, JSONException;
+}
@@ -1,20 +1,52 @@
 package com.att.api.util;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.Editor;
+import android.util.Log;
 
 /**
  * This Class used to maintain the shared preferences usages in single place.
  * Which is having different types of data storage such as String, int, boolean,
  * long. This class is final.
- * 
+ * <p>
+ * Changes are kept in memory and seen at once by every Preferences of the
+ * application. They are written to the disk in the background, several
+ * changes in one write, so the set methods do not block the calling thread.
+ * Use {@link #edit()} to change several values together and {@link #flush()}
+ * to write the changes before the process ends.
+ *
  * @author ATT
  */
 
 public final class Preferences {
 
+	private static final String TAG = "Preferences";
+	private static final String NAME = "ADS_API";
+
+	private static final HashMap<String, Store> stores = new HashMap<String, Store>();
+
+	// one thread writes the changes of all stores, in order
+	private static final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, TAG);
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	// value of a pending change that removes the preference
+	private static final Object REMOVED = new Object();
+
 	private SharedPreferences prefs;
+	private Store store;
 
 	/**
 	 * This constructor Initialize and hold the contents of the preferences file
@@ -22,59 +54,84 @@ public final class Preferences {
 	 * modify its values. Only one instance of the SharedPreferences object is
 	 * returned to any callers for the same name, meaning they will see each
 	 * other's edits as soon as they are made. *
-	 * 
+	 *
 	 * @param context the preferences container
 	 */
 	public Preferences(Context context) {
-		prefs = context.getSharedPreferences("ADS_API", Context.MODE_PRIVATE);
+		prefs = context.getSharedPreferences(NAME, Context.MODE_PRIVATE);
+		synchronized (stores) {
+			store = stores.get(NAME);
+			if (store == null) {
+				store = new Store(prefs);
+				stores.put(NAME, store);
+			}
+		}
 	}
 
 	/**
 	 * Set a integer value in the preferences by given key.
 	 * @param key preference to update
 	 * @param value value to assign to updated preference
-	 * @return true if preference was set
+	 * @return true if preference was set; it is written in the background
 	 */
 	public boolean setInt(String key, int value) {
-		Editor editor = prefs.edit();
-		editor.putInt(key, value);
-		return editor.commit();
+		return edit().putInt(key, value).apply();
 	}
 
 	/**
 	 * Set a long value in the preferences by given key.
 	 * @param key preference to update
 	 * @param value value to assign to updated preference
-	 * @return true if preference was set
+	 * @return true if preference was set; it is written in the background
 	 */
 	public boolean setLong(String key, long value) {
-		Editor editor = prefs.edit();
-		editor.putLong(key, value);
-		return editor.commit();
+		return edit().putLong(key, value).apply();
 	}
 
 	/**
-	 * Set a String value in the preferences by given key. 
+	 * Set a String value in the preferences by given key.
 	 * @param key preference to update
 	 * @param value value to assign to updated preference
-	 * @return true if preference was set
+	 * @return true if preference was set; it is written in the background
 	 */
 	public boolean setString(String key, String value) {
-		Editor editor = prefs.edit();
-		editor.putString(key, value);
-		return editor.commit();
+		return edit().putString(key, value).apply();
 	}
 
 	/**
-	 * Set a boolean value in the preferences by given key. 
+	 * Set a boolean value in the preferences by given key.
 	 * @param key preference to update
 	 * @param value value to assign to updated preference
-	 * @return true if preference was set
+	 * @return true if preference was set; it is written in the background
 	 */
 	public boolean setBoolean(String key, Boolean value) {
-		Editor editor = prefs.edit();
-		editor.putBoolean(key, value);
-		return editor.commit();
+		return edit().putBoolean(key, value).apply();
+	}
+
+	/**
+	 * Remove a value from the preferences by given key.
+	 * @param key preference to remove
+	 * @return true if preference was removed; it is written in the background
+	 */
+	public boolean remove(String key) {
+		return edit().remove(key).apply();
+	}
+
+	/**
+	 * Start a set of changes that are seen and written together.
+	 * @return the changes; call {@link Transaction#apply()} to make them
+	 */
+	public Transaction edit() {
+		return new Transaction();
+	}
+
+	/**
+	 * Write the pending changes to the disk, on the calling thread. Call it
+	 * before the process ends, e.g. when the application is closed.
+	 * @return true if every change was written
+	 */
+	public boolean flush() {
+		return store.write();
 	}
 
 	/**
@@ -84,7 +141,11 @@ public final class Preferences {
 	 * @return the requested preference value
 	 */
 	public boolean getBoolean(String key, boolean defValue) {
-		return prefs.getBoolean(key, defValue);
+		Object value = store.get(key);
+		if (value == null) {
+			return prefs.getBoolean(key, defValue);
+		}
+		return value == REMOVED ? defValue : (Boolean) value;
 	}
 
 	/**
@@ -94,7 +155,11 @@ public final class Preferences {
 	 * @return the requested preference value
 	 */
 	public int getInt(String key, int defValue) {
-		return prefs.getInt(key, defValue);
+		Object value = store.get(key);
+		if (value == null) {
+			return prefs.getInt(key, defValue);
+		}
+		return value == REMOVED ? defValue : (Integer) value;
 	}
 
 	/**
@@ -104,7 +169,11 @@ public final class Preferences {
 	 * @return the requested preference value
 	 */
 	public long getLong(String key, long defValue) {
-		return prefs.getLong(key, defValue);
+		Object value = store.get(key);
+		if (value == null) {
+			return prefs.getLong(key, defValue);
+		}
+		return value == REMOVED ? defValue : (Long) value;
 	}
 
 	/**
@@ -114,7 +183,11 @@ public final class Preferences {
 	 * @return the requested preference value
 	 */
 	public String getString(String key, String defValue) {
-		return prefs.getString(key, defValue);
+		Object value = store.get(key);
+		if (value == null) {
+			return prefs.getString(key, defValue);
+		}
+		return value == REMOVED ? defValue : (String) value;
 	}
 
 	/**
@@ -123,7 +196,140 @@ public final class Preferences {
 	 * @return true if the requested preference value exists
 	 */
 	public boolean containsValue(String key) {
-		return prefs.contains(key);
+		Object value = store.get(key);
+		if (value == null) {
+			return prefs.contains(key);
+		}
+		return value != REMOVED;
 	}
 
+	/**
+	 * A set of changes to the preferences. The changes are seen by readers
+	 * only once {@link #apply()} is called, and are written in one commit.
+	 */
+	public final class Transaction {
+
+		private final HashMap<String, Object> changes = new HashMap<String, Object>();
+
+		private Transaction() {
+		}
+
+		public Transaction putInt(String key, int value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		public Transaction putLong(String key, long value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		public Transaction putString(String key, String value) {
+			changes.put(key, value == null ? REMOVED : value);
+			return this;
+		}
+
+		public Transaction putBoolean(String key, boolean value) {
+			changes.put(key, value);
+			return this;
+		}
+
+		public Transaction remove(String key) {
+			changes.put(key, REMOVED);
+			return this;
+		}
+
+		/**
+		 * Make the changes. Returns before they are written to the disk.
+		 * @return true
+		 */
+		public boolean apply() {
+			store.put(changes);
+			return true;
+		}
+	}
+
+	/*
+	 * The changes to one preferences file that are not written yet.
+	 */
+	private static final class Store {
+
+		private final SharedPreferences prefs;
+		// held while writing, so that writes are done one at a time
+		private final Object writeLock = new Object();
+
+		// guarded by this
+		private final HashMap<String, Object> pending = new HashMap<String, Object>();
+		private boolean scheduled = false;
+
+		Store(SharedPreferences prefs) {
+			this.prefs = prefs;
+		}
+
+		synchronized Object get(String key) {
+			return pending.get(key);
+		}
+
+		void put(Map<String, Object> changes) {
+			synchronized (this) {
+				pending.putAll(changes);
+				if (scheduled) {
+					// the write that is scheduled takes these changes too
+					return;
+				}
+				scheduled = true;
+			}
+			writer.execute(new Runnable() {
+				@Override
+				public void run() {
+					write();
+				}
+			});
+		}
+
+		boolean write() {
+			synchronized (writeLock) {
+				final HashMap<String, Object> changes;
+				synchronized (this) {
+					scheduled = false;
+					if (pending.isEmpty()) {
+						return true;
+					}
+					changes = new HashMap<String, Object>(pending);
+				}
+
+				Editor editor = prefs.edit();
+				for (Map.Entry<String, Object> change : changes.entrySet()) {
+					String key = change.getKey();
+					Object value = change.getValue();
+					if (value == REMOVED) {
+						editor.remove(key);
+					} else if (value instanceof String) {
+						editor.putString(key, (String) value);
+					} else if (value instanceof Long) {
+						editor.putLong(key, (Long) value);
+					} else if (value instanceof Integer) {
+						editor.putInt(key, (Integer) value);
+					} else {
+						editor.putBoolean(key, (Boolean) value);
+					}
+				}
+				if (!editor.commit()) {
+					// the changes stay in memory; they are written again with the next change
+					Log.e(TAG, "Failed to save " + changes.size() + " preferences");
+					return false;
+				}
+
+				synchronized (this) {
+					// a value changed again while it was written is still pending
+					for (Map.Entry<String, Object> change : changes.entrySet()) {
+						if (pending.get(change.getKey()) == change.getValue()) {
+							pending.remove(change.getKey());
+						}
+					}
+				}
+				return true;
+			}
+		}
+	}
 }
@@ -0,0 +1,225 @@
+package com.att.api.util;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import android.util.Log;
+
+/**
+ * Logging of the SDKs. Every call checks the level before it formats
+ * anything, and a message that costs work to build can be passed as a
+ * {@link Supplier}, which is called only if the message is logged.
+ *
+ * <p>
+ * Tokens, request bodies and other values that may hold secrets or personal
+ * data are logged through {@link #redact(String)} and {@link #redactUrl(String)},
+ * which hide them unless redaction is turned off for debugging. Messages can
+ * also be kept in an in-memory ring buffer, read with {@link #getRecent()}, so
+ * that support can pull recent logs; writing to logcat can then be turned off.
+ * </p>
+ *
+ * <p>
+ * This file is the only implementation. The Ads SDK, which does not link
+ * the IAM SDK, gets a copy in its own package, com.att.ads.util, from the
+ * syncAdsSdkLog task of the IAM SDK build, so edit this file only. Each SDK
+ * keeps its own settings.
+ * </p>
+ *
+ * @author ATT
+ */
+public final class SdkLog {
+
+	/**
+	 * Builds a log message; called only if the message is logged.
+	 */
+	public interface Supplier {
+		String get();
+	}
+
+	private static volatile int level = Log.INFO;
+	private static volatile boolean isRedacting = true;
+	private static volatile boolean isLogcat = true;
+	private static volatile Buffer buffer = null;
+
+	private SdkLog() {
+	}
+
+	/**
+	 * Sets the lowest priority logged, such as Log.DEBUG; the default is
+	 * Log.INFO.
+	 * @param priority priority from android.util.Log
+	 */
+	public static void setLevel(int priority) {
+		level = priority;
+	}
+
+	/**
+	 * Sets whether secrets and bodies are hidden; on by default.
+	 * @param redact false to log them in full, for debugging only
+	 */
+	public static void setRedaction(boolean redact) {
+		isRedacting = redact;
+	}
+
+	/**
+	 * Sets whether messages are written to logcat; on by default.
+	 * @param logcat false to keep messages only in the buffer
+	 */
+	public static void setLogcat(boolean logcat) {
+		isLogcat = logcat;
+	}
+
+	/**
+	 * Keeps the latest messages in memory.
+	 * @param capacity number of messages kept, or 0 to stop keeping them
+	 */
+	public static void setBufferSize(int capacity) {
+		buffer = capacity > 0 ? new Buffer(capacity) : null;
+	}
+
+	/**
+	 * Gets the messages kept in memory, oldest first.
+	 * @return the messages, none if no buffer is set
+	 */
+	public static String[] getRecent() {
+		Buffer b = buffer;
+		return null == b ? new String[0] : b.toArray();
+	}
+
+	/**
+	 * Checks whether messages of the priority are logged.
+	 * @param priority priority from android.util.Log
+	 * @return true if they are logged
+	 */
+	public static boolean isLoggable(int priority) {
+		return priority >= level && (isLogcat || null != buffer);
+	}
+
+	public static void d(String tag, String msg) {
+		if (isLoggable(Log.DEBUG)) {
+			println(Log.DEBUG, tag, msg);
+		}
+	}
+
+	public static void d(String tag, Supplier msg) {
+		if (isLoggable(Log.DEBUG)) {
+			println(Log.DEBUG, tag, msg.get());
+		}
+	}
+
+	public static void i(String tag, String msg) {
+		if (isLoggable(Log.INFO)) {
+			println(Log.INFO, tag, msg);
+		}
+	}
+
+	public static void i(String tag, Supplier msg) {
+		if (isLoggable(Log.INFO)) {
+			println(Log.INFO, tag, msg.get());
+		}
+	}
+
+	public static void w(String tag, String msg) {
+		if (isLoggable(Log.WARN)) {
+			println(Log.WARN, tag, msg);
+		}
+	}
+
+	public static void e(String tag, String msg) {
+		if (isLoggable(Log.ERROR)) {
+			println(Log.ERROR, tag, msg);
+		}
+	}
+
+	public static void e(String tag, String msg, Throwable tr) {
+		if (isLoggable(Log.ERROR)) {
+			println(Log.ERROR, tag, msg + '\n' + Log.getStackTraceString(tr));
+		}
+	}
+
+	/**
+	 * Writes a message whatever the level, for loggers with levels of their
+	 * own; it goes to logcat and to the buffer as set.
+	 * @param priority priority from android.util.Log
+	 * @param tag
+	 * @param msg
+	 */
+	public static void println(int priority, String tag, String msg) {
+		Buffer b = buffer;
+		if (null != b) {
+			b.add(priority, tag, msg);
+		}
+		if (isLogcat) {
+			Log.println(priority, tag, null == msg ? "null" : msg);
+		}
+	}
+
+	/**
+	 * Hides a secret or a body, unless redaction is off.
+	 * @param value token, body or other value
+	 * @return the value, or a placeholder with its length
+	 */
+	public static String redact(String value) {
+		if (!isRedacting || null == value) {
+			return value;
+		}
+		return "<redacted, " + value.length() + " chars>";
+	}
+
+	/**
+	 * Hides the query of a URL, which may hold keys or personal data, unless
+	 * redaction is off.
+	 * @param url
+	 * @return the URL without its query
+	 */
+	public static String redactUrl(String url) {
+		if (!isRedacting || null == url) {
+			return url;
+		}
+		int query = url.indexOf('?');
+		return query < 0 ? url : url.substring(0, query) + "?<redacted>";
+	}
+
+	private static final class Buffer {
+		private final long[] times;
+		private final int[] priorities;
+		private final String[] tags;
+		private final String[] messages;
+		// guarded by this
+		private int next = 0;
+		private int count = 0;
+
+		Buffer(int capacity) {
+			times = new long[capacity];
+			priorities = new int[capacity];
+			tags = new String[capacity];
+			messages = new String[capacity];
+		}
+
+		synchronized void add(int priority, String tag, String msg) {
+			// formatted only when read
+			times[next] = System.currentTimeMillis();
+			priorities[next] = priority;
+			tags[next] = tag;
+			messages[next] = msg;
+			next = (next + 1) % messages.length;
+			if (count < messages.length) {
+				++count;
+			}
+		}
+
+		synchronized String[] toArray() {
+			SimpleDateFormat format = new SimpleDateFormat("MM-dd HH:mm:ss.SSS", Locale.US);
+			String[] lines = new String[count];
+			int first = (next - count + messages.length) % messages.length;
+			for (int i = 0; i < count; i++) {
+				int j = (first + i) % messages.length;
+				lines[i] = format.format(new Date(times[j])) + ' '
+						+ "VDIWEA".charAt(Math.max(0, Math.min(5, priorities[j] - Log.VERBOSE)))
+						+ '/' + tags[j] + ": " + messages[j];
+			}
+			return lines;
+		}
+	}
+}
@@ -53,26 +53,57 @@ public class TokenUpdatedListener implements AttSdkTokenUpdater {
 	}
 	
 	public static void UpdateSavedToken(OAuthToken token) {
-		
-		Preferences prefs = new Preferences(m_applicationContext);
-		if (prefs != null && token != null) {
-			prefs.setString(accessTokenSettingName, token.getAccessToken());
-			prefs.setString(refreshTokenSettingName, token.getRefreshToken());
-			prefs.setLong(tokenExpirySettingName, token.getAccessTokenExpiry());
+		if (token != null) {
+			TokenStore.getInstance(m_applicationContext).setToken(token);
 
 			Log.i("updateSavedToken", "Saved Token: " + tokenDisplayString(token.getAccessToken()));
 			Log.i("TokenExpiryTime", new Date(token.getAccessTokenExpiry()*1000).toString());
 		}		
 	}
 	
+	/**
+	 * Loads the token saved by UpdateSavedToken. A token saved in the preferences by earlier
+	 * versions of this class is moved to the TokenStore.
+	 * @param context any context of the application
+	 * @return the saved token, or null if there is none
+	 */
+	public static OAuthToken LoadSavedToken(Context context) {
+		TokenStore store = TokenStore.getInstance(context);
+		OAuthToken token = store.getToken();
+		if (token != null) {
+			return token;
+		}
+
+		Preferences prefs = new Preferences(context);
+		String accessToken = prefs.getString(accessTokenSettingName, "");
+		if (accessToken.length() == 0) {
+			return null;
+		}
+		// the expiry is saved as a Unix timestamp, so it is an offset from time 0
+		token = new OAuthToken(accessToken,
+				prefs.getLong(tokenExpirySettingName, 0),
+				prefs.getString(refreshTokenSettingName, ""), 0);
+		store.setToken(token);
+		prefs.edit()
+			.putString(accessTokenSettingName, "")
+			.putString(refreshTokenSettingName, "")
+			.putLong(tokenExpirySettingName, 0)
+			.apply();
+		return token;
+	}
+
 	public static void DeleteSavedToken() {		
-		Preferences prefs = new Preferences(m_applicationContext);
-		if (prefs != null) {
-			prefs.setString(accessTokenSettingName, "");
-			prefs.setString(refreshTokenSettingName, "");
-			prefs.setLong(tokenExpirySettingName, 0);
-			Log.i("deleteSavedToken", "Deleted Saved Token.");
-		}	
+		TokenStore store = TokenStore.getInstance(m_applicationContext);
+		store.clear();
+		// the application restarts, so write the deletion and any pending
+		// preferences before it does
+		new Preferences(m_applicationContext).flush();
+		try {
+			store.flush();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		Log.i("deleteSavedToken", "Deleted Saved Token.");	
 		// Logout from the application and restart.
 		Log.e("TokenUpdatedListener", "Invalid token. Restarting the application");
 		
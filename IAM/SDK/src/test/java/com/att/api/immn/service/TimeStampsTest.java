@@ -0,0 +1,61 @@
+package com.att.api.immn.service;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TimeStampsTest {
+
+    @Test
+    public void parsesTimestampWithoutZoneAsUtc() {
+        assertEquals(1389733983000L, TimeStamps.parse("2014-01-14T21:13:03"));
+        assertEquals(1389733983000L, TimeStamps.parse("2014-01-14 21:13:03"));
+    }
+
+    @Test
+    public void parsesMillisecondsAndZone() {
+        assertEquals(1389733983250L, TimeStamps.parse("2014-01-14T21:13:03.25Z"));
+        assertEquals(1389733983123L, TimeStamps.parse("2014-01-14T21:13:03.1234Z"));
+        assertEquals(1389733983000L, TimeStamps.parse("2014-01-14T16:13:03-05:00"));
+        assertEquals(1389733983000L, TimeStamps.parse("2014-01-15T02:43:03+05:30"));
+    }
+
+    @Test
+    public void parsesDatesAcrossCalendarEdges() {
+        assertEquals(0L, TimeStamps.parse("1970-01-01T00:00:00Z"));
+        assertEquals(-1000L, TimeStamps.parse("1969-12-31T23:59:59Z"));
+        assertEquals(951782400000L, TimeStamps.parse("2000-02-29T00:00:00Z"));
+        assertEquals(4107542400000L, TimeStamps.parse("2100-03-01T00:00:00Z"));
+    }
+
+    @Test
+    public void rejectsMalformedTimestamps() {
+        assertEquals(TimeStamps.NONE, TimeStamps.parse(null));
+        assertEquals(TimeStamps.NONE, TimeStamps.parse(""));
+        assertEquals(TimeStamps.NONE, TimeStamps.parse("2014-01-14"));
+        assertEquals(TimeStamps.NONE, TimeStamps.parse("2014/01/14T21:13:03"));
+        assertEquals(TimeStamps.NONE, TimeStamps.parse("2014-13-14T21:13:03"));
+        assertEquals(TimeStamps.NONE, TimeStamps.parse("2014-01-14T24:13:03"));
+        assertEquals(TimeStamps.NONE, TimeStamps.parse("2014-01-14X21:13:03"));
+        assertEquals(TimeStamps.NONE, TimeStamps.parse("2014-01-14T21:13:03+0500"));
+        assertEquals(TimeStamps.NONE, TimeStamps.parse("2014-01-14T21:13:03Zjunk"));
+    }
+
+    @Test
+    public void formatsUtcWithMilliseconds() {
+        assertEquals("2014-01-14T21:13:03.000Z", TimeStamps.format(1389733983000L));
+        assertEquals("2014-01-14T21:13:03.250Z", TimeStamps.format(1389733983250L));
+        assertEquals("1969-12-31T23:59:59.999Z", TimeStamps.format(-1L));
+        assertEquals("2000-02-29T00:00:00.000Z", TimeStamps.format(951782400000L));
+    }
+
+    @Test
+    public void formatRoundTripsThroughParse() {
+        final long[] instants = { 0L, -1L, 1389733983007L, 951782399999L, 4107542400000L };
+        for (long millis : instants) {
+            assertEquals(millis, TimeStamps.parse(TimeStamps.format(millis)));
+        }
+        assertEquals("2014-01-14T21:13:03.000Z",
+                TimeStamps.format(TimeStamps.parse("2014-01-14T16:13:03-05:00")));
+    }
+}
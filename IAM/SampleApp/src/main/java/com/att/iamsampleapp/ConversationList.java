@@ -32,6 +32,7 @@ import com.att.api.immn.service.MmsContent;
 import com.att.api.oauth.OAuthService;
 import com.att.api.oauth.OAuthToken;
 import com.att.api.util.Preferences;
+import com.att.api.util.TokenStore;
 import com.att.api.util.TokenUpdatedListener;
 
 public class ConversationList extends Activity {
@@ -78,7 +79,6 @@ public class ConversationList extends Activity {
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		OAuthToken savedToken = null;
-		String strStoredToken = null;
 
 		super.onCreate(savedInstanceState);
 
@@ -87,17 +87,9 @@ public class ConversationList extends Activity {
 		messageListView = (ListView) findViewById(R.id.messageListViewItem);
 
 		// Create service for requesting an OAuth token
-		IAMManager.osrvc = new OAuthService(Config.fqdn, Config.clientID, Config.secretKey);
+		IAMManager.SetOAuthService(new OAuthService(Config.fqdn, Config.clientID, Config.secretKey));
 		
-		Preferences prefs = new Preferences(getApplicationContext());
-		if (prefs != null) {
-			strStoredToken = prefs.getString(TokenUpdatedListener.accessTokenSettingName, "");
-			if (strStoredToken.length() > 0) {
-				savedToken = new OAuthToken(strStoredToken, 
-						prefs.getLong(TokenUpdatedListener.tokenExpirySettingName, 0), 
-						prefs.getString(TokenUpdatedListener.refreshTokenSettingName, ""), 0);
-			}
-		}
+		savedToken = TokenUpdatedListener.LoadSavedToken(getApplicationContext());
 		
 		// Initialize the AabManager also:
 		IAMManager.SetApiFqdn(Config.fqdn);
@@ -136,7 +128,7 @@ public class ConversationList extends Activity {
 					 * Authentication page The Success/failure will be handled
 					 * by the listener : getTokenListener()
 					 */
-					IAMManager.osrvc.getOAuthToken(oAuthCode, new getTokenListener());
+					IAMManager.GetOAuthService().getOAuthToken(oAuthCode, new getTokenListener());
 				} else {
 					Log.i("mainActivity", "oAuthCode: is null");
 
@@ -663,7 +655,7 @@ public class ConversationList extends Activity {
 
 	public void infoDialog(Message selMessage) {
 		
-		String date = Utils.getDate(selMessage.getTimeStamp().replace('T', ' '));
+		String date = Utils.getDate(selMessage.getTimeStampMillis());
 		
 		new AlertDialog.Builder(ConversationList.this)
 				.setTitle("Message details")
@@ -764,9 +756,8 @@ public class ConversationList extends Activity {
 		}
 		case R.id.action_logout: {
 			ConversationList.RevokeToken("refresh_token");					
-			Preferences prefs = new Preferences(getApplicationContext());		
-			prefs.setString(TokenUpdatedListener.accessTokenSettingName,"");  
-			prefs.setString(TokenUpdatedListener.refreshTokenSettingName,"");  
+			TokenStore.getInstance(getApplicationContext()).clear();
+			new Preferences(getApplicationContext()).flush();
 			finish();
 			break;
 		}
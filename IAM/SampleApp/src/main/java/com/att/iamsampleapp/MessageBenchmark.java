@@ -0,0 +1,188 @@
+package com.att.iamsampleapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.os.Debug;
+import android.util.JsonReader;
+import android.util.Log;
+
+import com.att.api.immn.service.Message;
+import com.att.api.immn.service.MessageList;
+import com.att.api.rest.ResponseParser;
+
+/**
+ * Measures the heap held by the messages of a parsed message list, and the
+ * allocation and time spent decoding a message list page the way
+ * <code>RESTClient.httpGet(ResponseParser)</code> does, compared with
+ * buffering the body and building an org.json tree as earlier versions did.
+ * Run it from a debug build, e.g.
+ * <code>Log.i(TAG, MessageBenchmark.run(1000));</code>, off the UI thread.
+ */
+public final class MessageBenchmark {
+
+	private static final String TAG = "MessageBenchmark";
+
+	private static final ResponseParser<MessageList> TREE_PARSER = new ResponseParser<MessageList>() {
+		@Override
+		public MessageList parse(InputStream stream) throws IOException, JSONException {
+			Reader reader = new InputStreamReader(stream, "UTF-8");
+			StringBuilder body = new StringBuilder();
+			char[] buffer = new char[4096];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				body.append(buffer, 0, read);
+			}
+			return MessageList.valueOf(new JSONObject(body.toString()));
+		}
+	};
+
+	private static final ResponseParser<MessageList> STREAM_PARSER = new ResponseParser<MessageList>() {
+		@Override
+		public MessageList parse(InputStream stream) throws IOException, JSONException {
+			JsonReader reader = new JsonReader(new InputStreamReader(stream, "UTF-8"));
+			try {
+				return MessageList.valueOf(reader);
+			} finally {
+				reader.close();
+			}
+		}
+	};
+
+	private MessageBenchmark() {
+	}
+
+	/**
+	 * Runs each case with a message list of the given size.
+	 *
+	 * @param messages
+	 *            number of messages in the list
+	 * @return one line per case
+	 * @throws Exception
+	 *             if the generated list cannot be parsed
+	 */
+	public static String run(int messages) throws Exception {
+		StringBuilder report = new StringBuilder();
+		String json = messageList(messages);
+
+		// what the parsed list keeps alive once the response is gone
+		long before = usedMemory();
+		MessageList list = MessageList.valueOf(new JsonReader(new StringReader(json)));
+		long after = usedMemory();
+		appendFootprint(report, "parsed message", messages, after - before);
+
+		// what keeping each timestamp string, as earlier versions did, would add
+		before = usedMemory();
+		ArrayList<String> timeStamps = new ArrayList<String>(messages);
+		for (Message msg : list.getMessages()) {
+			timeStamps.add(msg.getTimeStamp());
+		}
+		after = usedMemory();
+		appendFootprint(report, "timestamp string", messages, after - before);
+
+		// keep both alive until measured
+		if (list.getMessages().size() != timeStamps.size()) {
+			throw new IllegalStateException();
+		}
+
+		Log.d(TAG, report.toString());
+		return report.toString();
+	}
+
+	/**
+	 * Decodes a message list page of the given size with each parser, the
+	 * given number of times. The body is read from memory, so the numbers
+	 * leave out the network.
+	 *
+	 * @param messages
+	 *            number of messages in the page
+	 * @param iterations
+	 *            number of times each parser decodes the page
+	 * @return one line per parser with the bytes allocated and the time
+	 *         taken per page
+	 * @throws Exception
+	 *             if the generated page cannot be parsed
+	 */
+	public static String runParse(int messages, int iterations) throws Exception {
+		StringBuilder report = new StringBuilder();
+		byte[] body = messageList(messages).getBytes("UTF-8");
+
+		// earlier versions: body copied into a string, then an org.json tree
+		appendParse(report, "buffered org.json tree", TREE_PARSER, body, iterations);
+		appendParse(report, "streamed JsonReader", STREAM_PARSER, body, iterations);
+
+		Log.d(TAG, report.toString());
+		return report.toString();
+	}
+
+	private static void appendParse(StringBuilder report, String name,
+			ResponseParser<MessageList> parser, byte[] body, int iterations) throws Exception {
+		// warm up so the first run does not pay for class loading
+		parser.parse(new ByteArrayInputStream(body));
+
+		usedMemory();
+		Debug.resetThreadAllocCount();
+		Debug.resetThreadAllocSize();
+		Debug.startAllocCounting();
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			parser.parse(new ByteArrayInputStream(body));
+		}
+		long nanos = System.nanoTime() - start;
+		Debug.stopAllocCounting();
+		int count = Math.max(iterations, 1);
+		report.append(String.format(Locale.US, "%s: %d bytes in %d objects, %.2f ms per page%n",
+				name, Debug.getThreadAllocSize() / count, Debug.getThreadAllocCount() / count,
+				nanos / 1e6 / count));
+	}
+
+	private static String messageList(int messages) {
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		StringBuilder json = new StringBuilder(messages * 320);
+		json.append("{\"messageList\":{\"messages\":[");
+		for (int i = 0; i < messages; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"messageId\":\"m").append(i)
+					.append("\",\"from\":{\"value\":\"tel:+1206555").append(1000 + i % 20)
+					.append("\"},\"recipients\":[{\"value\":\"tel:+12065550100\"}]")
+					.append(",\"text\":\"Message number ").append(i)
+					.append("\",\"timeStamp\":\"").append(format.format(new Date(1389733983000L + i * 60000L)))
+					.append("\",\"isFavorite\":false,\"isUnread\":").append(i % 3 == 0)
+					.append(",\"type\":\"SMS\",\"typeMetaData\":{\"isSegmented\":false}")
+					.append(",\"isIncoming\":\"true\"}");
+		}
+		json.append("],\"offset\":0,\"limit\":").append(messages)
+				.append(",\"total\":").append(messages)
+				.append(",\"state\":\"1403732028949\",\"cacheStatus\":\"INITIALIZED\"}}");
+		return json.toString();
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			System.runFinalization();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static void appendFootprint(StringBuilder report, String name, int count, long bytes) {
+		report.append(String.format(Locale.US, "%s: %d bytes for %d, %d bytes each%n", name,
+				bytes, count, bytes / Math.max(count, 1)));
+	}
+}
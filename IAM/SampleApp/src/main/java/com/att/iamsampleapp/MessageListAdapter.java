@@ -101,7 +101,7 @@ public class MessageListAdapter extends BaseAdapter {
 		}
 		// Update message time
 		
-		date = Utils.getDate(messageList.get(position).getTimeStamp().replace('T', ' '));
+		date = Utils.getDate(messageList.get(position).getTimeStampMillis());
 		holder.txtTime.setText(date);
 		
 		// Update favorite message
@@ -1,6 +1,5 @@
 package com.att.iamsampleapp;
 
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.TimeZone;
@@ -22,6 +21,10 @@ public class Utils extends Activity{
 	public static int UnreadBG = 0xFFF1F1F1;
 	public static int ReadBG = 0xFFFFFFFF;
 
+	// Reused for every row; only ever touched from the UI thread
+	private static final SimpleDateFormat displayFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+	private static final Date displayDate = new Date();
+
 	public static String getContactName(Context context, String phoneNumber) {
 		ContentResolver cr = context.getContentResolver();
 		Uri uri = Uri.withAppendedPath(PhoneLookup.CONTENT_FILTER_URI,
@@ -92,22 +95,15 @@ public class Utils extends Activity{
 			
 			
 	}
-	public static String getDate(String selDate) {
+	public static String getDate(long timeStampMillis) {
 		
-		SimpleDateFormat sourceFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-		sourceFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-		Date parsed = null;
-		try {
-			 parsed = sourceFormat.parse(selDate);
-		} catch (ParseException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} 
-		SimpleDateFormat destFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-		destFormat.setTimeZone(TimeZone.getDefault());		
-		String date = destFormat.format(parsed);
+		if (timeStampMillis == Long.MIN_VALUE) {
+			return "";
+		}
+		displayFormat.setTimeZone(TimeZone.getDefault());
+		displayDate.setTime(timeStampMillis);
 		
-		return date;
+		return displayFormat.format(displayDate);
 		
 	}
 }
@@ -1,12 +1,16 @@
 package example.simpletts;
 
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 import android.app.Activity;
+import android.media.AudioFormat;
 import android.media.AudioManager;
+import android.media.AudioTrack;
 import android.media.MediaPlayer;
 import android.util.Log;
 
@@ -14,6 +18,7 @@ import android.util.Log;
  * A minimal, UI-less audio player.
  * Works around shortcomings of MediaPlayer, such as requiring audio data
  * to be in a file.
+ * WAV audio can also be played while it is downloaded, see openStream().
 **/
 public class AudioPlayer
 {
@@ -32,6 +37,8 @@ public class AudioPlayer
     private MediaPlayer mediaPlayer;
     /** The file holding the bytes we're playing. **/
     private File audioFile;
+    /** Current audio stream.  Only exists while we're streaming. **/
+    private Stream stream;
     
     /**
      * Play the audio data.
@@ -39,7 +46,7 @@ public class AudioPlayer
     **/
     public void play(final byte[] audioData)
     {
-        if (mediaPlayer != null || audioFile != null)
+        if (mediaPlayer != null || audioFile != null || stream != null)
             stop();
         final MediaPlayer mediaPlayer = new MediaPlayer();
         this.mediaPlayer = mediaPlayer;
@@ -80,6 +87,19 @@ public class AudioPlayer
         }.start();
     }
     
+    /**
+     * Prepare to play audio while it is downloaded.
+     * Only call this on the main thread, then pass the audio to
+     * Stream.play() on the thread that downloads it.
+     * Stopping this player stops the stream.
+    **/
+    public Stream openStream()
+    {
+        stop();
+        stream = new Stream();
+        return stream;
+    }
+    
     /**
      * Stop playing audio.  It's OK to call this if nothing is being played.
      * Only call this on the main thread.
@@ -89,6 +109,9 @@ public class AudioPlayer
         if (mediaPlayer != null)
             mediaPlayer.release();
         mediaPlayer = null;
+        if (stream != null)
+            stream.cancel();
+        stream = null;
         if (audioFile != null)
             deleteTempFile(audioFile);
         audioFile = null;
@@ -119,4 +142,260 @@ public class AudioPlayer
             }
         }.start();
     }
+    
+    /**
+     * Plays PCM WAV audio with an AudioTrack while it is read, 
+     * so no temporary file is needed.
+     * Playback starts once a short jitter buffer is filled, which is within
+     * the first chunk of a TTS response, and small network stalls
+     * are absorbed by the audio already queued.
+    **/
+    public static class Stream
+    {
+        /** Audio queued before playback starts.  Tune for the network. **/
+        private static final int JITTER_MILLIS = 200;
+        private static final int BLOCK_SIZE = 4*1024;
+        
+        /** Set by cancel(), possibly on another thread. **/
+        private volatile boolean cancelled = false;
+        /** Track being played.  Guarded by this. **/
+        private AudioTrack track;
+        
+        private Stream()
+        {
+        }
+        
+        /**
+         * Read the WAV audio and play it as it arrives, 
+         * then wait until it has been played out.
+         * Performs blocking I/O, so don't call it on the main thread.
+         * @param wav  the audio, starting with its WAV header
+         * @throws IOException if reading fails or the audio isn't PCM WAV
+        **/
+        public void play(InputStream wav) throws IOException
+        {
+            DataInputStream input = new DataInputStream(wav);
+            Format format = readHeader(input);
+            int frameSize = format.channels*format.bitsPerSample/8;
+            int channelConfig = format.channels == 1 
+                ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+            int encoding = format.bitsPerSample == 8 
+                ? AudioFormat.ENCODING_PCM_8BIT : AudioFormat.ENCODING_PCM_16BIT;
+            int jitterBytes = jitterBytes(format.sampleRate, frameSize);
+            int minBuffer = AudioTrack.getMinBufferSize(format.sampleRate, channelConfig, encoding);
+            if (minBuffer <= 0)
+                throw new IOException("Unsupported audio format: "+format);
+            // Room for the jitter buffer plus the block written when it fills,
+            // so a write never waits for a track that isn't playing yet.
+            int bufferSize = Math.max(minBuffer, jitterBytes + BLOCK_SIZE);
+            AudioTrack track = new AudioTrack(AudioManager.STREAM_MUSIC, format.sampleRate, 
+                channelConfig, encoding, bufferSize, AudioTrack.MODE_STREAM);
+            synchronized (this) {
+                if (cancelled) {
+                    track.release();
+                    return;
+                }
+                this.track = track;
+            }
+            try {
+                long written = stream(input, format, track, frameSize, jitterBytes);
+                if (!cancelled && written > 0)
+                    drain(track, format, written/frameSize);
+            }
+            finally {
+                synchronized (this) {
+                    this.track = null;
+                }
+                track.release();
+            }
+        }
+        
+        /**
+         * Copies the audio data to the track, starting playback once the
+         * jitter buffer is filled.  
+         * @return the number of bytes written
+        **/
+        private long stream(InputStream input, Format format, AudioTrack track, 
+                int frameSize, int jitterBytes)
+            throws IOException
+        {
+            byte[] block = new byte[BLOCK_SIZE];
+            int pending = 0; // bytes read but not written, less than a frame
+            long remaining = format.dataLength;
+            long written = 0;
+            boolean playing = false;
+            while (!cancelled && remaining != 0) {
+                int max = block.length - pending;
+                if (remaining > 0 && remaining < max)
+                    max = (int)remaining;
+                int n = input.read(block, pending, max);
+                if (n < 0)
+                    break;
+                if (remaining > 0)
+                    remaining -= n;
+                pending += n;
+                // Only whole frames can be queued.
+                int frames = pending - pending%frameSize;
+                if (frames > 0) {
+                    write(track, block, frames);
+                    written += frames;
+                    pending -= frames;
+                    System.arraycopy(block, frames, block, 0, pending);
+                }
+                if (!playing && written >= jitterBytes) {
+                    track.play();
+                    playing = true;
+                    Log.d("SimpleTTS", "Started streaming audio after "+written+" bytes");
+                }
+            }
+            // Short audio may end before the jitter buffer is full.
+            if (!cancelled && !playing && written > 0)
+                track.play();
+            return written;
+        }
+        
+        /**
+         * Waits until the queued audio has been played.
+        **/
+        private void drain(AudioTrack track, Format format, long frames)
+        {
+            track.stop(); // plays out the queued audio
+            // Don't wait forever on devices that reset the position when stopped.
+            long deadline = System.currentTimeMillis() 
+                + frames*1000/format.sampleRate + JITTER_MILLIS*5;
+            try {
+                while (!cancelled && track.getPlaybackHeadPosition() < frames
+                        && System.currentTimeMillis() < deadline)
+                    Thread.sleep(20);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        /**
+         * Stop the playback and drop the queued audio.  
+         * May be called on any thread.
+        **/
+        synchronized void cancel()
+        {
+            cancelled = true;
+            if (track != null) {
+                // Stopping also wakes up a write waiting for room in the track.
+                track.stop();
+                track.flush();
+            }
+        }
+        
+        /**
+         * Bytes of audio in JITTER_MILLIS, rounded up to a whole frame.
+         * Multiplied out before dividing so rates such as 22050 Hz
+         * aren't truncated to whole samples per millisecond.
+        **/
+        static int jitterBytes(int sampleRate, int frameSize)
+        {
+            long bytes = ((long)sampleRate*frameSize*JITTER_MILLIS + 999)/1000;
+            return (int)((bytes + frameSize - 1)/frameSize*frameSize);
+        }
+        
+        /**
+         * Queues the bytes, waiting for room in the track.
+        **/
+        private static void write(AudioTrack track, byte[] data, int length)
+            throws IOException
+        {
+            int offset = 0;
+            while (offset < length) {
+                int n = track.write(data, offset, length - offset);
+                if (n < 0)
+                    throw new IOException("AudioTrack write failed: "+n);
+                if (n == 0 && track.getPlayState() == AudioTrack.PLAYSTATE_STOPPED)
+                    return; // cancelled
+                offset += n;
+            }
+        }
+        
+        /**
+         * Reads the WAV header up to the start of the audio data.
+        **/
+        static Format readHeader(DataInputStream input) throws IOException
+        {
+            if (!"RIFF".equals(readTag(input)))
+                throw new IOException("Audio is not in WAV format");
+            readIntLE(input); // size of the whole file, unknown when streamed
+            if (!"WAVE".equals(readTag(input)))
+                throw new IOException("Audio is not in WAV format");
+            Format format = null;
+            while (true) {
+                String tag = readTag(input);
+                long size = readIntLE(input) & 0xFFFFFFFFL;
+                if (tag.equals("fmt ")) {
+                    int audioFormat = readShortLE(input);
+                    format = new Format();
+                    format.channels = readShortLE(input);
+                    format.sampleRate = readIntLE(input);
+                    readIntLE(input); // byte rate
+                    readShortLE(input); // block align
+                    format.bitsPerSample = readShortLE(input);
+                    if (audioFormat != 1 /* PCM */ 
+                            || format.channels < 1 || format.channels > 2
+                            || (format.bitsPerSample != 8 && format.bitsPerSample != 16))
+                        throw new IOException("Unsupported audio format: "+format);
+                    skipFully(input, size - 16 + (size & 1));
+                }
+                else if (tag.equals("data")) {
+                    if (format == null)
+                        throw new IOException("WAV audio has no format");
+                    // A streamed response may not know its length yet.
+                    format.dataLength = (size == 0 || size == 0xFFFFFFFFL) ? -1 : size;
+                    return format;
+                }
+                else {
+                    skipFully(input, size + (size & 1));
+                }
+            }
+        }
+        
+        private static String readTag(DataInputStream input) throws IOException
+        {
+            byte[] tag = new byte[4];
+            input.readFully(tag);
+            return new String(tag, "US-ASCII");
+        }
+        
+        private static int readIntLE(DataInputStream input) throws IOException
+        {
+            return Integer.reverseBytes(input.readInt());
+        }
+        
+        private static int readShortLE(DataInputStream input) throws IOException
+        {
+            return Short.reverseBytes(input.readShort()) & 0xFFFF;
+        }
+        
+        private static void skipFully(DataInputStream input, long count) throws IOException
+        {
+            while (count > 0) {
+                int n = input.skipBytes((int)Math.min(count, Integer.MAX_VALUE));
+                if (n <= 0)
+                    throw new IOException("Unexpected end of WAV header");
+                count -= n;
+            }
+        }
+        
+        /** The format of the audio data in a WAV stream. **/
+        static class Format
+        {
+            int channels;
+            int sampleRate;
+            int bitsPerSample;
+            /** Bytes of audio data, or -1 until the end of the stream. **/
+            long dataLength;
+            
+            @Override public String toString()
+            {
+                return channels+" channels, "+sampleRate+" Hz, "+bitsPerSample+" bits";
+            }
+        }
+    }
 }
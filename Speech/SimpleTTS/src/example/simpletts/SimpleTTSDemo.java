@@ -6,6 +6,9 @@ For more information contact developer.support@att.com http://developer.att.com
 */
 package example.simpletts;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
@@ -38,6 +41,7 @@ import android.widget.TextView;
 public class SimpleTTSDemo extends Activity 
 {
     private AudioPlayer audioPlayer = null;
+    private TTSCache ttsCache = null;
     private TTSClient ttsClient = null;
     private Button speakButton = null;
     private TextView resultView = null;
@@ -58,6 +62,10 @@ public class SimpleTTSDemo extends Activity
         // A simple UI-less player for the TTS audio.
         audioPlayer = new AudioPlayer(this);
         
+        // The greeting and responses are spoken again and again,
+        // so keep their audio instead of fetching it each time.
+        ttsCache = new TTSCache(new File(getCacheDir(), "tts"));
+        
         // This is the Speak button that the user presses to start a speech
         // interaction.
         speakButton = (Button)findViewById(R.id.speak_button);
@@ -118,8 +126,10 @@ public class SimpleTTSDemo extends Activity
     startTTS(String textToSpeak)
     {
         TTSRequest tts = TTSRequest.forService(SpeechConfig.ttsUrl(), oauthToken);
-        ttsClient = new TTSClient();
-        tts.postText(textToSpeak, ttsClient);
+        tts.setCache(ttsCache);
+        // Play the audio as it arrives instead of waiting for all of it.
+        ttsClient = new TTSClient(audioPlayer.openStream());
+        tts.streamText(textToSpeak, ttsClient);
     }
     
     /**
@@ -136,16 +146,28 @@ public class SimpleTTSDemo extends Activity
     /**
      * This callback object will get the TTS responses.
     **/
-    private class TTSClient implements TTSRequest.Client 
+    private class TTSClient implements TTSRequest.StreamClient 
     {
+        TTSClient(AudioPlayer.Stream stream)
+        {
+            this.stream = stream;
+        }
+        
+        @Override public void 
+        handleAudioStream(InputStream audio) throws IOException
+        {
+            // Called on the request's thread; returns when the audio is played.
+            if (!cancel)
+                stream.play(audio);
+        }
+        
         @Override public void 
-        handleResponse(byte[] audioData, Exception error) 
+        handleStreamEnd(Exception error) 
         {
             if (cancel)
                 return;
-            if (audioData != null) {
-                Log.v("SimpleTTS", "Text to Speech returned "+audioData.length+" of audio.");
-                audioPlayer.play(audioData);
+            if (error == null) {
+                Log.v("SimpleTTS", "Text to Speech audio played, "+ttsCache);
             }
             else {
                 // The TTS service was not able to generate the audio.
@@ -154,8 +176,10 @@ public class SimpleTTSDemo extends Activity
                 alert(null, "Unable to convert text to speech.");
             }
         }
+        /** The player's stream for this request. **/
+        private final AudioPlayer.Stream stream;
         /** Set to true to prevent playing. **/
-        boolean cancel = false;
+        volatile boolean cancel = false;
     }
     
     /** 
@@ -0,0 +1,272 @@
+/*
+Licensed by AT&T under 'Software Development Kit Tools Agreement' 2012.
+TERMS AND CONDITIONS FOR USE, REPRODUCTION, AND DISTRIBUTION: http://developer.att.com/sdk_agreement/
+Copyright 2012 AT&T Intellectual Property. All rights reserved. 
+For more information contact developer.support@att.com http://developer.att.com
+*/
+package example.simpletts;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.util.Log;
+
+/**
+ * Keeps synthesized TTS audio so that repeated prompts play without
+ * a round trip to the Text to Speech service.
+ * Short clips are kept in memory, least recently used first out,
+ * and all clips are kept in a directory of limited size.
+ * Pass the cache to TTSRequest.setCache(); the request makes the key
+ * from the text and the voice and format parameters.
+ * Safe to use from several threads.
+**/
+public class TTSCache
+{
+    /** Tune these sizes based on the prompts of the application. **/
+    private static final int MAX_MEMORY_CLIP = 128*1024; // bytes
+    private static final int MAX_MEMORY = 1024*1024;
+    private static final long MAX_DISK = 8*1024*1024;
+
+    private static final String SUFFIX = ".tts";
+    /** Suffix of a file still being written by put(). **/
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Directory of the disk tier. **/
+    private final File directory;
+    /** Memory tier, in access order.  Guarded by this. **/
+    private final LinkedHashMap<String, byte[]> memory =
+        new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    private int memorySize = 0;
+    private int memoryHits = 0;
+    private int diskHits = 0;
+    private int misses = 0;
+
+    /**
+     * Create a cache that keeps its files in the directory.
+     * @param directory  where to keep the clips, for example a folder
+     *                   in the application's cache directory
+    **/
+    public TTSCache(File directory)
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Look up audio in memory only, so it's OK to call on the main thread.
+     * A miss isn't counted, since get() is expected to follow.
+     * @return the audio, or null if it isn't in memory
+    **/
+    public synchronized byte[]
+    peek(String key)
+    {
+        byte[] audio = memory.get(key);
+        if (audio != null)
+            memoryHits++;
+        return audio;
+    }
+
+    /**
+     * Look up audio in memory, then on disk.
+     * May read a file, so don't call it on the main thread.
+     * @return the audio, or null if it isn't cached
+    **/
+    public byte[]
+    get(String key)
+    {
+        synchronized (this) {
+            byte[] audio = memory.get(key);
+            if (audio != null) {
+                memoryHits++;
+                return audio;
+            }
+        }
+        File file = fileFor(key);
+        byte[] audio = null;
+        if (file.exists()) {
+            try {
+                audio = readFile(file);
+                // Keep the least recently used order of the disk tier.
+                file.setLastModified(System.currentTimeMillis());
+            }
+            catch (IOException ex) {
+                Log.w("SimpleTTS", "Unable to read cached audio "+file, ex);
+            }
+        }
+        synchronized (this) {
+            if (audio == null) {
+                misses++;
+            }
+            else {
+                diskHits++;
+                putInMemory(key, audio);
+            }
+        }
+        return audio;
+    }
+
+    /**
+     * Add audio to the cache.
+     * Writes a file, so don't call it on the main thread.
+    **/
+    public void
+    put(String key, byte[] audio)
+    {
+        synchronized (this) {
+            putInMemory(key, audio);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs())
+            return;
+        File file = fileFor(key);
+        File temp = new File(directory, file.getName()+TEMP_SUFFIX);
+        try {
+            FileOutputStream out = new FileOutputStream(temp);
+            try {
+                out.write(audio);
+            }
+            finally {
+                out.close();
+            }
+            if (!temp.renameTo(file))
+                throw new IOException("Unable to rename "+temp);
+        }
+        catch (IOException ex) {
+            temp.delete();
+            Log.w("SimpleTTS", "Unable to cache audio in "+file, ex);
+            return;
+        }
+        trimDisk();
+    }
+
+    /** Number of lookups answered from memory. **/
+    public synchronized int getMemoryHitCount() { return memoryHits; }
+    /** Number of lookups answered from disk. **/
+    public synchronized int getDiskHitCount() { return diskHits; }
+    /** Number of lookups that needed the TTS service. **/
+    public synchronized int getMissCount() { return misses; }
+
+    /**
+     * The share of lookups answered without the TTS service.
+     * @return hits divided by lookups, or 0 before the first lookup
+    **/
+    public synchronized float
+    getHitRate()
+    {
+        int lookups = memoryHits + diskHits + misses;
+        return lookups == 0 ? 0 : (float)(memoryHits + diskHits)/lookups;
+    }
+
+    @Override public synchronized String
+    toString()
+    {
+        return "TTSCache[memory hits="+memoryHits+", disk hits="+diskHits
+            +", misses="+misses+", hit rate="+Math.round(getHitRate()*100)+"%]";
+    }
+
+    /**
+     * Keep short clips in memory, dropping the least recently used ones.
+     * Call with the lock held.
+    **/
+    private void
+    putInMemory(String key, byte[] audio)
+    {
+        if (audio.length > MAX_MEMORY_CLIP)
+            return;
+        byte[] old = memory.put(key, audio);
+        memorySize += audio.length - (old == null ? 0 : old.length);
+        Iterator<Map.Entry<String, byte[]>> oldest = memory.entrySet().iterator();
+        while (memorySize > MAX_MEMORY && oldest.hasNext()) {
+            memorySize -= oldest.next().getValue().length;
+            oldest.remove();
+        }
+    }
+
+    /**
+     * Delete the least recently used files until the directory fits its limit.
+     * Temporary files are left alone, as another thread may still be
+     * writing them in put().
+    **/
+    private void
+    trimDisk()
+    {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override public boolean accept(File file) {
+                return !file.getName().endsWith(TEMP_SUFFIX);
+            }
+        });
+        if (files == null)
+            return;
+        long size = 0;
+        for (File file : files)
+            size += file.length();
+        if (size <= MAX_DISK)
+            return;
+        Arrays.sort(files, new Comparator<File>() {
+            @Override public int compare(File a, File b) {
+                long diff = a.lastModified() - b.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+        for (int i = 0; i < files.length && size > MAX_DISK; i++) {
+            long length = files[i].length();
+            if (files[i].delete())
+                size -= length;
+        }
+    }
+
+    private File
+    fileFor(String key)
+    {
+        return new File(directory, md5(key)+SUFFIX);
+    }
+
+    private static byte[]
+    readFile(File file)
+        throws IOException
+    {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            byte[] data = new byte[(int)file.length()];
+            int offset = 0;
+            while (offset < data.length) {
+                int n = in.read(data, offset, data.length - offset);
+                if (n < 0)
+                    throw new IOException("Unexpected end of "+file);
+                offset += n;
+            }
+            return data;
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static String
+    md5(String key)
+    {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes("UTF8"));
+            StringBuilder hex = new StringBuilder(digest.length*2);
+            for (byte b : digest)
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                   .append(Character.forDigit(b & 0xF, 16));
+            return hex.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
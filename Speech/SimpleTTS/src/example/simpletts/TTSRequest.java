@@ -6,7 +6,9 @@ For more information contact developer.support@att.com http://developer.att.com
 */
 package example.simpletts;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -36,6 +38,27 @@ public class TTSRequest
         handleResponse(byte[] audioData, Exception error);
     }
     
+    /** Supplies audio response back to client as it arrives. **/
+    public interface StreamClient {
+        /**
+         * Called on the request's own thread as soon as the response starts.
+         * Read the audio from the stream as it arrives, and return when done;
+         * the stream is closed afterwards.
+         * @param audio  the audio response, in WAV format
+         * @throws IOException if the audio could not be read
+        **/
+        public void 
+        handleAudioStream(InputStream audio) throws IOException;
+        
+        /**
+         * Called on client's thread when the stream is done.
+         * @param error  null on success, 
+         *               or the exception if TTS or reading the stream failed
+        **/
+        public void 
+        handleStreamEnd(Exception error);
+    }
+    
     /**
      * Sets up basic TTS request.
      * Follow this with a call to postText() to actually perform the TTS
@@ -81,8 +104,23 @@ public class TTSRequest
     }
     
     private Client client; // becomes null after cancel()
+    private StreamClient streamClient; // becomes null after cancel()
     private HttpURLConnection connection;
     private byte[] postData; // becomes null after getResponseStream()
+    private TTSCache cache; // null if audio isn't cached
+    private String cacheKey; // the text and the voice and format parameters
+    
+    /**
+     * Use a cache for the audio, so that text spoken before 
+     * is played without a round trip to the service.
+     * Call this before postText() or streamText().
+     * @param cache  the cache shared by the requests, or null for none
+    **/
+    public void
+    setCache(TTSCache cache)
+    {
+        this.cache = cache;
+    }
     
     /**
      * Begin posting the text and fetching the audio response asynchronously.
@@ -95,6 +133,51 @@ public class TTSRequest
     postText(String text, Client client)
     {
         this.client = client;
+        prepare(text);
+        final Handler callingThread = new Handler();
+        byte[] cached = cache == null ? null : cache.peek(cacheKey);
+        if (cached != null) {
+            // Audio already in memory needs no thread and no round trip.
+            deliver(callingThread, cached, null);
+            return;
+        }
+        start(new Runnable() {
+            @Override public void run() {
+                performFetch(callingThread);
+            }
+        });
+    }
+    
+    /**
+     * Begin posting the text and streaming the audio response asynchronously.
+     * Unlike postText(), the client gets the audio as it is synthesized,
+     * so playback can start with the first chunk of the response.
+     * This must be invoked on a thread with a Looper,
+     * and the client's handleStreamEnd() will be called back on this thread.
+     * @param text  the text to convert to audio
+     * @param client  the callback to receive the response
+    **/
+    public void
+    streamText(String text, StreamClient client)
+    {
+        this.streamClient = client;
+        // Only uncompressed audio can be played while it is downloaded.
+        connection.setRequestProperty("Accept", "audio/x-wav");
+        prepare(text);
+        final Handler callingThread = new Handler();
+        start(new Runnable() {
+            @Override public void run() {
+                performStream(callingThread);
+            }
+        });
+    }
+    
+    /**
+     * Sets the text to post, and the cache key of its audio.
+    **/
+    private void
+    prepare(String text)
+    {
         try {
             this.postData = text.getBytes("UTF8");
         }
@@ -102,13 +185,21 @@ public class TTSRequest
             throw new RuntimeException(e);
         }
         connection.setRequestProperty("Content-Type", "text/plain");
+        // The same text gives different audio for another voice or format.
+        cacheKey = text
+            +"\n"+connection.getRequestProperty("Accept")
+            +"\n"+connection.getRequestProperty("X-Arg")
+            +"\n"+connection.getRequestProperty("Content-Language");
+    }
+    
+    /**
+     * Starts the thread that posts the text.
+    **/
+    private void
+    start(Runnable fetch)
+    {
         // TODO: prevent starting twice
-        final Handler callingThread = new Handler();
-        Thread reader = new Thread(connection.getURL().toString()) {
-            @Override public void run() {
-                performFetch(callingThread);
-            }
-        };
+        Thread reader = new Thread(fetch, connection.getURL().toString());
         reader.start();
     }
     
@@ -121,6 +212,7 @@ public class TTSRequest
     {
         // TODO: figure out a way to implement cancel()
         client = null;
+        streamClient = null;
         //connection.disconnect();
     }
     
@@ -132,38 +224,109 @@ public class TTSRequest
     performFetch(Handler callingThread)
     {
         try {
-            // Post the credentials.
-            connection.setDoOutput(true);
-            OutputStream out = connection.getOutputStream();
-            out.write(postData);
-            out.close();
-            // Wait for the response.  
-            // Note that getInputStream will throw exception for non-200 status.
-            InputStream response = connection.getInputStream();
-            final byte[] data;
+            byte[] data = cache == null ? null : cache.get(cacheKey);
+            if (data == null) {
+                InputStream response = openResponse();
+                try {
+                    data = readAllBytes(response);
+                }
+                finally {
+                    try {response.close(); } catch (IOException ex) {/* ignore */}
+                }
+                if (cache != null)
+                    cache.put(cacheKey, data);
+            }
+            // Give it back to the client.
+            deliver(callingThread, data, null);
+        }
+        catch (Exception ex) {
+            deliver(callingThread, null, ex);
+        }
+    }
+    
+    /**
+     * Calls client on its thread with the audio or the error.
+    **/
+    private void
+    deliver(Handler callingThread, final byte[] data, final Exception error)
+    {
+        callingThread.post(new Runnable() {
+            public void run() {
+                if (client != null)
+                    client.handleResponse(data, error);
+            }
+        });
+    }
+    
+    /**
+     * Posts request data and hands the response stream to the client
+     * while it is read, then calls client on its thread when done.
+     * Performs blocking I/O, so it must be called from its own thread.
+    **/
+    private void
+    performStream(Handler callingThread)
+    {
+        Exception error = null;
+        try {
+            byte[] cached = cache == null ? null : cache.get(cacheKey);
+            CapturingInputStream capture = null;
+            InputStream response;
+            if (cached != null) {
+                response = new ByteArrayInputStream(cached);
+            }
+            else if (cache != null) {
+                // Keep a copy of the audio while the client plays it.
+                response = capture = new CapturingInputStream(openResponse(), 
+                    connection.getContentLength());
+            }
+            else {
+                response = openResponse();
+            }
             try {
-                data = readAllBytes(response);
+                StreamClient target = streamClient;
+                if (target != null)
+                    target.handleAudioStream(response);
+                // The player stops at the end of the WAV data, so read the rest
+                // of the response to see whether all of it arrived.
+                if (capture != null && streamClient != null) {
+                    try { capture.drain(); } catch (IOException ex) {/* not cached */}
+                }
             }
             finally {
                 try {response.close(); } catch (IOException ex) {/* ignore */}
             }
-            // Extract the token from JSON.
-            // Give it back to the client.
-            callingThread.post(new Runnable() {
-                public void run() {
-                    if (client != null)
-                        client.handleResponse(data, null);
-                }
-            });
+            // Audio that was stopped part way isn't cached.
+            if (capture != null && capture.isComplete())
+                cache.put(cacheKey, capture.toByteArray());
         }
-        catch (final Exception ex) {
-            callingThread.post(new Runnable() {
-                public void run() {
-                    if (client != null)
-                        client.handleResponse(null, ex);
-                }
-            });
+        catch (Exception ex) {
+            error = ex;
         }
+        final Exception streamError = error;
+        callingThread.post(new Runnable() {
+            public void run() {
+                if (streamClient != null)
+                    streamClient.handleStreamEnd(streamError);
+            }
+        });
+    }
+    
+    /**
+     * Posts request data and waits for the start of the response.
+     * Note that this will throw exception for non-200 status.
+     * @return the stream of the response body
+    **/
+    private InputStream
+    openResponse()
+        throws IOException
+    {
+        // Post the credentials.
+        connection.setDoOutput(true);
+        OutputStream out = connection.getOutputStream();
+        out.write(postData);
+        out.close();
+        // Wait for the response.  
+        return connection.getInputStream();
     }
     
     private static final int BLOCK_SIZE = 16*1024;
@@ -187,4 +350,70 @@ public class TTSRequest
             buffer.write(block, 0, n);
         return buffer.toByteArray();
     }
+    
+    /**
+     * Keeps a copy of the bytes read from a stream.
+    **/
+    private static class CapturingInputStream extends FilterInputStream
+    {
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream(BLOCK_SIZE);
+        private final int contentLength; // -1 if unknown
+        private boolean ended = false;
+        
+        CapturingInputStream(InputStream input, int contentLength)
+        {
+            super(input);
+            this.contentLength = contentLength;
+        }
+        
+        @Override public int 
+        read() throws IOException
+        {
+            int b = super.read();
+            if (b < 0)
+                ended = true;
+            else
+                copy.write(b);
+            return b;
+        }
+        
+        @Override public int 
+        read(byte[] buffer, int offset, int length) throws IOException
+        {
+            int n = super.read(buffer, offset, length);
+            if (n < 0)
+                ended = true;
+            else
+                copy.write(buffer, offset, n);
+            return n;
+        }
+        
+        @Override public long 
+        skip(long count) throws IOException
+        {
+            // Skipped bytes are part of the audio too.
+            byte[] buffer = new byte[(int)Math.min(count, BLOCK_SIZE)];
+            int n = read(buffer, 0, buffer.length);
+            return n < 0 ? 0 : n;
+        }
+        
+        /** Reads the rest of the stream, keeping a copy. **/
+        void drain() throws IOException
+        {
+            byte[] block = new byte[BLOCK_SIZE];
+            while (!ended)
+                read(block, 0, block.length);
+        }
+        
+        /** Whether all of the response was read. **/
+        boolean isComplete()
+        {
+            return ended || (contentLength >= 0 && copy.size() == contentLength);
+        }
+        
+        byte[] toByteArray()
+        {
+            return copy.toByteArray();
+        }
+    }
 }
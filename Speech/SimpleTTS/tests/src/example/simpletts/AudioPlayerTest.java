@@ -0,0 +1,174 @@
+package example.simpletts;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class AudioPlayerTest extends TestCase
+{
+    public void testReadsPcmHeader() throws IOException
+    {
+        WavBuilder wav = new WavBuilder();
+        wav.tag("RIFF").intLE(36 + 8).tag("WAVE");
+        wav.fmt(1, 1, 16000, 16);
+        wav.tag("data").intLE(8);
+        DataInputStream input = wav.input();
+        
+        AudioPlayer.Stream.Format format = AudioPlayer.Stream.readHeader(input);
+        assertEquals(1, format.channels);
+        assertEquals(16000, format.sampleRate);
+        assertEquals(16, format.bitsPerSample);
+        assertEquals(8, format.dataLength);
+        assertEquals(0, input.available()); // positioned at the audio data
+    }
+    
+    public void testStreamedLengthIsUnknown() throws IOException
+    {
+        for (int size : new int[] { 0, 0xFFFFFFFF }) {
+            WavBuilder wav = new WavBuilder();
+            wav.tag("RIFF").intLE(-1).tag("WAVE");
+            wav.fmt(1, 2, 22050, 8);
+            wav.tag("data").intLE(size);
+            
+            AudioPlayer.Stream.Format format = AudioPlayer.Stream.readHeader(wav.input());
+            assertEquals(2, format.channels);
+            assertEquals(22050, format.sampleRate);
+            assertEquals(-1, format.dataLength);
+        }
+    }
+    
+    public void testSkipsOtherChunks() throws IOException
+    {
+        WavBuilder wav = new WavBuilder();
+        wav.tag("RIFF").intLE(0).tag("WAVE");
+        wav.tag("LIST").intLE(3).bytes(3).bytes(1); // odd sizes are padded
+        wav.tag("fmt ").intLE(18).shortLE(1).shortLE(1).intLE(8000)
+            .intLE(16000).shortLE(2).shortLE(16).shortLE(0);
+        wav.tag("data").intLE(4);
+        
+        AudioPlayer.Stream.Format format = AudioPlayer.Stream.readHeader(wav.input());
+        assertEquals(8000, format.sampleRate);
+        assertEquals(4, format.dataLength);
+    }
+    
+    public void testRejectsNonWav() throws IOException
+    {
+        WavBuilder wav = new WavBuilder();
+        wav.tag("RIFX").intLE(0).tag("WAVE");
+        assertRejected(wav);
+        
+        wav = new WavBuilder();
+        wav.tag("RIFF").intLE(0).tag("AVI ");
+        assertRejected(wav);
+    }
+    
+    public void testRejectsUnsupportedFormat() throws IOException
+    {
+        WavBuilder wav = new WavBuilder();
+        wav.tag("RIFF").intLE(0).tag("WAVE");
+        wav.fmt(3 /* float */, 1, 16000, 32);
+        wav.tag("data").intLE(0);
+        assertRejected(wav);
+        
+        wav = new WavBuilder();
+        wav.tag("RIFF").intLE(0).tag("WAVE");
+        wav.fmt(1, 6, 16000, 16);
+        wav.tag("data").intLE(0);
+        assertRejected(wav);
+    }
+    
+    public void testRejectsDataBeforeFormat() throws IOException
+    {
+        WavBuilder wav = new WavBuilder();
+        wav.tag("RIFF").intLE(0).tag("WAVE");
+        wav.tag("data").intLE(0);
+        assertRejected(wav);
+    }
+    
+    public void testRejectsTruncatedHeader() throws IOException
+    {
+        WavBuilder wav = new WavBuilder();
+        wav.tag("RIFF").intLE(0).tag("WAVE");
+        wav.tag("fmt ").intLE(16).shortLE(1);
+        assertRejected(wav);
+    }
+    
+    public void testJitterIsWholeFrames()
+    {
+        // 200 ms of 16 kHz 16 bit mono
+        assertEquals(6400, AudioPlayer.Stream.jitterBytes(16000, 2));
+        // 22050 Hz doesn't divide into milliseconds
+        assertEquals(8820, AudioPlayer.Stream.jitterBytes(22050, 2));
+        assertEquals(17640, AudioPlayer.Stream.jitterBytes(22050, 4));
+        // 11025 Hz: 2205 frames of stereo 16 bit
+        assertEquals(8820, AudioPlayer.Stream.jitterBytes(11025, 4));
+        for (int rate : new int[] { 8000, 11025, 22050, 44100, 44101 }) {
+            for (int frameSize : new int[] { 1, 2, 4 }) {
+                int bytes = AudioPlayer.Stream.jitterBytes(rate, frameSize);
+                assertEquals(0, bytes%frameSize);
+                assertTrue(bytes*1000L >= (long)rate*frameSize*200);
+            }
+        }
+    }
+    
+    private static void assertRejected(WavBuilder wav)
+    {
+        try {
+            AudioPlayer.Stream.readHeader(wav.input());
+            fail("Header should be rejected");
+        }
+        catch (IOException ex) {
+            // expected
+        }
+    }
+    
+    /** Writes a WAV header in little-endian order. **/
+    private static class WavBuilder
+    {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        WavBuilder tag(String tag) throws IOException
+        {
+            out.write(tag.getBytes("US-ASCII"));
+            return this;
+        }
+        
+        WavBuilder intLE(int value)
+        {
+            shortLE(value);
+            return shortLE(value >>> 16);
+        }
+        
+        WavBuilder shortLE(int value)
+        {
+            out.write(value);
+            out.write(value >>> 8);
+            return this;
+        }
+        
+        WavBuilder bytes(int count)
+        {
+            for (int i = 0; i < count; i++)
+                out.write(0);
+            return this;
+        }
+        
+        WavBuilder fmt(int audioFormat, int channels, int sampleRate, int bitsPerSample)
+        {
+            int blockAlign = channels*bitsPerSample/8;
+            intLE(0x20746d66); // "fmt "
+            intLE(16);
+            shortLE(audioFormat).shortLE(channels).intLE(sampleRate);
+            intLE(sampleRate*blockAlign).shortLE(blockAlign).shortLE(bitsPerSample);
+            return this;
+        }
+        
+        DataInputStream input()
+        {
+            return new DataInputStream(new ByteArrayInputStream(out.toByteArray()));
+        }
+    }
+}